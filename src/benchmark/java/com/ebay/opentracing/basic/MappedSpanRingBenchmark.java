@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the rate, in millions of spans per second, at which finished spans are written to a memory-mapped
+ * span ring while a reader drains it concurrently.
+ */
+public final class MappedSpanRingBenchmark {
+    private static final int SPAN_COUNT = 1000000;
+    private static final int RING_CAPACITY = 4 * 1024 * 1024;
+
+    private MappedSpanRingBenchmark() {
+        // Entry point only
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (!MappedSpanRing.isAvailable()) {
+            System.out.println("Memory-mapped span ring is not available on this platform");
+            return;
+        }
+
+        // Measure the ring rather than the formatting of the test trace context's IDs
+        SpanIdAccessor<TestTraceContext> fixedIds = new SpanIdAccessor<TestTraceContext>() {
+            @Override
+            public String getTraceId(TestTraceContext traceContext) {
+                return "0123456789abcdef0123456789abcdef";
+            }
+
+            @Override
+            public String getSpanId(TestTraceContext traceContext) {
+                return "0123456789abcdef";
+            }
+        };
+
+        Path file = Files.createTempFile("span-ring", ".ring");
+        try {
+            MappedSpanRing<TestTraceContext> ring = new MappedSpanRing<>(file, fixedIds, RING_CAPACITY);
+            MappedSpanRingReader reader = new MappedSpanRingReader(file);
+            SpanData<TestTraceContext> spanData = finishedSpan();
+
+            // Allow the JIT to compile the write and read paths before measuring
+            writeAndRead(ring, reader, spanData);
+            long dropped = ring.getDroppedCount();
+            long elapsed = writeAndRead(ring, reader, spanData);
+            System.out.printf("Ring throughput: %.2f million spans/s written, %d dropped%n",
+                    SPAN_COUNT * 1000.0d / elapsed, ring.getDroppedCount() - dropped);
+            ring.close();
+            reader.close();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static SpanData<TestTraceContext> finishedSpan() {
+        final AtomicReference<SpanData<TestTraceContext>> captured = new AtomicReference<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                captured.set(spanData);
+            }
+        }).build();
+        tracer.buildSpan("operation").withTag("component", "benchmark").start().finish();
+        return captured.get();
+    }
+
+    private static long writeAndRead(
+            final MappedSpanRing<TestTraceContext> ring,
+            final MappedSpanRingReader reader,
+            SpanData<TestTraceContext> spanData) throws InterruptedException {
+        final long droppedBefore = ring.getDroppedCount();
+        final AtomicLong readCount = new AtomicLong();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long read = 0L;
+                while (read + ring.getDroppedCount() - droppedBefore < SPAN_COUNT) {
+                    read += reader.read(1024).size();
+                }
+                readCount.set(read);
+            }
+        }, "ring-consumer");
+        consumer.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            ring.spanFinished(spanData);
+        }
+        long elapsed = System.nanoTime() - start;
+        consumer.join(TimeUnit.SECONDS.toMillis(30L));
+        if (consumer.isAlive() || readCount.get() + ring.getDroppedCount() - droppedBefore != SPAN_COUNT) {
+            throw new IllegalStateException("Reader did not account for every span written");
+        }
+        return elapsed;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+
+/**
+ * Measures the cost of starting and finishing spans with and without a span started listener, showing that
+ * the listener hook adds no overhead when none is configured.
+ */
+public final class SpanStartedListenerBenchmark {
+    private static final int SPAN_COUNT = 200000;
+    private static final int WARMUP_ROUNDS = 5;
+
+    private SpanStartedListenerBenchmark() {
+        // Entry point only
+    }
+
+    public static void main(String[] args) {
+        // Measure without a listener first, while the no-op is the only implementation seen at the call site
+        Tracer withoutListener = newTracerBuilder().build();
+        long withoutElapsed = measure(withoutListener);
+
+        Tracer withListener = newTracerBuilder()
+                .spanStartedListener(new SpanStartedListener<TestTraceContext>() {
+                    @Override
+                    public void spanStarted(MutableSpanData<TestTraceContext> spanData) {
+                        spanData.putTag("listener", "true");
+                    }
+                })
+                .build();
+        long withElapsed = measure(withListener);
+
+        System.out.printf("Span start/finish: %d ns without listener, %d ns with listener%n",
+                withoutElapsed / SPAN_COUNT, withElapsed / SPAN_COUNT);
+    }
+
+    private static long measure(Tracer tracer) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            startAndFinish(tracer);
+        }
+        return startAndFinish(tracer);
+    }
+
+    private static long startAndFinish(Tracer tracer) {
+        long start = System.nanoTime();
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            tracer.buildSpan("operation").start().finish();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static BasicTracerBuilder<TestTraceContext> newTracerBuilder() {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+            }
+        });
+    }
+
+}
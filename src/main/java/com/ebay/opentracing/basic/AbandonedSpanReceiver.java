@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receiver of spans which were started but never finished.
+ *
+ * @param <T> trace context type
+ * @see BasicTracerBuilder#abandonedSpanDetection(AbandonedSpanReceiver, long, java.util.concurrent.TimeUnit,
+ * double)
+ */
+public interface AbandonedSpanReceiver<T> {
+
+    /**
+     * Called on the detection thread when an abandoned span has been detected.  Each span is reported at
+     * most once.
+     *
+     * @param spanData     snapshot of the span's data, with the time of detection as its finish time
+     * @param unreachable  {@code true} if the span was garbage collected without being finished, or
+     *                     {@code false} if it has exceeded the maximum lifetime and may yet be finished
+     * @param creationSite exception whose stack trace identifies where the span was started, or {@code null}
+     *                     if the creation site was not sampled
+     */
+    void spanAbandoned(SpanData<T> spanData, boolean unreachable, @Nullable Throwable creationSite);
+
+}
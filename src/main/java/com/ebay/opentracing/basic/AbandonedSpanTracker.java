@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracker of started spans, used to detect spans which are abandoned without being finished.  Each span is
+ * registered with a {@link PhantomReference} to its {@link Span} object, which the garbage collector
+ * enqueues if the span object becomes unreachable while still registered.  Finishing a span deregisters
+ * it, after which its reference is never enqueued.  Spans still registered after the maximum lifetime are
+ * also reported, but remain usable.
+ * <p>
+ * Capturing the creation site requires filling in a stack trace, so is sampled.  Closing the tracker stops
+ * its detection thread, after which nothing further is tracked or reported.
+ *
+ * @param <T> trace context type
+ */
+final class AbandonedSpanTracker<T> implements Closeable {
+    private static final AbandonedSpanTracker<?> DISABLED = new AbandonedSpanTracker<>();
+    private static final AtomicInteger THREAD_SERIAL = new AtomicInteger();
+    private static final long MAX_POLL_INTERVAL_MS = 1000L;
+
+    private final boolean enabled;
+    @Nullable
+    private final AbandonedSpanReceiver<T> receiver;
+    private final InFlightSpanRegistry<T> inFlightSpanRegistry;
+    private final long maxLifetimeNanos;
+    private final double creationSiteSampleRate;
+    private final ReferenceQueue<Span> referenceQueue = new ReferenceQueue<>();
+    private final ConcurrentMap<MutableSpanData<T>, TrackedSpan<T>> trackedSpans = new ConcurrentHashMap<>();
+    @Nullable
+    private final Thread worker;
+    private volatile boolean closed;
+
+    private AbandonedSpanTracker() {
+        this.enabled = false;
+        this.receiver = null;
+        this.inFlightSpanRegistry = InFlightSpanRegistry.disabled();
+        this.maxLifetimeNanos = Long.MAX_VALUE;
+        this.creationSiteSampleRate = 0.0d;
+        this.worker = null;
+    }
+
+    /**
+     * Create a tracker, starting its detection thread.  The thread runs until the tracker is closed.
+     *
+     * @param receiver               receiver of abandoned spans
+     * @param inFlightSpanRegistry   registry from which unreachable spans are removed
+     * @param maxLifetimeNanos       lifetime after which an unfinished span is reported
+     * @param creationSiteSampleRate fraction of spans for which the creation site is captured
+     */
+    AbandonedSpanTracker(
+            AbandonedSpanReceiver<T> receiver,
+            InFlightSpanRegistry<T> inFlightSpanRegistry,
+            long maxLifetimeNanos,
+            double creationSiteSampleRate) {
+        this.enabled = true;
+        this.receiver = receiver;
+        this.inFlightSpanRegistry = inFlightSpanRegistry;
+        this.maxLifetimeNanos = maxLifetimeNanos;
+        this.creationSiteSampleRate = creationSiteSampleRate;
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                detect();
+            }
+        }, "basic-tracer-abandoned-spans-" + THREAD_SERIAL.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Get the tracker used when detection has not been configured, which tracks nothing.
+     *
+     * @param <T> trace context type
+     * @return disabled tracker
+     */
+    @SuppressWarnings("unchecked")
+    static <T> AbandonedSpanTracker<T> disabled() {
+        return (AbandonedSpanTracker<T>) DISABLED;
+    }
+
+    void spanStarted(Span span, MutableSpanData<T> spanData) {
+        if (!enabled || closed) {
+            return;
+        }
+        Throwable creationSite = null;
+        if (creationSiteSampleRate > 0.0d && ThreadLocalRandom.current().nextDouble() < creationSiteSampleRate) {
+            creationSite = creationSite(spanData);
+        }
+        trackedSpans.put(spanData, new TrackedSpan<>(span, spanData, creationSite, referenceQueue));
+    }
+
+    void spanFinished(MutableSpanData<T> spanData) {
+        if (!enabled) {
+            return;
+        }
+        TrackedSpan<T> trackedSpan = trackedSpans.remove(spanData);
+        if (trackedSpan != null) {
+            trackedSpan.clear();
+        }
+    }
+
+    /**
+     * Get the number of spans currently tracked.
+     *
+     * @return tracked span count
+     */
+    int getTrackedCount() {
+        return trackedSpans.size();
+    }
+
+    /**
+     * Stop the detection thread and forget all tracked spans, without reporting them.
+     */
+    @Override
+    public void close() {
+        if (worker == null) {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            worker.interrupt();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        trackedSpans.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void detect() {
+        long scanIntervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1L), maxLifetimeNanos / 4L);
+        long nextScanNanos = System.nanoTime() + scanIntervalNanos;
+        while (!closed) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(nextScanNanos - System.nanoTime());
+            try {
+                Reference<? extends Span> reference =
+                        referenceQueue.remove(Math.max(1L, Math.min(waitMillis, MAX_POLL_INTERVAL_MS)));
+                if (reference != null) {
+                    @SuppressWarnings("unchecked")
+                    TrackedSpan<T> trackedSpan = (TrackedSpan<T>) reference;
+                    // A span finished concurrently with becoming unreachable has been deregistered
+                    if (trackedSpans.remove(trackedSpan.spanData, trackedSpan)) {
+                        // An unreachable span can never be finished, so would otherwise stay registered forever
+                        inFlightSpanRegistry.spanFinished(trackedSpan.spanData);
+                        report(trackedSpan, true);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutdown is signalled via the closed flag
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (now - nextScanNanos >= 0L) {
+                scanLifetimes(now);
+                nextScanNanos = now + scanIntervalNanos;
+            }
+        }
+    }
+
+    private void scanLifetimes(long now) {
+        Iterator<TrackedSpan<T>> iterator = trackedSpans.values().iterator();
+        while (iterator.hasNext()) {
+            TrackedSpan<T> trackedSpan = iterator.next();
+            if (now - trackedSpan.startNanos > maxLifetimeNanos
+                    && trackedSpans.remove(trackedSpan.spanData, trackedSpan)) {
+                trackedSpan.clear();
+                report(trackedSpan, false);
+            }
+        }
+    }
+
+    private void report(TrackedSpan<T> trackedSpan, boolean unreachable) {
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        try {
+            receiver.spanAbandoned(SpanDataSnapshot.unfinished(trackedSpan.spanData, nowMicros), unreachable,
+                    trackedSpan.creationSite);
+        } catch (RuntimeException e) {
+            // A misbehaving receiver must not stop detection
+        }
+    }
+
+    private static Throwable creationSite(SpanData<?> spanData) {
+        Throwable creationSite = new Throwable("Span '" + spanData.getOperationName() + "' created here");
+        // Trim the tracer's own frames so that the trace starts at the caller of the span builder
+        StackTraceElement[] stackTrace = creationSite.getStackTrace();
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            if (SpanBuilderImpl.class.getName().equals(stackTrace[i].getClassName())) {
+                creationSite.setStackTrace(Arrays.copyOfRange(stackTrace, i + 1, stackTrace.length));
+                break;
+            }
+        }
+        return creationSite;
+    }
+
+    private static final class TrackedSpan<T> extends PhantomReference<Span> {
+        private final MutableSpanData<T> spanData;
+        private final long startNanos = System.nanoTime();
+        @Nullable
+        private final Throwable creationSite;
+
+        private TrackedSpan(
+                Span span,
+                MutableSpanData<T> spanData,
+                @Nullable Throwable creationSite,
+                ReferenceQueue<Span> referenceQueue) {
+            super(span, referenceQueue);
+            this.spanData = spanData;
+            this.creationSite = creationSite;
+        }
+    }
+
+}
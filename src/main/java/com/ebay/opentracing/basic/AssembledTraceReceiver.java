@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.List;
+
+/**
+ * Receiver of the traces assembled by a {@link TraceAssembler}.
+ *
+ * @param <T> trace context type
+ */
+public interface AssembledTraceReceiver<T> {
+
+    /**
+     * Called on the assembler's thread once a trace has been assembled.
+     *
+     * @param spans        spans of the trace which finished within this process, in the order received
+     * @param rootFinished {@code true} if the trace was emitted because its local root had finished, or
+     *                     {@code false} if it was emitted due to the timeout or the assembler being closed
+     */
+    void traceAssembled(List<SpanData<T>> spans, boolean rootFinished);
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} which decouples the finishing thread from a delegate receiver by way of a
+ * bounded queue and a dedicated delivery thread.  When the queue is full, the configured
+ * {@link BackpressurePolicy} determines the fate of the span being delivered.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class AsyncFinishedSpanReceiver<T> implements FinishedSpanReceiver<T>, Closeable {
+    private static final AtomicInteger THREAD_SERIAL = new AtomicInteger();
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long POLL_INTERVAL_MS = 100L;
+
+    private final FinishedSpanReceiver<T> delegate;
+    private final BlockingQueue<SpanData<T>> queue;
+    private final BackpressurePolicy backpressurePolicy;
+    private final SpanProcessorChain<T> spanProcessors;
+    private final AtomicLong deliveryFailures = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * Create a new receiver instance and start its delivery thread.
+     *
+     * @param delegate           receiver to deliver the finished spans to
+     * @param queueCapacity      maximum number of spans awaiting delivery
+     * @param backpressurePolicy policy to apply when the queue is full
+     */
+    public AsyncFinishedSpanReceiver(
+            FinishedSpanReceiver<T> delegate,
+            int queueCapacity,
+            BackpressurePolicy backpressurePolicy) {
+        this(delegate, queueCapacity, backpressurePolicy, SpanProcessorChain.<T>empty());
+    }
+
+    /**
+     * Create a new receiver instance which runs the finish stage of the span processors on the delivery thread
+     * prior to delivering spans to the delegate.  Spans handed to such a receiver must be instances of
+     * {@link MutableSpanData}, as is the case for all spans delivered by the tracer.
+     *
+     * @param delegate           receiver to deliver the finished spans to
+     * @param queueCapacity      maximum number of spans awaiting delivery
+     * @param backpressurePolicy policy to apply when the queue is full
+     * @param spanProcessors     span processors
+     */
+    AsyncFinishedSpanReceiver(
+            FinishedSpanReceiver<T> delegate,
+            int queueCapacity,
+            BackpressurePolicy backpressurePolicy,
+            SpanProcessorChain<T> spanProcessors) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.delegate = Objects.requireNonNull(delegate, "delegate may not be null");
+        this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy, "backpressurePolicy may not be null");
+        this.spanProcessors = spanProcessors;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                deliver();
+            }
+        }, "basic-tracer-span-delivery-" + THREAD_SERIAL.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Spans which arrive after this receiver has been closed are shed.
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        if (closed) {
+            backpressurePolicy.shed();
+            return;
+        }
+
+        // The delivery thread may have drained the queue and exited after the check above, in which case
+        // take the span back rather than lose it uncounted
+        if (backpressurePolicy.enqueue(queue, spanData) && closed && queue.remove(spanData)) {
+            backpressurePolicy.shed();
+        }
+    }
+
+    /**
+     * Get the backpressure policy applied by this receiver.
+     *
+     * @return policy instance
+     */
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    /**
+     * Get the number of spans currently awaiting delivery.
+     *
+     * @return queue depth
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Get the number of spans for which the delegate receiver or a span processor threw an exception.
+     *
+     * @return failure count
+     */
+    public long getDeliveryFailureCount() {
+        return deliveryFailures.get();
+    }
+
+    /**
+     * Stop accepting spans, deliver any spans which are already queued, and stop the delivery thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver() {
+        List<SpanData<T>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        List<MutableSpanData<T>> processingBatch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!closed || !queue.isEmpty()) {
+            SpanData<T> first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Shutdown is signalled via the closed flag
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            if (spanProcessors.isEmpty()) {
+                deliverBatch(batch);
+            } else {
+                processAndDeliverBatch(batch, processingBatch);
+            }
+            batch.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processAndDeliverBatch(List<SpanData<T>> batch, List<MutableSpanData<T>> processingBatch) {
+        for (SpanData<T> spanData : batch) {
+            processingBatch.add((MutableSpanData<T>) spanData);
+        }
+        try {
+            spanProcessors.onFinish(processingBatch);
+        } catch (RuntimeException e) {
+            // Never deliver a partially processed batch as it may not have been redacted
+            deliveryFailures.addAndGet(batch.size());
+            processingBatch.clear();
+            return;
+        }
+        deliverBatch(processingBatch);
+        processingBatch.clear();
+    }
+
+    private void deliverBatch(List<? extends SpanData<T>> batch) {
+        for (SpanData<T> spanData : batch) {
+            try {
+                delegate.spanFinished(spanData);
+            } catch (RuntimeException e) {
+                deliveryFailures.incrementAndGet();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy which determines what happens when a span is handed to an asynchronous delivery queue which has
+ * no remaining capacity.  Every policy keeps a count of the spans it has shed so that the amount of data
+ * being lost can be observed.
+ * <p>
+ * Policy instances hold their own counters and should therefore not be shared between queues.
+ *
+ * @see AsyncFinishedSpanReceiver
+ * @see BasicTracerBuilder#asyncDelivery(int, BackpressurePolicy)
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public abstract class BackpressurePolicy {
+    private final AtomicLong shedCount = new AtomicLong();
+
+    BackpressurePolicy() {
+        // Only the policies defined here are supported
+    }
+
+    /**
+     * Create a policy which discards the span being delivered when the queue is full.
+     *
+     * @return policy instance
+     */
+    public static BackpressurePolicy dropNewest() {
+        return new DropNewest();
+    }
+
+    /**
+     * Create a policy which discards the oldest queued span(s) to make room for the span being delivered
+     * when the queue is full.
+     *
+     * @return policy instance
+     */
+    public static BackpressurePolicy dropOldest() {
+        return new DropOldest();
+    }
+
+    /**
+     * Create a policy which blocks the finishing thread until queue capacity becomes available or the
+     * timeout elapses, discarding the span being delivered in the latter case.
+     *
+     * @param timeout  maximum amount of time to wait
+     * @param timeUnit time unit of the timeout
+     * @return policy instance
+     */
+    public static BackpressurePolicy blockWithTimeout(long timeout, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout may not be negative");
+        }
+        return new BlockWithTimeout(timeUnit.toNanos(timeout));
+    }
+
+    /**
+     * Create a policy which starts sampling spans once the queue fills beyond the high water mark.  Above
+     * the mark, the probability of a span being accepted decreases linearly with the remaining capacity,
+     * reaching zero when the queue is full.
+     *
+     * @param highWaterMark fraction of the queue capacity, in the range {@code [0, 1)}, at which sampling begins
+     * @return policy instance
+     */
+    public static BackpressurePolicy degradeToSampling(double highWaterMark) {
+        if (!(highWaterMark >= 0.0d && highWaterMark < 1.0d)) {
+            throw new IllegalArgumentException("highWaterMark must be in the range [0, 1)");
+        }
+        return new DegradeToSampling(highWaterMark);
+    }
+
+    /**
+     * Get the number of spans which this policy has discarded.
+     *
+     * @return shed span count
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /**
+     * Attempt to place the element into the queue, applying the policy if the queue is full.
+     *
+     * @param queue   destination queue
+     * @param element element to enqueue
+     * @param <E>     element type
+     * @return {@code true} if the element was enqueued, {@code false} if it was shed
+     */
+    abstract <E> boolean enqueue(BlockingQueue<E> queue, E element);
+
+    /**
+     * Determine whether the spans shed by this policy are shed as a result of sampling rather than
+     * outright rejection.
+     *
+     * @return {@code true} for sampling policies
+     */
+    boolean isSampling() {
+        return false;
+    }
+
+    final void shed() {
+        shedCount.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{shedCount=" + shedCount.get() + "}";
+    }
+
+    private static final class DropNewest extends BackpressurePolicy {
+        @Override
+        <E> boolean enqueue(BlockingQueue<E> queue, E element) {
+            if (queue.offer(element)) {
+                return true;
+            }
+            shed();
+            return false;
+        }
+    }
+
+    private static final class DropOldest extends BackpressurePolicy {
+        @Override
+        <E> boolean enqueue(BlockingQueue<E> queue, E element) {
+            while (!queue.offer(element)) {
+                if (queue.poll() != null) {
+                    shed();
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class BlockWithTimeout extends BackpressurePolicy {
+        private final long timeoutNanos;
+
+        BlockWithTimeout(long timeoutNanos) {
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        <E> boolean enqueue(BlockingQueue<E> queue, E element) {
+            if (queue.offer(element)) {
+                return true;
+            }
+            try {
+                if (queue.offer(element, timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            shed();
+            return false;
+        }
+    }
+
+    private static final class DegradeToSampling extends BackpressurePolicy {
+        private final double highWaterMark;
+
+        DegradeToSampling(double highWaterMark) {
+            this.highWaterMark = highWaterMark;
+        }
+
+        @Override
+        <E> boolean enqueue(BlockingQueue<E> queue, E element) {
+            int remaining = queue.remainingCapacity();
+            int capacity = queue.size() + remaining;
+            int sampleThreshold = (int) (capacity * (1.0d - highWaterMark));
+            if (remaining < sampleThreshold) {
+                double sampleRate = (double) remaining / sampleThreshold;
+                if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                    shed();
+                    return false;
+                }
+            }
+            if (queue.offer(element)) {
+                return true;
+            }
+            shed();
+            return false;
+        }
+
+        @Override
+        boolean isSampling() {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+
+/**
+ * Extension of {@link Span} implemented by the spans of this tracer, allowing costly tag and log values to
+ * be produced only if, and when, they are needed.  Deferred values are resolved when the span's tags or log
+ * events are first read, which is normally by the {@link SpanProcessor} finish stage or the
+ * {@link FinishedSpanReceiver}, and so on the delivery thread when asynchronous delivery is configured.
+ * <p>
+ * Spans created by a custom {@link SpanInitiator} may not implement this interface, so callers should test
+ * for it before use:
+ * <pre>
+ * if (span instanceof BasicSpan) {
+ *     ((BasicSpan) span).setTag("db.statement", statementSupplier);
+ * }
+ * </pre>
+ */
+public interface BasicSpan extends Span {
+
+    /**
+     * Determine whether the span is being recorded.  Spans which are not recorded, such as those suppressed
+     * by a trace budget, discard all tags and log events, so callers may skip producing them.
+     *
+     * @return true if the span is being recorded
+     */
+    boolean isRecording();
+
+    /**
+     * Set a tag whose value is formatted, via {@link CharSequence#toString()}, only when needed.  The value
+     * should not be modified after being set.
+     *
+     * @param key   tag name
+     * @param value tag value
+     * @return this span
+     */
+    BasicSpan setTag(String key, CharSequence value);
+
+    /**
+     * Set a tag whose value is produced only when needed.  The supplier is not called for spans which are
+     * not recorded.
+     *
+     * @param key           tag name
+     * @param valueSupplier supplier of the tag value
+     * @return this span
+     */
+    BasicSpan setTag(String key, ValueSupplier<?> valueSupplier);
+
+    /**
+     * Log a single field whose value is produced only when needed.  The supplier is not called for spans
+     * which are not recorded.
+     *
+     * @param field         log field name
+     * @param valueSupplier supplier of the field value
+     * @return this span
+     */
+    BasicSpan log(String field, ValueSupplier<?> valueSupplier);
+
+}
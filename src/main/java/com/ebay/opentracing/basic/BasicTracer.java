@@ -23,6 +23,8 @@ import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.util.Objects;
 
 /**
@@ -33,27 +35,55 @@ import java.util.Objects;
  *
  * @param <T> trace context type
  */
-final class BasicTracer<T> implements Tracer {
+final class BasicTracer<T> implements Tracer, Closeable {
 
     private final TraceContextHandler<T> traceContextHandler;
     private final Formatters<T> formatters;
     private final ScopeManager scopeManager;
     private final SpanInitiatorContext<T> spanInitiatorContext;
     private final SpanInitiator<T> spanInitiator;
+    private final SpanProcessorChain<T> spanProcessors;
+    private final TracerMetrics tracerMetrics;
+    @Nullable
+    private final TraceBudget.Limits traceBudgetLimits;
+    @Nullable
+    private final SpanLimits spanLimits;
+    private final StringDictionary stringDictionary;
+    private final CardinalityLimiter cardinalityLimiter;
+    private final AbandonedSpanTracker<T> abandonedSpanTracker;
+    @Nullable
+    private final AsyncFinishedSpanReceiver<T> asyncReceiver;
 
     BasicTracer(
             TraceContextHandler<T> traceContextHandler,
             SpanInitiator<T> spanInitiator,
-            FinishedSpanReceiver<T> finishedSpanReceiver,
+            SpanFinisher<T> spanFinisher,
             ScopeManager scopeManager,
-            Formatters<T> formatters) {
+            Formatters<T> formatters,
+            SpanProcessorChain<T> spanProcessors,
+            TracerMetrics tracerMetrics,
+            @Nullable TraceBudget.Limits traceBudgetLimits,
+            @Nullable SpanLimits spanLimits,
+            StringDictionary stringDictionary,
+            CardinalityLimiter cardinalityLimiter,
+            AbandonedSpanTracker<T> abandonedSpanTracker,
+            InFlightSpanRegistry<T> inFlightSpanRegistry,
+            SpanStartedListener<T> spanStartedListener,
+            @Nullable AsyncFinishedSpanReceiver<T> asyncReceiver) {
         this.traceContextHandler = traceContextHandler;
         this.spanInitiator = spanInitiator;
         this.scopeManager = scopeManager;
         this.formatters = formatters;
-
-        SpanFinisher<T> spanFinisher = new SpanFinisher<>(finishedSpanReceiver);
-        this.spanInitiatorContext = new SpanInitiatorContextImpl<>(scopeManager, spanFinisher);
+        this.spanProcessors = spanProcessors;
+        this.tracerMetrics = tracerMetrics;
+        this.traceBudgetLimits = traceBudgetLimits;
+        this.spanLimits = spanLimits;
+        this.stringDictionary = stringDictionary;
+        this.cardinalityLimiter = cardinalityLimiter;
+        this.abandonedSpanTracker = abandonedSpanTracker;
+        this.asyncReceiver = asyncReceiver;
+        this.spanInitiatorContext = new SpanInitiatorContextImpl<>(
+                scopeManager, spanFinisher, abandonedSpanTracker, inFlightSpanRegistry, spanStartedListener);
     }
 
     /**
@@ -62,7 +92,18 @@ final class BasicTracer<T> implements Tracer {
     @Override
     public SpanBuilder buildSpan(String operationName) {
         Objects.requireNonNull(operationName, "operationName may not be null");
-        return new SpanBuilderImpl<>(scopeManager, spanInitiatorContext, spanInitiator, traceContextHandler, operationName);
+        return new SpanBuilderImpl<>(
+                scopeManager,
+                spanInitiatorContext,
+                spanInitiator,
+                traceContextHandler,
+                spanProcessors,
+                tracerMetrics,
+                traceBudgetLimits,
+                spanLimits,
+                stringDictionary,
+                cardinalityLimiter,
+                stringDictionary.intern(cardinalityLimiter.limitOperationName(operationName)));
     }
 
     /**
@@ -79,8 +120,14 @@ final class BasicTracer<T> implements Tracer {
         @SuppressWarnings("unchecked")
         InternalSpanContext<T> internalSpanContext = (InternalSpanContext<T>) spanContext;
 
-        Formatter<T, C> formatter = formatters.get(format);
-        formatter.inject(internalSpanContext, carrier);
+        try {
+            Formatter<T, C> formatter = formatters.get(format);
+            formatter.inject(internalSpanContext, carrier);
+        } catch (RuntimeException e) {
+            tracerMetrics.injected(format, false);
+            throw e;
+        }
+        tracerMetrics.injected(format, true);
     }
 
     /**
@@ -91,8 +138,16 @@ final class BasicTracer<T> implements Tracer {
         Objects.requireNonNull(format, "format may not be null");
         Objects.requireNonNull(carrier, "carrier may not be null");
 
-        Formatter<T, C> formatter = formatters.get(format);
-        return formatter.extract(carrier);
+        SpanContext spanContext;
+        try {
+            Formatter<T, C> formatter = formatters.get(format);
+            spanContext = formatter.extract(carrier);
+        } catch (RuntimeException e) {
+            tracerMetrics.extracted(format, false);
+            throw e;
+        }
+        tracerMetrics.extracted(format, true);
+        return spanContext;
     }
 
     /**
@@ -112,4 +167,15 @@ final class BasicTracer<T> implements Tracer {
         return scopeManager;
     }
 
+    /**
+     * Stop the threads started on behalf of this tracer, delivering any spans which are already queued.
+     */
+    @Override
+    public void close() {
+        if (asyncReceiver != null) {
+            asyncReceiver.close();
+        }
+        abandonedSpanTracker.close();
+    }
+
 }
@@ -24,7 +24,10 @@ import io.opentracing.util.GlobalTracer;
 import io.opentracing.util.ThreadLocalScopeManager;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Builder for creating instances of {@link BasicTracer}.
@@ -34,6 +37,7 @@ import java.util.Objects;
 @SuppressWarnings("WeakerAccess") // API class
 public final class BasicTracerBuilder<T> {
     private final Formatters<T> formatters = new Formatters<>();
+    private final List<SpanProcessor<T>> spanProcessors = new ArrayList<>(4);
     private final TraceContextHandler<T> traceContextHandler;
 
     @Nullable
@@ -45,6 +49,36 @@ public final class BasicTracerBuilder<T> {
     @Nullable
     private FinishedSpanReceiver<T> receiver;
 
+    @Nullable
+    private BackpressurePolicy backpressurePolicy;
+    private int asyncQueueCapacity;
+
+    @Nullable
+    private TracerMetrics tracerMetrics;
+
+    @Nullable
+    private AbandonedSpanReceiver<T> abandonedSpanReceiver;
+    private long maxSpanLifetimeNanos;
+    private double creationSiteSampleRate;
+
+    @Nullable
+    private InFlightSpanRegistry<T> inFlightSpanRegistry;
+
+    @Nullable
+    private TraceBudget.Limits traceBudgetLimits;
+
+    @Nullable
+    private SpanLimits spanLimits;
+
+    @Nullable
+    private StringDictionary stringDictionary;
+
+    @Nullable
+    private CardinalityLimiter cardinalityLimiter;
+
+    @Nullable
+    private SpanStartedListener<T> spanStartedListener;
+
     /**
      * Create a builder instance that leverages the trace context types supported by the provided
      * trace context handler and reporting finished spans to the finished span receiver.
@@ -83,6 +117,182 @@ public final class BasicTracerBuilder<T> {
         return this;
     }
 
+    /**
+     * Configure the tracer to deliver finished spans to the receiver asynchronously, by way of a bounded
+     * queue serviced by a dedicated thread.  When the queue is full, the backpressure policy determines
+     * the fate of the span being delivered.  When not configured, spans are delivered to the receiver on
+     * the thread which finishes the span.
+     * <p>
+     * Each tracer built creates its own delivery thread, which is stopped when the tracer is closed.  The
+     * policy instance is shared by all tracers built by this builder, so its shed count is their total.
+     * Supply a new policy before each build when separate counts are required.
+     *
+     * @param queueCapacity      maximum number of spans awaiting delivery
+     * @param backpressurePolicy policy to apply when the queue is full
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> asyncDelivery(int queueCapacity, BackpressurePolicy backpressurePolicy) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.backpressurePolicy = Objects.requireNonNull(
+                backpressurePolicy, "backpressurePolicy may not be null");
+        this.asyncQueueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Add a {@link SpanProcessor} to the span processing pipeline.  Processors are run in the order in
+     * which they were added.  When asynchronous delivery has been configured, the finish stage of the
+     * processors is run on the delivery thread.
+     *
+     * @param spanProcessor span processor instance
+     * @return builder instance
+     * @see #asyncDelivery(int, BackpressurePolicy)
+     */
+    public BasicTracerBuilder<T> addSpanProcessor(SpanProcessor<T> spanProcessor) {
+        spanProcessors.add(Objects.requireNonNull(spanProcessor, "spanProcessor may not be null"));
+        return this;
+    }
+
+    /**
+     * Configure the tracer to record metrics describing its own behavior into the provided instance.  When
+     * not configured, no metrics are recorded.
+     *
+     * @param tracerMetrics metrics instance
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> tracerMetrics(TracerMetrics tracerMetrics) {
+        this.tracerMetrics = Objects.requireNonNull(tracerMetrics, "tracerMetrics may not be null");
+        return this;
+    }
+
+    /**
+     * Configure the tracer to detect spans which are started but never finished, reporting them to the
+     * provided receiver.  Spans are reported when they are garbage collected without having been finished,
+     * or when they remain unfinished for longer than the maximum lifetime.  Detection adds a small cost to
+     * the starting and finishing of every span, plus the cost of capturing a stack trace for the sampled
+     * fraction of spans whose creation site is captured.  When not configured, no detection is performed.
+     * <p>
+     * Each tracer built creates its own detection thread, which is stopped when the tracer is closed.
+     *
+     * @param receiver               receiver of abandoned spans
+     * @param maxLifetime            lifetime after which an unfinished span is reported
+     * @param timeUnit               unit of the maximum lifetime
+     * @param creationSiteSampleRate fraction of spans, from 0 to 1, for which the creation site is captured
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> abandonedSpanDetection(
+            AbandonedSpanReceiver<T> receiver,
+            long maxLifetime,
+            TimeUnit timeUnit,
+            double creationSiteSampleRate) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (maxLifetime < 1L) {
+            throw new IllegalArgumentException("maxLifetime must be positive");
+        }
+        if (!(creationSiteSampleRate >= 0.0d && creationSiteSampleRate <= 1.0d)) {
+            throw new IllegalArgumentException("creationSiteSampleRate must be between 0 and 1");
+        }
+        this.abandonedSpanReceiver = Objects.requireNonNull(receiver, "receiver may not be null");
+        this.maxSpanLifetimeNanos = timeUnit.toNanos(maxLifetime);
+        this.creationSiteSampleRate = creationSiteSampleRate;
+        return this;
+    }
+
+    /**
+     * Configure the tracer to register the spans it starts with the provided registry until they are
+     * finished, allowing the spans running at any moment to be inspected.  Spans which are started while the
+     * registry is full are not registered.  When abandoned span detection is also configured, spans reported
+     * as unreachable are removed from the registry.  When not configured, running spans are not tracked.
+     *
+     * @param inFlightSpanRegistry registry instance
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> inFlightSpanRegistry(InFlightSpanRegistry<T> inFlightSpanRegistry) {
+        this.inFlightSpanRegistry = Objects.requireNonNull(
+                inFlightSpanRegistry, "inFlightSpanRegistry may not be null");
+        return this;
+    }
+
+    /**
+     * Configure a listener to be notified of each span as it is started.  Unlike a {@link SpanProcessor},
+     * the listener is notified only once the span has been created by the {@link SpanInitiator}.  When not
+     * configured, starting a span incurs no cost for the notification.
+     *
+     * @param spanStartedListener listener instance
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> spanStartedListener(SpanStartedListener<T> spanStartedListener) {
+        this.spanStartedListener = Objects.requireNonNull(
+                spanStartedListener, "spanStartedListener may not be null");
+        return this;
+    }
+
+    /**
+     * Configure the tracer to limit the number of spans, and their estimated size, recorded for each trace.
+     * The limits apply to the spans descending from each local root span, that is each span started without
+     * a parent or with a parent extracted from a remote process.  Once either limit has been reached, further
+     * spans of the trace are not recorded.  They are still given a context which propagates to their children
+     * and across process boundaries.  When the local root span finishes, the number of spans suppressed up to
+     * that point is added to it as the {@code suppressed_spans} tag.  When not configured, traces are not
+     * limited.
+     *
+     * @param maxSpans maximum number of spans recorded per trace, including the local root span
+     * @param maxBytes maximum estimated size of the spans recorded per trace, in bytes
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> traceBudget(long maxSpans, long maxBytes) {
+        if (maxSpans < 1L) {
+            throw new IllegalArgumentException("maxSpans must be positive");
+        }
+        if (maxBytes < 1L) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.traceBudgetLimits = new TraceBudget.Limits(maxSpans, maxBytes);
+        return this;
+    }
+
+    /**
+     * Configure limits on the tags and log events recorded for each span.  Tags and log events beyond the
+     * limits are dropped and overly long values truncated, with the number of each recorded in the span's
+     * {@link SpanData}.  When not configured, spans are not limited.
+     *
+     * @param spanLimits limits instance
+     * @return builder instance
+     * @see SpanLimitsBuilder
+     */
+    public BasicTracerBuilder<T> spanLimits(SpanLimits spanLimits) {
+        this.spanLimits = Objects.requireNonNull(spanLimits, "spanLimits may not be null");
+        return this;
+    }
+
+    /**
+     * Configure the tracer to intern the operation names and tag keys of its spans into the provided
+     * dictionary, so that spans share a single instance of each and exporters may dictionary-encode them.
+     * When not configured, strings are used as provided.
+     *
+     * @param stringDictionary dictionary instance
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> stringDictionary(StringDictionary stringDictionary) {
+        this.stringDictionary = Objects.requireNonNull(stringDictionary, "stringDictionary may not be null");
+        return this;
+    }
+
+    /**
+     * Configure the tracer to guard span operation names, and the values of the tags chosen when creating
+     * the limiter, against unbounded cardinality.  Values beyond the limiter's limit are replaced with
+     * {@link CardinalityLimiter#OVERFLOW_VALUE}.  When not configured, values are used as provided.
+     *
+     * @param cardinalityLimiter limiter instance
+     * @return builder instance
+     */
+    public BasicTracerBuilder<T> cardinalityLimiter(CardinalityLimiter cardinalityLimiter) {
+        this.cardinalityLimiter = Objects.requireNonNull(cardinalityLimiter, "cardinalityLimiter may not be null");
+        return this;
+    }
+
     /**
      * Register a {@link Formatter} instance which can be used to marshal and unmarshal the specified
      * {@link Format}.  The registered formatter will be used as needed by the
@@ -102,7 +312,9 @@ public final class BasicTracerBuilder<T> {
     }
 
     /**
-     * Create the tracer instance.
+     * Create the tracer instance.  The tracer implements {@link java.io.Closeable}.  Closing it stops any
+     * threads started on its behalf, delivering spans which are already queued, but spans should not be
+     * started or finished once it has been closed.
      *
      * @return tracer instance
      */
@@ -115,7 +327,46 @@ public final class BasicTracerBuilder<T> {
             spanInitiator = new SpanInitiatorImpl<>();
         }
 
-        return new BasicTracer<>(traceContextHandler, spanInitiator, receiver, scopeManager, formatters);
+        TracerMetrics metrics = (tracerMetrics == null) ? TracerMetrics.disabled() : tracerMetrics;
+        InFlightSpanRegistry<T> registry = (inFlightSpanRegistry == null)
+                ? InFlightSpanRegistry.<T>disabled()
+                : inFlightSpanRegistry;
+        AbandonedSpanTracker<T> abandonedSpanTracker = (abandonedSpanReceiver == null)
+                ? AbandonedSpanTracker.<T>disabled()
+                : new AbandonedSpanTracker<>(
+                        abandonedSpanReceiver, registry, maxSpanLifetimeNanos, creationSiteSampleRate);
+        SpanProcessorChain<T> processorChain = new SpanProcessorChain<>(spanProcessors);
+        SpanFinisher<T> spanFinisher;
+        AsyncFinishedSpanReceiver<T> asyncReceiver = null;
+        if (backpressurePolicy == null) {
+            spanFinisher = new SpanFinisher<>(
+                    receiver, processorChain, metrics, abandonedSpanTracker, registry);
+        } else {
+            asyncReceiver = new AsyncFinishedSpanReceiver<>(
+                    receiver, asyncQueueCapacity, backpressurePolicy, processorChain);
+            spanFinisher = new SpanFinisher<>(
+                    asyncReceiver, SpanProcessorChain.<T>empty(), metrics, abandonedSpanTracker, registry);
+            if (tracerMetrics != null) {
+                tracerMetrics.addBackpressurePolicy(backpressurePolicy);
+            }
+        }
+
+        return new BasicTracer<>(
+                traceContextHandler,
+                spanInitiator,
+                spanFinisher,
+                scopeManager,
+                formatters,
+                processorChain,
+                metrics,
+                traceBudgetLimits,
+                spanLimits,
+                (stringDictionary == null) ? StringDictionary.disabled() : stringDictionary,
+                (cardinalityLimiter == null) ? CardinalityLimiter.disabled() : cardinalityLimiter,
+                abandonedSpanTracker,
+                registry,
+                (spanStartedListener == null) ? NoopSpanStartedListener.<T>instance() : spanStartedListener,
+                asyncReceiver);
     }
 
     /**
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Compression algorithm applied to encoded span batches by a {@link CompressingSpanBatchSink}.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public abstract class BatchCompression {
+
+    BatchCompression() {
+        // Package-private to restrict implementations to those provided
+    }
+
+    /**
+     * Compress batches using deflate in the zlib format, as used by the {@code deflate} HTTP content
+     * encoding.
+     *
+     * @param level compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @return compression instance
+     */
+    public static BatchCompression deflate(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 1 and 9");
+        }
+        return new Deflate(level);
+    }
+
+    /**
+     * Compress batches using a fast LZ4 block compressor, which achieves a lower ratio than deflate at a
+     * fraction of the CPU cost.  Each compressed batch consists of the uncompressed length as a
+     * little-endian 32 bit integer followed by a single LZ4 block.
+     *
+     * @return compression instance
+     */
+    public static BatchCompression lz4() {
+        return new Lz4();
+    }
+
+    /**
+     * Get the name of the compression algorithm, suitable for use as a content encoding.
+     *
+     * @return algorithm name
+     */
+    public abstract String getName();
+
+    /**
+     * Create the state needed to compress batches.  Compressors are pooled and reused.
+     *
+     * @return compressor instance
+     */
+    abstract Compressor newCompressor();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Reusable compression state, including the output buffer.  Instances are not thread safe.
+     */
+    abstract static class Compressor {
+        private byte[] input = new byte[0];
+        byte[] output = new byte[0];
+
+        /**
+         * Compress the content of the input buffer.
+         *
+         * @param batch buffer containing the uncompressed batch between its position and limit
+         * @return buffer containing the compressed batch, only valid until the next use of this compressor
+         */
+        final ByteBuffer compress(ByteBuffer batch) {
+            int length = batch.remaining();
+            byte[] array;
+            int offset;
+            if (batch.hasArray()) {
+                array = batch.array();
+                offset = batch.arrayOffset() + batch.position();
+            } else {
+                if (input.length < length) {
+                    input = new byte[length];
+                }
+                batch.duplicate().get(input, 0, length);
+                array = input;
+                offset = 0;
+            }
+            int compressedLength = compress(array, offset, length);
+            return ByteBuffer.wrap(output, 0, compressedLength);
+        }
+
+        /**
+         * Compress input into {@link #output}, growing it as required.
+         *
+         * @return compressed length
+         */
+        abstract int compress(byte[] array, int offset, int length);
+
+        void ensureOutputCapacity(int capacity) {
+            if (output.length < capacity) {
+                output = Arrays.copyOf(output, Math.max(capacity, output.length * 2));
+            }
+        }
+
+        /**
+         * Release any native resources held.
+         */
+        void close() {
+        }
+    }
+
+    private static final class Deflate extends BatchCompression {
+        private final int level;
+
+        Deflate(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public String getName() {
+            return "deflate";
+        }
+
+        @Override
+        Compressor newCompressor() {
+            final Deflater deflater = new Deflater(level);
+            return new Compressor() {
+                @Override
+                int compress(byte[] array, int offset, int length) {
+                    deflater.reset();
+                    deflater.setInput(array, offset, length);
+                    deflater.finish();
+                    // Repetitive batches typically compress well, start from a quarter of the input
+                    ensureOutputCapacity(Math.max(64, length / 4));
+                    int compressedLength = 0;
+                    while (!deflater.finished()) {
+                        if (compressedLength == output.length) {
+                            ensureOutputCapacity(output.length * 2);
+                        }
+                        compressedLength += deflater.deflate(output, compressedLength, output.length - compressedLength);
+                    }
+                    return compressedLength;
+                }
+
+                @Override
+                void close() {
+                    deflater.end();
+                }
+            };
+        }
+    }
+
+    private static final class Lz4 extends BatchCompression {
+
+        @Override
+        public String getName() {
+            return "lz4";
+        }
+
+        @Override
+        Compressor newCompressor() {
+            final Lz4BlockCodec codec = new Lz4BlockCodec();
+            return new Compressor() {
+                @Override
+                int compress(byte[] array, int offset, int length) {
+                    ensureOutputCapacity(4 + Lz4BlockCodec.maxCompressedLength(length));
+                    output[0] = (byte) length;
+                    output[1] = (byte) (length >>> 8);
+                    output[2] = (byte) (length >>> 16);
+                    output[3] = (byte) (length >>> 24);
+                    return 4 + codec.compress(array, offset, length, output, 4);
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Callback used to observe the effectiveness and cost of batch compression.
+ *
+ * @see CompressingSpanBatchSink
+ */
+public interface BatchCompressionListener {
+
+    /**
+     * Called after each batch has been compressed, on the thread which compressed it.
+     *
+     * @param uncompressedSize size of the batch before compression, in bytes
+     * @param compressedSize   size of the batch after compression, in bytes
+     * @param cpuTimeNanos     CPU time spent compressing the batch, in nanoseconds.  Wall clock time is
+     *                         reported instead when the JVM does not support measuring thread CPU time.
+     */
+    void batchCompressed(int uncompressedSize, int compressedSize, long cpuTimeNanos);
+
+}
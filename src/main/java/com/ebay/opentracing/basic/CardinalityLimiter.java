@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Guard against unbounded cardinality in span operation names and the values of selected tags, such as
+ * when an identifier is placed in an operation name.  For each guarded key, the first distinct values seen,
+ * up to the configured maximum, are admitted and pass unchanged.  Further values are replaced with
+ * {@link #OVERFLOW_VALUE}.
+ * <p>
+ * The number of distinct values seen for each key, including those replaced, is estimated with a
+ * HyperLogLog sketch, so that the extent of a cardinality problem can be gauged without retaining the
+ * offending values.  Values already admitted are checked with a single lock-free lookup.  Only the first
+ * sighting of a value updates the sketch, using atomic operations rather than locks.
+ * <p>
+ * An instance is supplied to the tracer via {@link BasicTracerBuilder#cardinalityLimiter(CardinalityLimiter)}.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class CardinalityLimiter {
+    /**
+     * Value substituted for values beyond the cardinality limit.
+     */
+    public static final String OVERFLOW_VALUE = "__overflow__";
+
+    /**
+     * Key under which the cardinality of operation names is reported.
+     */
+    public static final String OPERATION_NAME_KEY = "__operation_name__";
+
+    private static final CardinalityLimiter DISABLED = new CardinalityLimiter();
+
+    // 2^8 registers, giving a standard error of about 6.5%
+    private static final int REGISTER_BITS = 8;
+    private static final int REGISTER_COUNT = 1 << REGISTER_BITS;
+    private static final double ALPHA = 0.7213d / (1.0d + 1.079d / REGISTER_COUNT);
+
+    private final boolean enabled;
+    private final int maxValuesPerKey;
+    @Nullable
+    private final KeyState operationNames;
+    private final Map<String, KeyState> tagKeys;
+
+    /**
+     * Create a limiter guarding operation names and the values of the tags provided.
+     *
+     * @param maxValuesPerKey maximum number of distinct values admitted per key
+     * @param tagKeys         keys of the tags whose values are to be guarded
+     */
+    public CardinalityLimiter(int maxValuesPerKey, Collection<String> tagKeys) {
+        if (maxValuesPerKey < 1) {
+            throw new IllegalArgumentException("maxValuesPerKey must be positive");
+        }
+        Objects.requireNonNull(tagKeys, "tagKeys may not be null");
+        this.enabled = true;
+        this.maxValuesPerKey = maxValuesPerKey;
+        this.operationNames = new KeyState();
+        Map<String, KeyState> states = new HashMap<>();
+        for (String tagKey : tagKeys) {
+            states.put(Objects.requireNonNull(tagKey, "tagKeys may not contain null"), new KeyState());
+        }
+        this.tagKeys = states;
+    }
+
+    private CardinalityLimiter() {
+        this.enabled = false;
+        this.maxValuesPerKey = 0;
+        this.operationNames = null;
+        this.tagKeys = Collections.emptyMap();
+    }
+
+    /**
+     * Get the limiter used when none has been configured, which guards nothing.
+     *
+     * @return disabled limiter
+     */
+    static CardinalityLimiter disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Get the number of values replaced with {@link #OVERFLOW_VALUE}, keyed by tag key or
+     * {@link #OPERATION_NAME_KEY}.
+     *
+     * @return overflow counts
+     */
+    public Map<String, Long> getOverflowCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        if (operationNames != null) {
+            counts.put(OPERATION_NAME_KEY, operationNames.overflowCount.sum());
+        }
+        for (Map.Entry<String, KeyState> entry : tagKeys.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().overflowCount.sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Get the estimated number of distinct values seen, including those replaced, keyed by tag key or
+     * {@link #OPERATION_NAME_KEY}.
+     *
+     * @return estimated cardinalities
+     */
+    public Map<String, Long> getEstimatedCardinalities() {
+        Map<String, Long> cardinalities = new HashMap<>();
+        if (operationNames != null) {
+            cardinalities.put(OPERATION_NAME_KEY, operationNames.estimate());
+        }
+        for (Map.Entry<String, KeyState> entry : tagKeys.entrySet()) {
+            cardinalities.put(entry.getKey(), entry.getValue().estimate());
+        }
+        return Collections.unmodifiableMap(cardinalities);
+    }
+
+    String limitOperationName(String operationName) {
+        return enabled ? limit(operationNames, operationName) : operationName;
+    }
+
+    @Nullable
+    String limitTag(String key, @Nullable String value) {
+        if (!enabled || value == null) {
+            return value;
+        }
+        KeyState state = tagKeys.get(key);
+        return (state == null) ? value : limit(state, value);
+    }
+
+    private String limit(KeyState state, String value) {
+        if (state.admitted.containsKey(value)) {
+            return value;
+        }
+
+        state.record(value);
+        AtomicInteger admittedCount = state.admittedCount;
+        if (admittedCount.get() < maxValuesPerKey && admittedCount.incrementAndGet() <= maxValuesPerKey) {
+            if (state.admitted.putIfAbsent(value, Boolean.TRUE) != null) {
+                admittedCount.decrementAndGet();
+            }
+            return value;
+        }
+        state.overflowCount.increment();
+        return OVERFLOW_VALUE;
+    }
+
+    static long hash(String value) {
+        // 64 bit FNV-1a, followed by the MurmurHash3 finalizer to spread the bits used by the sketch
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class KeyState {
+        private final ConcurrentMap<String, Boolean> admitted = new ConcurrentHashMap<>();
+        private final AtomicInteger admittedCount = new AtomicInteger();
+        private final AtomicIntegerArray registers = new AtomicIntegerArray(REGISTER_COUNT);
+        private final StripedCounter overflowCount = new StripedCounter();
+
+        private void record(String value) {
+            long hash = hash(value);
+            int index = (int) (hash >>> (64 - REGISTER_BITS));
+            int rank = Long.numberOfLeadingZeros((hash << REGISTER_BITS) | (1L << (REGISTER_BITS - 1))) + 1;
+            int current = registers.get(index);
+            while (rank > current && !registers.compareAndSet(index, current, rank)) {
+                current = registers.get(index);
+            }
+        }
+
+        private long estimate() {
+            double sum = 0.0d;
+            int zeros = 0;
+            for (int i = 0; i < REGISTER_COUNT; i++) {
+                int register = registers.get(i);
+                sum += 1.0d / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+            if (estimate <= 2.5d * REGISTER_COUNT && zeros > 0) {
+                // Linear counting is more accurate for small cardinalities
+                estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+            }
+            return Math.round(estimate);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.log.Fields;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} implementation which streams finished spans to a file in the Trace Event
+ * JSON format, which may be opened directly by {@code chrome://tracing} or Perfetto for offline analysis of
+ * load tests and the like.
+ * <p>
+ * Each span is written as a complete ({@code "X"}) event carrying the trace and span IDs and the span's tags
+ * as arguments, followed by an instant ({@code "i"}) event for each of its log events.  Tags named
+ * {@code traceId} or {@code spanId} are omitted so that the arguments never contain duplicate keys.  Events
+ * are attributed to the thread which finished the span, with a thread name metadata event written the first
+ * time each thread is seen.  This receiver should therefore be invoked synchronously rather than via
+ * {@link BasicTracerBuilder#asyncDelivery(int, BackpressurePolicy)}.
+ * <p>
+ * Events are encoded into a buffer which is written to the file whenever it exceeds the flush threshold,
+ * so memory use does not grow with the number of spans.  The array of events is terminated on
+ * {@link #close()}; both tools also accept the unterminated file left behind if the process dies.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class ChromeTraceSpanReceiver<T> implements FinishedSpanReceiver<T>, Closeable {
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final String TRACE_ID_ARG = "traceId";
+    private static final String SPAN_ID_ARG = "spanId";
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final FileChannel channel;
+    private final JsonWriter writer = new JsonWriter(2 * FLUSH_THRESHOLD);
+    private final long processId;
+    private final Set<Long> threadIds = new HashSet<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Object lock = new Object();
+
+    private boolean closed;
+
+    /**
+     * Create a receiver writing to the file provided, replacing any existing content.
+     *
+     * @param file           trace file
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param processName    name under which the process' events are displayed
+     * @throws IOException if the file could not be created
+     */
+    public ChromeTraceSpanReceiver(Path file, SpanIdAccessor<T> spanIdAccessor, String processName)
+            throws IOException {
+        Objects.requireNonNull(file, "file may not be null");
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        Objects.requireNonNull(processName, "processName may not be null");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.processId = processId();
+
+        writer.writeRaw("[{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":").writeLong(processId);
+        writer.writeRaw(",\"args\":{\"name\":").writeString(processName).writeRaw("}}");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        Thread thread = Thread.currentThread();
+        synchronized (lock) {
+            if (closed) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            if (threadIds.add(thread.getId())) {
+                writeThreadName(thread);
+            }
+            writeSpan(spanData, thread.getId());
+            if (writer.toByteBuffer().remaining() >= FLUSH_THRESHOLD) {
+                try {
+                    writeBuffered();
+                } catch (IOException e) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of spans which could not be written, either because the receiver had been closed or
+     * because a write to the file failed.  A failed write may also lose other spans buffered with it.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Write all buffered events to the file.
+     *
+     * @throws IOException if the write failed
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            if (!closed) {
+                writeBuffered();
+            }
+        }
+    }
+
+    /**
+     * Terminate the array of events, write all buffered events and close the file.
+     *
+     * @throws IOException if the write failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writer.writeRaw("]\n");
+                writeBuffered();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void writeThreadName(Thread thread) {
+        writer.writeRaw(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").writeLong(processId);
+        writer.writeRaw(",\"tid\":").writeLong(thread.getId());
+        writer.writeRaw(",\"args\":{\"name\":").writeString(thread.getName()).writeRaw("}}");
+    }
+
+    private void writeSpan(SpanData<T> spanData, long threadId) {
+        T traceContext = spanData.getSpanContext().getTraceContext();
+        long startMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+        writer.writeRaw(",\n{\"name\":").writeString(spanData.getOperationName());
+        writer.writeRaw(",\"cat\":\"span\",\"ph\":\"X\",\"ts\":").writeLong(startMicros);
+        writer.writeRaw(",\"dur\":").writeLong(spanData.getFinishTime(TimeUnit.MICROSECONDS) - startMicros);
+        writer.writeRaw(",\"pid\":").writeLong(processId).writeRaw(",\"tid\":").writeLong(threadId);
+        writer.writeRaw(",\"args\":{").writeString(TRACE_ID_ARG).writeByte(':')
+                .writeString(spanIdAccessor.getTraceId(traceContext));
+        writer.writeByte(',').writeString(SPAN_ID_ARG).writeByte(':')
+                .writeString(spanIdAccessor.getSpanId(traceContext));
+        for (Map.Entry<String, String> tag : spanData.getTags().entrySet()) {
+            // Viewers resolve duplicate keys unpredictably, so the IDs take precedence over tags of the same name
+            if (tag.getValue() != null && !TRACE_ID_ARG.equals(tag.getKey()) && !SPAN_ID_ARG.equals(tag.getKey())) {
+                writer.writeByte(',').writeString(tag.getKey()).writeByte(':').writeString(tag.getValue());
+            }
+        }
+        writer.writeRaw("}}");
+
+        List<LogEvent> logEvents = spanData.getLogEvents();
+        for (int i = 0; i < logEvents.size(); i++) {
+            LogEvent logEvent = logEvents.get(i);
+            String payload = String.valueOf(logEvent.getPayload());
+            boolean event = Fields.EVENT.equals(logEvent.getEventName());
+            writer.writeRaw(",\n{\"name\":").writeString(event ? payload : logEvent.getEventName());
+            writer.writeRaw(",\"cat\":\"log\",\"ph\":\"i\",\"s\":\"t\",\"ts\":")
+                    .writeLong(logEvent.getTimeStamp(TimeUnit.MICROSECONDS));
+            writer.writeRaw(",\"pid\":").writeLong(processId).writeRaw(",\"tid\":").writeLong(threadId);
+            if (!event) {
+                writer.writeRaw(",\"args\":{").writeString(logEvent.getEventName()).writeByte(':')
+                        .writeString(payload).writeByte('}');
+            }
+            writer.writeByte('}');
+        }
+    }
+
+    private void writeBuffered() throws IOException {
+        ByteBuffer buffer = writer.toByteBuffer();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            writer.reset();
+        }
+    }
+
+    private static long processId() {
+        // Of the form "pid@host" on all common JVMs
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        try {
+            return Long.parseLong((at < 0) ? name : name.substring(0, at));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SpanBatchSink} which compresses each batch before sending it on to a delegate sink.  Compressors
+ * and their output buffers are pooled, so steady state compression allocates nothing.  The compression
+ * ratio and CPU cost are tracked in aggregate and may be observed per batch via a
+ * {@link BatchCompressionListener}, allowing the benefit to be assessed for each deployment.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class CompressingSpanBatchSink implements SpanBatchSink, Closeable {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final SpanBatchSink delegate;
+    private final BatchCompression compression;
+    @Nullable
+    private final BatchCompressionListener listener;
+    private final boolean cpuTimeSupported;
+    private final Queue<BatchCompression.Compressor> compressors = new ConcurrentLinkedQueue<>();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong cpuTimeNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Create a sink which compresses batches before sending them to the delegate.
+     *
+     * @param delegate    sink to send compressed batches to
+     * @param compression compression algorithm
+     */
+    public CompressingSpanBatchSink(SpanBatchSink delegate, BatchCompression compression) {
+        this(delegate, compression, null);
+    }
+
+    /**
+     * Create a sink which compresses batches before sending them to the delegate, reporting the outcome of
+     * each compression to the listener.
+     *
+     * @param delegate    sink to send compressed batches to
+     * @param compression compression algorithm
+     * @param listener    listener to notify after each batch is compressed
+     */
+    public CompressingSpanBatchSink(
+            SpanBatchSink delegate,
+            BatchCompression compression,
+            @Nullable BatchCompressionListener listener) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate may not be null");
+        this.compression = Objects.requireNonNull(compression, "compression may not be null");
+        this.listener = listener;
+        this.cpuTimeSupported = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+                && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(ByteBuffer batch) throws IOException {
+        BatchCompression.Compressor compressor = compressors.poll();
+        if (compressor == null) {
+            compressor = compression.newCompressor();
+        }
+        try {
+            int uncompressedSize = batch.remaining();
+            long start = now();
+            ByteBuffer compressed = compressor.compress(batch);
+            long elapsed = now() - start;
+            int compressedSize = compressed.remaining();
+
+            uncompressedBytes.addAndGet(uncompressedSize);
+            compressedBytes.addAndGet(compressedSize);
+            cpuTimeNanos.addAndGet(elapsed);
+            if (listener != null) {
+                listener.batchCompressed(uncompressedSize, compressedSize, elapsed);
+            }
+
+            delegate.send(compressed);
+        } finally {
+            release(compressor);
+        }
+    }
+
+    /**
+     * Get the compression algorithm applied by this sink.
+     *
+     * @return compression instance
+     */
+    public BatchCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the total size of all batches prior to compression.
+     *
+     * @return uncompressed size, in bytes
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * Get the total size of all batches after compression.
+     *
+     * @return compressed size, in bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Get the overall compression ratio, being the uncompressed size divided by the compressed size.
+     *
+     * @return compression ratio, or zero if no batches have been compressed
+     */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.get();
+        return (compressed == 0L) ? 0.0d : (double) uncompressedBytes.get() / compressed;
+    }
+
+    /**
+     * Get the total CPU time spent compressing batches.
+     *
+     * @return CPU time, in nanoseconds
+     * @see BatchCompressionListener#batchCompressed(int, int, long)
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos.get();
+    }
+
+    /**
+     * Release the resources held by pooled compressors.  Batches sent after close are still compressed,
+     * but their compressors are not pooled.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        BatchCompression.Compressor compressor;
+        while ((compressor = compressors.poll()) != null) {
+            compressor.close();
+        }
+    }
+
+    private void release(BatchCompression.Compressor compressor) {
+        if (closed) {
+            compressor.close();
+            return;
+        }
+        compressors.offer(compressor);
+        if (closed && compressors.remove(compressor)) {
+            // Raced with close
+            compressor.close();
+        }
+    }
+
+    private long now() {
+        return cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * {@link FinishedSpanReceiver} which delivers each finished span to multiple sinks.  Every sink is serviced
+ * by its own queue, delivery thread and {@link BackpressurePolicy} such that a slow sink does not stall the
+ * others.  A single immutable snapshot of each span is taken and shared by all of the sinks.
+ * <p>
+ * Instances are created via the {@link FanOutFinishedSpanReceiverBuilder}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class FanOutFinishedSpanReceiver<T> implements FinishedSpanReceiver<T>, Closeable {
+    private final List<AsyncFinishedSpanReceiver<T>> sinks;
+
+    FanOutFinishedSpanReceiver(List<AsyncFinishedSpanReceiver<T>> sinks) {
+        this.sinks = sinks;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        SpanDataSnapshot<T> snapshot = SpanDataSnapshot.of(spanData);
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).spanFinished(snapshot);
+        }
+    }
+
+    /**
+     * Get the asynchronous receivers servicing each sink, in the order in which the sinks were added.  These
+     * expose the queue depth and backpressure counters of the individual sinks.
+     *
+     * @return unmodifiable list of sink receivers
+     */
+    public List<AsyncFinishedSpanReceiver<T>> getSinks() {
+        return sinks;
+    }
+
+    /**
+     * Close all sinks, delivering any spans which are already queued.
+     */
+    @Override
+    public void close() {
+        for (AsyncFinishedSpanReceiver<T> sink : sinks) {
+            sink.close();
+        }
+    }
+
+}
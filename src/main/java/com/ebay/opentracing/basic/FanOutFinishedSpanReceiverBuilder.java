@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builder for creating instances of {@link FanOutFinishedSpanReceiver}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class FanOutFinishedSpanReceiverBuilder<T> {
+    private final List<SinkConfig<T>> sinkConfigs = new ArrayList<>(4);
+
+    /**
+     * Add a sink to deliver finished spans to.  Each sink is given its own delivery queue and thread.
+     *
+     * @param sink               receiver to deliver finished spans to
+     * @param queueCapacity      maximum number of spans awaiting delivery to this sink
+     * @param backpressurePolicy policy to apply when this sink's queue is full.  Policy instances may not be
+     *                           shared between sinks.
+     * @return builder instance
+     */
+    public FanOutFinishedSpanReceiverBuilder<T> addSink(
+            FinishedSpanReceiver<T> sink,
+            int queueCapacity,
+            BackpressurePolicy backpressurePolicy) {
+        Objects.requireNonNull(sink, "sink may not be null");
+        Objects.requireNonNull(backpressurePolicy, "backpressurePolicy may not be null");
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        for (SinkConfig<T> sinkConfig : sinkConfigs) {
+            if (sinkConfig.backpressurePolicy == backpressurePolicy) {
+                throw new IllegalArgumentException("backpressurePolicy instances may not be shared between sinks");
+            }
+        }
+        sinkConfigs.add(new SinkConfig<>(sink, queueCapacity, backpressurePolicy));
+        return this;
+    }
+
+    /**
+     * Create the receiver instance, starting the delivery threads of all sinks.
+     *
+     * @return receiver instance
+     */
+    public FanOutFinishedSpanReceiver<T> build() {
+        if (sinkConfigs.isEmpty()) {
+            throw new IllegalStateException("At least one sink must be added");
+        }
+
+        List<AsyncFinishedSpanReceiver<T>> sinks = new ArrayList<>(sinkConfigs.size());
+        for (SinkConfig<T> sinkConfig : sinkConfigs) {
+            sinks.add(new AsyncFinishedSpanReceiver<>(
+                    sinkConfig.sink, sinkConfig.queueCapacity, sinkConfig.backpressurePolicy));
+        }
+        return new FanOutFinishedSpanReceiver<>(Collections.unmodifiableList(sinks));
+    }
+
+    private static final class SinkConfig<T> {
+        private final FinishedSpanReceiver<T> sink;
+        private final int queueCapacity;
+        private final BackpressurePolicy backpressurePolicy;
+
+        SinkConfig(FinishedSpanReceiver<T> sink, int queueCapacity, BackpressurePolicy backpressurePolicy) {
+            this.sink = sink;
+            this.queueCapacity = queueCapacity;
+            this.backpressurePolicy = backpressurePolicy;
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FinishedSpanReceiver} implementation which records each finished span as a JDK Flight Recorder
+ * event, allowing traces to be correlated with the CPU, GC and lock events captured in the same recording.
+ * Events are committed on the thread which finished the span, using Flight Recorder's own thread-local
+ * buffering.
+ * <p>
+ * Each event carries the operation name, trace and span IDs, the span's start time and duration, and the
+ * value of each of the selected tags.  Since the span duration is recorded as an event field rather than
+ * as the event's own duration, Flight Recorder threshold settings do not apply to these events.
+ * <p>
+ * Flight Recorder is accessed reflectively so that this library continues to run on JVMs which do not
+ * provide it.  Use {@link #isAvailable()} to determine whether this receiver can be used.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class FlightRecorderSpanReceiver<T> implements FinishedSpanReceiver<T>, Closeable {
+    /**
+     * Event name used when one is not specified.
+     */
+    public static final String DEFAULT_EVENT_NAME = "com.ebay.opentracing.Span";
+
+    private static final String JFR_PACKAGE = "jdk.jfr.";
+    private static final int FIXED_FIELD_COUNT = 5;
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final String[] tagKeys;
+    private final Object eventFactory;
+    private final Method newEvent;
+    private final Method isEnabled;
+    private final Method set;
+    private final Method commit;
+    private final Method unregister;
+
+    /**
+     * Create a receiver which records events using the default event name.
+     *
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param tagKeys        keys of the tags to record on each event
+     * @throws UnsupportedOperationException if Flight Recorder is not available
+     */
+    public FlightRecorderSpanReceiver(SpanIdAccessor<T> spanIdAccessor, List<String> tagKeys) {
+        this(DEFAULT_EVENT_NAME, spanIdAccessor, tagKeys);
+    }
+
+    /**
+     * Create a receiver which records events using the provided event name.
+     *
+     * @param eventName      Flight Recorder event type name
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param tagKeys        keys of the tags to record on each event
+     * @throws UnsupportedOperationException if Flight Recorder is not available
+     */
+    public FlightRecorderSpanReceiver(String eventName, SpanIdAccessor<T> spanIdAccessor, List<String> tagKeys) {
+        Objects.requireNonNull(eventName, "eventName may not be null");
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        Objects.requireNonNull(tagKeys, "tagKeys may not be null");
+        this.tagKeys = tagKeys.toArray(new String[tagKeys.size()]);
+
+        try {
+            Class<?> eventFactoryClass = Class.forName(JFR_PACKAGE + "EventFactory");
+            Class<?> eventClass = Class.forName(JFR_PACKAGE + "Event");
+            Class<?> valueDescriptorClass = Class.forName(JFR_PACKAGE + "ValueDescriptor");
+            Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+
+            List<Object> eventAnnotations = new ArrayList<>(4);
+            eventAnnotations.add(annotation("Name", eventName));
+            eventAnnotations.add(annotation("Label", "Span"));
+            eventAnnotations.add(annotation("Category", new String[]{"OpenTracing"}));
+            eventAnnotations.add(annotation("StackTrace", Boolean.FALSE));
+
+            List<Object> fields = new ArrayList<>(FIXED_FIELD_COUNT + this.tagKeys.length);
+            fields.add(valueDescriptor.newInstance(String.class, "operationName",
+                    Collections.singletonList(annotation("Label", "Operation Name"))));
+            fields.add(valueDescriptor.newInstance(String.class, "traceId",
+                    Collections.singletonList(annotation("Label", "Trace ID"))));
+            fields.add(valueDescriptor.newInstance(String.class, "spanId",
+                    Collections.singletonList(annotation("Label", "Span ID"))));
+            fields.add(valueDescriptor.newInstance(long.class, "spanStartTime", listOf(
+                    annotation("Label", "Span Start Time"),
+                    annotation("Timestamp", "MILLISECONDS_SINCE_EPOCH"))));
+            fields.add(valueDescriptor.newInstance(long.class, "spanDuration", listOf(
+                    annotation("Label", "Span Duration"),
+                    annotation("Timespan", "MICROSECONDS"))));
+
+            Set<String> fieldNames = new HashSet<>();
+            for (String tagKey : this.tagKeys) {
+                String fieldName = fieldName(tagKey);
+                if (!fieldNames.add(fieldName)) {
+                    throw new IllegalArgumentException("Tag keys map to the same event field: " + fieldName);
+                }
+                fields.add(valueDescriptor.newInstance(String.class, fieldName,
+                        Collections.singletonList(annotation("Label", tagKey))));
+            }
+
+            Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+            eventFactory = create.invoke(null, eventAnnotations, fields);
+            newEvent = eventFactoryClass.getMethod("newEvent");
+            unregister = eventFactoryClass.getMethod("unregister");
+            isEnabled = eventClass.getMethod("isEnabled");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            commit = eventClass.getMethod("commit");
+        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Flight Recorder is not available", e);
+        } catch (InvocationTargetException e) {
+            throw new UnsupportedOperationException("Unable to create Flight Recorder event type", e.getCause());
+        }
+    }
+
+    /**
+     * Determine whether Flight Recorder is available in the running JVM.
+     *
+     * @return {@code true} if available
+     */
+    public static boolean isAvailable() {
+        try {
+            Class<?> flightRecorderClass = Class.forName(JFR_PACKAGE + "FlightRecorder");
+            return (Boolean) flightRecorderClass.getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        try {
+            Object event = newEvent.invoke(eventFactory);
+            if (!((Boolean) isEnabled.invoke(event))) {
+                return;
+            }
+
+            T traceContext = spanData.getSpanContext().getTraceContext();
+            long startMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+            set.invoke(event, 0, spanData.getOperationName());
+            set.invoke(event, 1, spanIdAccessor.getTraceId(traceContext));
+            set.invoke(event, 2, spanIdAccessor.getSpanId(traceContext));
+            set.invoke(event, 3, TimeUnit.MICROSECONDS.toMillis(startMicros));
+            set.invoke(event, 4, spanData.getFinishTime(TimeUnit.MICROSECONDS) - startMicros);
+
+            if (tagKeys.length > 0) {
+                Map<String, String> tags = spanData.getTags();
+                for (int i = 0; i < tagKeys.length; i++) {
+                    set.invoke(event, FIXED_FIELD_COUNT + i, tags.get(tagKeys[i]));
+                }
+            }
+            commit.invoke(event);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to record Flight Recorder event", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to record Flight Recorder event", e.getCause());
+        }
+    }
+
+    /**
+     * Unregister the event type from Flight Recorder.  No further events will be recorded.
+     */
+    @Override
+    public void close() {
+        try {
+            unregister.invoke(eventFactory);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to unregister Flight Recorder event type", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Unable to unregister Flight Recorder event type", e.getCause());
+        }
+    }
+
+    private static Object annotation(String simpleName, Object value) throws ClassNotFoundException,
+            NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
+        Class<? extends Annotation> annotationType = Class.forName(JFR_PACKAGE + simpleName)
+                .asSubclass(Annotation.class);
+        Class<?> annotationElementClass = Class.forName(JFR_PACKAGE + "AnnotationElement");
+        Constructor<?> constructor = annotationElementClass.getConstructor(Class.class, Object.class);
+        return constructor.newInstance(annotationType, value);
+    }
+
+    private static List<Object> listOf(Object first, Object second) {
+        List<Object> list = new ArrayList<>(2);
+        list.add(first);
+        list.add(second);
+        return list;
+    }
+
+    /**
+     * Convert a tag key into a valid event field name.
+     *
+     * @param tagKey tag key
+     * @return field name
+     */
+    static String fieldName(String tagKey) {
+        StringBuilder builder = new StringBuilder(tagKey.length() + 4).append("tag_");
+        for (int i = 0; i < tagKey.length(); i++) {
+            char c = tagKey.charAt(i);
+            builder.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return builder.toString();
+    }
+
+}
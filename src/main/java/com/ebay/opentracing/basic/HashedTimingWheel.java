@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.List;
+
+/**
+ * Hashed timing wheel, tracking large numbers of timeouts at a fixed tick granularity.  Each timeout is held
+ * in a doubly linked list in the bucket for its deadline tick modulo the wheel size, so that scheduling,
+ * rescheduling and cancellation are constant time and each tick only visits the timeouts in one bucket.
+ * Timeouts further away than one revolution of the wheel remain in their bucket until their deadline tick
+ * is reached.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @param <E> type of the item associated with each timeout
+ */
+final class HashedTimingWheel<E> {
+    private final Timeout<E>[] buckets;
+    private final int mask;
+    private long currentTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    HashedTimingWheel(int wheelSize) {
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a positive power of two");
+        }
+        buckets = new Timeout[wheelSize];
+        mask = wheelSize - 1;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Schedule a timeout.  A deadline which has already passed expires on the next tick.
+     *
+     * @param item         item to associate with the timeout
+     * @param deadlineTick tick at which the timeout expires
+     * @return timeout handle
+     */
+    Timeout<E> schedule(E item, long deadlineTick) {
+        Timeout<E> timeout = new Timeout<>(item);
+        link(timeout, deadlineTick);
+        return timeout;
+    }
+
+    void reschedule(Timeout<E> timeout, long deadlineTick) {
+        unlink(timeout);
+        link(timeout, deadlineTick);
+    }
+
+    void cancel(Timeout<E> timeout) {
+        unlink(timeout);
+    }
+
+    /**
+     * Advance the wheel, removing the timeouts which expire.
+     *
+     * @param tick    tick to advance to
+     * @param expired list to which the items of expired timeouts are added
+     */
+    void advance(long tick, List<E> expired) {
+        // Once a whole revolution is due every bucket is visited, so no further ticks need be
+        long from = Math.max(currentTick + 1L, tick - mask);
+        for (long t = from; t <= tick; t++) {
+            Timeout<E> timeout = buckets[(int) (t & mask)];
+            while (timeout != null) {
+                Timeout<E> next = timeout.next;
+                if (timeout.deadlineTick <= tick) {
+                    unlink(timeout);
+                    expired.add(timeout.item);
+                }
+                timeout = next;
+            }
+        }
+        currentTick = Math.max(currentTick, tick);
+    }
+
+    private void link(Timeout<E> timeout, long deadlineTick) {
+        timeout.deadlineTick = Math.max(deadlineTick, currentTick + 1L);
+        int bucket = (int) (timeout.deadlineTick & mask);
+        timeout.bucket = bucket;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout<E> timeout) {
+        if (timeout.bucket < 0) {
+            return;
+        }
+        if (timeout.prev == null) {
+            buckets[timeout.bucket] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    static final class Timeout<E> {
+        private final E item;
+        private long deadlineTick;
+        private int bucket = -1;
+        private Timeout<E> prev;
+        private Timeout<E> next;
+
+        private Timeout(E item) {
+            this.item = item;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of a latency histogram.  Values are recorded with microsecond resolution and reported
+ * with a relative error of at most 12.5%.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sumMicros;
+
+    HistogramSnapshot(long[] counts, long sumMicros) {
+        this.counts = counts;
+        this.sumMicros = sumMicros;
+        long total = 0L;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return value count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of all values recorded.
+     *
+     * @param timeUnit time unit that the result should be returned in
+     * @return sum of values
+     */
+    public long getSum(TimeUnit timeUnit) {
+        return timeUnit.convert(sumMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Get the largest value recorded, to within the precision of the histogram.
+     *
+     * @param timeUnit time unit that the result should be returned in
+     * @return maximum value, or zero if no values were recorded
+     */
+    public long getMax(TimeUnit timeUnit) {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0L) {
+                return timeUnit.convert(LatencyHistogram.bucketUpperBound(i), TimeUnit.MICROSECONDS);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Get the value below which the specified percentage of recorded values fall, to within the precision
+     * of the histogram.
+     *
+     * @param percentile percentile in the range {@code [0, 100]}
+     * @param timeUnit   time unit that the result should be returned in
+     * @return value at the percentile, or zero if no values were recorded
+     */
+    public long getValueAtPercentile(double percentile, TimeUnit timeUnit) {
+        if (percentile < 0.0d || percentile > 100.0d) {
+            throw new IllegalArgumentException("percentile must be in the range [0, 100]");
+        }
+        long target = Math.max(1L, (long) Math.ceil(count * percentile / 100.0d));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return timeUnit.convert(LatencyHistogram.bucketUpperBound(i), TimeUnit.MICROSECONDS);
+            }
+        }
+        return 0L;
+    }
+
+}
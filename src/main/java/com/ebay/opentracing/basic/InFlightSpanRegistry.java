@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the spans which have been started but not yet finished, allowing the running spans of a
+ * process to be inspected, for example when diagnosing a process which has stopped making progress.
+ * <p>
+ * Running spans are held in a set of concurrent sets, the stripe being chosen by the identity hash code of
+ * the span's data, so that registering and deregistering a span costs an uncontended hash table insert and
+ * removal.  Snapshots iterate the stripes without blocking the registration of spans, and so may omit or
+ * include spans started or finished during the snapshot.
+ * <p>
+ * The registry holds at most a fixed number of spans, so that spans which are never finished cannot grow it
+ * without bound.  Spans started while it is full are not registered, and are counted instead.  When
+ * abandoned span detection is also configured, spans reported as unreachable are removed from the registry.
+ * <p>
+ * An instance is supplied to the tracer via {@link BasicTracerBuilder#inFlightSpanRegistry(InFlightSpanRegistry)}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class InFlightSpanRegistry<T> {
+    private static final InFlightSpanRegistry<?> DISABLED = new InFlightSpanRegistry<>(false);
+    private static final int STRIPE_COUNT = 16;
+    private static final int DEFAULT_MAX_SPANS = 100000;
+
+    private final boolean enabled;
+    private final int maxSpans;
+    private final List<Set<MutableSpanData<T>>> stripes;
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Create a new registry holding up to 100,000 running spans.
+     */
+    public InFlightSpanRegistry() {
+        this(DEFAULT_MAX_SPANS);
+    }
+
+    /**
+     * Create a new registry.
+     *
+     * @param maxSpans maximum number of running spans held
+     */
+    public InFlightSpanRegistry(int maxSpans) {
+        if (maxSpans < 1) {
+            throw new IllegalArgumentException("maxSpans must be positive");
+        }
+        this.enabled = true;
+        this.maxSpans = maxSpans;
+        this.stripes = new ArrayList<>(STRIPE_COUNT);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes.add(Collections.newSetFromMap(new ConcurrentHashMap<MutableSpanData<T>, Boolean>()));
+        }
+    }
+
+    private InFlightSpanRegistry(boolean enabled) {
+        this.enabled = enabled;
+        this.maxSpans = 0;
+        this.stripes = new ArrayList<>(0);
+    }
+
+    /**
+     * Get the registry used when none has been configured, which records nothing.
+     *
+     * @param <T> trace context type
+     * @return disabled registry
+     */
+    @SuppressWarnings("unchecked")
+    static <T> InFlightSpanRegistry<T> disabled() {
+        return (InFlightSpanRegistry<T>) DISABLED;
+    }
+
+    /**
+     * Get the number of spans currently running.
+     *
+     * @return running span count
+     */
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    /**
+     * Get the number of spans which were not registered because the registry was full.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Take a snapshot of the running spans, grouped by operation name.
+     *
+     * @return snapshots, one per operation with running spans, in decreasing order of running span count
+     */
+    public List<RunningOperationSnapshot<T>> snapshot() {
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        Map<String, Operation<T>> operations = new HashMap<>();
+        for (Set<MutableSpanData<T>> stripe : stripes) {
+            for (MutableSpanData<T> spanData : stripe) {
+                String operationName = spanData.getOperationName();
+                Operation<T> operation = operations.get(operationName);
+                if (operation == null) {
+                    operation = new Operation<>();
+                    operations.put(operationName, operation);
+                }
+                long startMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+                operation.ages.record(Math.max(0L, nowMicros - startMicros));
+                if (operation.oldest == null || startMicros < operation.oldestStartMicros) {
+                    operation.oldest = spanData;
+                    operation.oldestStartMicros = startMicros;
+                }
+            }
+        }
+
+        List<RunningOperationSnapshot<T>> snapshots = new ArrayList<>(operations.size());
+        for (Map.Entry<String, Operation<T>> entry : operations.entrySet()) {
+            Operation<T> operation = entry.getValue();
+            snapshots.add(new RunningOperationSnapshot<>(
+                    entry.getKey(),
+                    operation.ages.snapshotAndReset(),
+                    SpanDataSnapshot.unfinished(operation.oldest, nowMicros)));
+        }
+        Collections.sort(snapshots, RunningOperationSnapshot.COUNT_ORDER);
+        return snapshots;
+    }
+
+    void spanStarted(MutableSpanData<T> spanData) {
+        if (!enabled) {
+            return;
+        }
+        if (runningCount.incrementAndGet() > maxSpans) {
+            runningCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+        stripe(spanData).add(spanData);
+    }
+
+    void spanFinished(MutableSpanData<T> spanData) {
+        if (enabled && stripe(spanData).remove(spanData)) {
+            runningCount.decrementAndGet();
+        }
+    }
+
+    private Set<MutableSpanData<T>> stripe(MutableSpanData<T> spanData) {
+        int hash = System.identityHashCode(spanData);
+        return stripes.get((hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1));
+    }
+
+    private static final class Operation<T> {
+        private final LatencyHistogram ages = new LatencyHistogram();
+        private MutableSpanData<T> oldest;
+        private long oldestStartMicros;
+    }
+
+}
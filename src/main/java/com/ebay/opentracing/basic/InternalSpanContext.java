@@ -16,9 +16,12 @@
 
 package com.ebay.opentracing.basic;
 
+import io.opentracing.References;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 
+import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -36,6 +39,25 @@ public final class InternalSpanContext<T> implements SpanContext {
     private final T traceContext;
     private AtomicReference<Baggage> baggageRef;
 
+    /**
+     * Budget of the trace to which the span belongs, when trace budgets are enabled.  Set before the context
+     * is published by the span builder.
+     */
+    @Nullable
+    TraceBudget traceBudget;
+
+    /**
+     * Whether the span was started by this tracer, rather than extracted from a carrier.  Set before the
+     * context is published by the span builder.
+     */
+    boolean local;
+
+    /**
+     * Whether the span is the local root of its trace, being started by this tracer without a parent which was
+     * also started by this tracer.  Set before the context is published by the span builder.
+     */
+    boolean localRoot;
+
     public InternalSpanContext(T traceContext, Baggage baggage) {
         this.traceContext = traceContext;
         this.baggageRef = new AtomicReference<>(baggage);
@@ -59,6 +81,23 @@ public final class InternalSpanContext<T> implements SpanContext {
         return "SpanContext{" + traceContext + "}";
     }
 
+    /**
+     * Find the parent defining the trace to which a span belongs, being the first child-of reference, or the
+     * first follows-from reference if there are no child-of references.
+     *
+     * @param references span references, keyed by reference type
+     * @param <T>        trace context type
+     * @return parent context, or null if the span has no references
+     */
+    @Nullable
+    static <T> InternalSpanContext<T> traceParent(Map<String, List<InternalSpanContext<T>>> references) {
+        List<InternalSpanContext<T>> parents = references.get(References.CHILD_OF);
+        if (parents == null || parents.isEmpty()) {
+            parents = references.get(References.FOLLOWS_FROM);
+        }
+        return (parents == null || parents.isEmpty()) ? null : parents.get(0);
+    }
+
     void setBaggageItem(String key, String value) {
         boolean success;
         do {
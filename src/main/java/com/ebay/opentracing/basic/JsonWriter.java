@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal streaming JSON writer which writes UTF-8 directly into a reusable, growable byte buffer.
+ * Structure is the caller's responsibility; this class only takes care of encoding values.
+ */
+final class JsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private ByteBuffer buffer;
+
+    JsonWriter(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Discard any content written so far.
+     */
+    void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Get the content written so far.  The buffer returned is only valid until the next write or reset.
+     *
+     * @return buffer containing the content between its position and limit
+     */
+    ByteBuffer toByteBuffer() {
+        ByteBuffer result = buffer.duplicate();
+        result.flip();
+        return result;
+    }
+
+    JsonWriter writeByte(char c) {
+        ensureCapacity(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    /**
+     * Write a string which is known to consist only of ASCII characters requiring no escaping, such as
+     * punctuation and field names, verbatim.
+     *
+     * @param ascii string to write
+     * @return this writer
+     */
+    JsonWriter writeRaw(String ascii) {
+        int length = ascii.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) ascii.charAt(i));
+        }
+        return this;
+    }
+
+    JsonWriter writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            ensureCapacity(MIN_LONG.length);
+            buffer.put(MIN_LONG);
+            return this;
+        }
+        ensureCapacity(20);
+        if (value < 0L) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + (value % 10L)));
+            value /= 10L;
+        } while (value != 0L);
+        // Digits were written least significant first
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+        return this;
+    }
+
+    /**
+     * Write a quoted string value, escaping as required.
+     *
+     * @param value string to write, or {@code null} to write a JSON null
+     * @return this writer
+     */
+    JsonWriter writeString(CharSequence value) {
+        if (value == null) {
+            return writeRaw("null");
+        }
+
+        int length = value.length();
+        // Worst case is six bytes per character when escaped
+        ensureCapacity(length * 6 + 2);
+        buffer.put((byte) '"');
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAscii(c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates cannot be represented in UTF-8
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.put((byte) '"');
+        return this;
+    }
+
+    private void writeAscii(char c) {
+        switch (c) {
+            case '"':
+                buffer.put((byte) '\\').put((byte) '"');
+                break;
+            case '\\':
+                buffer.put((byte) '\\').put((byte) '\\');
+                break;
+            case '\n':
+                buffer.put((byte) '\\').put((byte) 'n');
+                break;
+            case '\r':
+                buffer.put((byte) '\\').put((byte) 'r');
+                break;
+            case '\t':
+                buffer.put((byte) '\\').put((byte) 't');
+                break;
+            case '\b':
+                buffer.put((byte) '\\').put((byte) 'b');
+                break;
+            case '\f':
+                buffer.put((byte) '\\').put((byte) 'f');
+                break;
+            default:
+                if (c < 0x20) {
+                    buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(HEX[c >> 4]).put(HEX[c & 0xF]);
+                } else {
+                    buffer.put((byte) c);
+                }
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer.remaining() >= required) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+        ByteBuffer replacement = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        replacement.put(buffer);
+        buffer = replacement;
+    }
+
+}
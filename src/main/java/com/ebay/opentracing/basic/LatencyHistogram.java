@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values using logarithmic buckets.  Each power of two is split into
+ * {@value #SUB_BUCKET_COUNT} linear sub-buckets, bounding the relative error of any recorded value to
+ * 1/{@value #SUB_BUCKET_COUNT}.
+ */
+final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * Record a value.  Negative values are recorded as zero.
+     *
+     * @param value value to record
+     */
+    void record(long value) {
+        long clamped = Math.max(0L, value);
+        buckets.incrementAndGet(bucketIndex(clamped));
+        sum.addAndGet(clamped);
+    }
+
+    /**
+     * Take a snapshot of the values recorded since the previous call, resetting the histogram.  Values
+     * recorded concurrently are attributed to either this interval or the next, but are never lost.
+     *
+     * @return interval snapshot
+     */
+    HistogramSnapshot snapshotAndReset() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (buckets.get(i) != 0L) {
+                counts[i] = buckets.getAndSet(i, 0L);
+            }
+        }
+        return new HistogramSnapshot(counts, sum.getAndSet(0L));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        return bucketLowerBound(index) + (1L << shift) - 1L;
+    }
+
+}
@@ -64,4 +64,15 @@ public final class LogEvent {
         return payload;
     }
 
+    /**
+     * Create a copy of this event with a different payload, retaining the original timestamp unit and
+     * precision.
+     *
+     * @param newPayload payload of the copy
+     * @return event copy
+     */
+    LogEvent withPayload(Object newPayload) {
+        return new LogEvent(timeStampUnit, timeStampValue, eventName, newPayload);
+    }
+
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Arrays;
+
+/**
+ * Compressor and decompressor for the LZ4 block format.  Compression uses a single probe of a hash table of
+ * 4-byte sequences, trading ratio for speed.  Instances hold the hash table and are not thread safe.
+ */
+final class Lz4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int RUN_MASK = 15;
+
+    private final int[] hashTable = new int[1 << HASH_LOG];
+
+    /**
+     * Get the maximum size of the compressed form of input of the given length.
+     *
+     * @param length input length
+     * @return maximum compressed length
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block.
+     *
+     * @param src    source array
+     * @param srcOff offset of the input within the source array
+     * @param srcLen length of the input
+     * @param dst    destination array, with at least {@link #maxCompressedLength(int)} bytes available
+     * @param dstOff offset within the destination array at which to write
+     * @return compressed length
+     */
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        int srcEnd = srcOff + srcLen;
+        int matchLimit = srcEnd - LAST_LITERALS;
+        int mfLimit = srcEnd - MF_LIMIT;
+        int anchor = srcOff;
+        int ip = srcOff;
+        int op = dstOff;
+
+        if (srcLen > MF_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            while (ip < mfLimit) {
+                int sequence = readInt(src, ip);
+                int hash = hash(sequence);
+                int ref = hashTable[hash];
+                hashTable[hash] = ip;
+                if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+
+                // Extend the match backwards over pending literals
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+
+                op = writeLiterals(src, anchor, ip - anchor, dst, op, matchLen - MIN_MATCH);
+                int offset = ip - ref;
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+                if (matchLen - MIN_MATCH >= RUN_MASK) {
+                    op = writeLength(matchLen - MIN_MATCH - RUN_MASK, dst, op);
+                }
+                ip += matchLen;
+                anchor = ip;
+            }
+        }
+
+        op = writeLiterals(src, anchor, srcEnd - anchor, dst, op, 0);
+        return op - dstOff;
+    }
+
+    /**
+     * Decompress a block.
+     *
+     * @param src    source array
+     * @param srcOff offset of the compressed block within the source array
+     * @param srcLen length of the compressed block
+     * @param dst    destination array
+     * @param dstOff offset within the destination array at which to write
+     * @param dstLen space available in the destination array
+     * @return decompressed length
+     * @throws IllegalArgumentException if the block is malformed or does not fit into the destination
+     */
+    static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) {
+        int srcEnd = srcOff + srcLen;
+        int dstEnd = dstOff + dstLen;
+        int ip = srcOff;
+        int op = dstOff;
+        try {
+            while (ip < srcEnd) {
+                int token = src[ip++] & 0xFF;
+                int literalLen = token >>> 4;
+                if (literalLen == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLen += b;
+                    } while (b == 255);
+                }
+                if (ip + literalLen > srcEnd || op + literalLen > dstEnd) {
+                    throw new IllegalArgumentException("Malformed LZ4 block: literals overrun");
+                }
+                System.arraycopy(src, ip, dst, op, literalLen);
+                ip += literalLen;
+                op += literalLen;
+                if (ip == srcEnd) {
+                    break;
+                }
+
+                int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+                int matchLen = token & RUN_MASK;
+                if (matchLen == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < dstOff || op + matchLen > dstEnd) {
+                    throw new IllegalArgumentException("Malformed LZ4 block: invalid match");
+                }
+                // Matches may overlap their own output so copy byte by byte
+                for (int i = 0; i < matchLen; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed LZ4 block: truncated", e);
+        }
+        return op - dstOff;
+    }
+
+    private static int writeLiterals(byte[] src, int srcOff, int literalLen, byte[] dst, int op, int matchToken) {
+        int tokenOffset = op++;
+        int token = Math.min(matchToken, RUN_MASK);
+        if (literalLen >= RUN_MASK) {
+            token |= RUN_MASK << 4;
+            op = writeLength(literalLen - RUN_MASK, dst, op);
+        } else {
+            token |= literalLen << 4;
+        }
+        dst[tokenOffset] = (byte) token;
+        System.arraycopy(src, srcOff, dst, op, literalLen);
+        return op + literalLen;
+    }
+
+    private static int writeLength(int length, byte[] dst, int op) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF)
+                | ((src[offset + 1] & 0xFF) << 8)
+                | ((src[offset + 2] & 0xFF) << 16)
+                | ((src[offset + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} implementation which writes finished spans into a single-producer,
+ * single-consumer ring buffer held in a memory-mapped file, from which a sidecar process reads them.  This
+ * avoids any system call on the exporting thread.  The ring is consumed via a {@link MappedSpanRingReader}
+ * or an equivalent implementation in another language.
+ * <p>
+ * The file begins with a header holding a magic number, version and data capacity, followed by the
+ * producer's head position and the consumer's tail position on separate cache lines.  Positions are
+ * monotonically increasing byte counts, with the data offset being the position modulo the capacity.  Each
+ * record holds its length as a 32 bit integer followed by the span encoded as per {@link SpanJournal},
+ * padded to a multiple of 8 bytes.  A length of {@code -1} marks padding up to the end of the data area,
+ * used when a record would otherwise wrap.  Both positions are published using ordered writes, so a reader
+ * observing a position also observes the data written before it.
+ * <p>
+ * The ring never blocks: spans which do not fit in the space the consumer has released are dropped and
+ * counted.  Writes are serialized by a lock, so the ring is best fed from the single worker of
+ * {@link BasicTracerBuilder#asyncDelivery(int, BackpressurePolicy)}, leaving the lock uncontended.
+ * <p>
+ * Ordered writes to mapped memory are not exposed by the Java 7 API, so are performed via
+ * {@code sun.misc.Unsafe}.  Use {@link #isAvailable()} to determine whether the ring can be used.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class MappedSpanRing<T> implements FinishedSpanReceiver<T>, Closeable {
+    static final int MAGIC = 0x53504E52; // "SPNR"
+    static final int VERSION = 1;
+    static final int CAPACITY_OFFSET = 8;
+    static final int HEAD_OFFSET = 64;
+    static final int TAIL_OFFSET = 128;
+    static final int HEADER_SIZE = 192;
+    static final int RECORD_HEADER_SIZE = 4;
+    static final int PADDING = -1;
+    private static final int MIN_CAPACITY = 4096;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final SpanRecordCodec<T> codec;
+    private final MappedByteBuffer mapped;
+    private final ByteBuffer data;
+    private final ByteBuffer encodeBuffer;
+    private final int capacity;
+    private final long headAddress;
+    private final long tailAddress;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Object lock = new Object();
+
+    private long head;
+    private long cachedTail;
+    private boolean closed;
+
+    /**
+     * Create a ring in the file provided, replacing any existing content.  The sidecar should open the
+     * ring only once it has been created.
+     *
+     * @param file           ring file
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param capacity       size of the data area, in bytes, which must be a power of two of at least 4 KiB
+     * @throws IOException                   if the file could not be created
+     * @throws UnsupportedOperationException if ordered memory access is not available
+     */
+    public MappedSpanRing(Path file, SpanIdAccessor<T> spanIdAccessor, int capacity) throws IOException {
+        Objects.requireNonNull(file, "file may not be null");
+        Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        if (capacity < MIN_CAPACITY || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two of at least " + MIN_CAPACITY);
+        }
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("Ordered memory access is not available");
+        }
+        this.codec = new SpanRecordCodec<>(spanIdAccessor);
+        this.capacity = capacity;
+        this.encodeBuffer = ByteBuffer.allocate(Math.min(MAX_RECORD_SIZE, capacity / 2) - RECORD_HEADER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE + capacity);
+        }
+        headAddress = OrderedMemory.address(mapped) + HEAD_OFFSET;
+        tailAddress = OrderedMemory.address(mapped) + TAIL_OFFSET;
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, VERSION);
+        mapped.putInt(CAPACITY_OFFSET, capacity);
+        OrderedMemory.putOrderedLong(tailAddress, 0L);
+        OrderedMemory.putOrderedLong(headAddress, 0L);
+
+        mapped.position(HEADER_SIZE);
+        data = mapped.slice();
+    }
+
+    /**
+     * Determine whether the ring is supported by the running JVM.
+     *
+     * @return {@code true} if supported
+     */
+    public static boolean isAvailable() {
+        return OrderedMemory.isAvailable();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        synchronized (lock) {
+            if (closed) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+
+            ByteBuffer buffer = encodeBuffer;
+            buffer.clear();
+            try {
+                codec.encode(spanData, buffer);
+            } catch (BufferOverflowException e) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            buffer.flip();
+            int length = buffer.remaining();
+            int recordSize = recordSize(length);
+
+            int index = (int) (head & (capacity - 1));
+            int contiguous = capacity - index;
+            int required = (recordSize <= contiguous) ? recordSize : contiguous + recordSize;
+            if (head + required - cachedTail > capacity) {
+                cachedTail = OrderedMemory.getLongVolatile(tailAddress);
+                if (head + required - cachedTail > capacity) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+            }
+
+            if (recordSize > contiguous) {
+                data.putInt(index, PADDING);
+                index = 0;
+            }
+            data.putInt(index, length);
+            data.position(index + RECORD_HEADER_SIZE);
+            data.put(buffer);
+            head += required;
+            OrderedMemory.putOrderedLong(headAddress, head);
+        }
+    }
+
+    /**
+     * Get the number of spans which could not be written to the ring, either because the ring was full or
+     * because their encoded form exceeded the maximum record size.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stop accepting spans.  Spans finished after the ring has been closed are counted as dropped.  The
+     * file remains mapped until the ring is garbage collected.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+    }
+
+    static int recordSize(int length) {
+        return (RECORD_HEADER_SIZE + length + 7) & ~7;
+    }
+
+}
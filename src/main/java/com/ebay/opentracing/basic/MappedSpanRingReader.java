@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reader of the spans written to a {@link MappedSpanRing}, normally by another process.  This serves as the
+ * reference implementation of the consumer side of the ring for sidecars written in Java or other
+ * languages.  Space is released back to the producer once the spans occupying it have been read.
+ * <p>
+ * Instances are not thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class MappedSpanRingReader implements Closeable {
+    private final MappedByteBuffer mapped;
+    private final ByteBuffer data;
+    private final int capacity;
+    private final long headAddress;
+    private final long tailAddress;
+
+    private long tail;
+    private boolean closed;
+
+    /**
+     * Open the ring held in the file provided, resuming from the last position released.
+     *
+     * @param file ring file
+     * @throws IOException                   if the file could not be mapped or does not hold a ring
+     * @throws UnsupportedOperationException if ordered memory access is not available
+     */
+    public MappedSpanRingReader(Path file) throws IOException {
+        Objects.requireNonNull(file, "file may not be null");
+        if (!MappedSpanRing.isAvailable()) {
+            throw new UnsupportedOperationException("Ordered memory access is not available");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < MappedSpanRing.HEADER_SIZE) {
+                throw new IOException("Not a span ring: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, channel.size());
+        }
+        if (mapped.getInt(0) != MappedSpanRing.MAGIC) {
+            throw new IOException("Not a span ring: " + file);
+        }
+        if (mapped.getInt(4) != MappedSpanRing.VERSION) {
+            throw new IOException("Unsupported span ring version: " + mapped.getInt(4));
+        }
+        capacity = mapped.getInt(MappedSpanRing.CAPACITY_OFFSET);
+        if (mapped.capacity() != MappedSpanRing.HEADER_SIZE + capacity) {
+            throw new IOException("Span ring is truncated: " + file);
+        }
+        headAddress = OrderedMemory.address(mapped) + MappedSpanRing.HEAD_OFFSET;
+        tailAddress = OrderedMemory.address(mapped) + MappedSpanRing.TAIL_OFFSET;
+        tail = OrderedMemory.getLongVolatile(tailAddress);
+
+        mapped.position(MappedSpanRing.HEADER_SIZE);
+        data = mapped.slice();
+    }
+
+    /**
+     * Read the spans which follow the reader's current position, releasing the space they occupied.
+     *
+     * @param maxRecords maximum number of spans to read
+     * @return spans read, which will be empty if the producer has not written any further spans
+     */
+    public List<SpanRecord> read(int maxRecords) {
+        if (closed) {
+            throw new IllegalStateException("Reader has been closed");
+        }
+        List<SpanRecord> records = new ArrayList<>();
+        long head = OrderedMemory.getLongVolatile(headAddress);
+        while (tail < head && records.size() < maxRecords) {
+            int index = (int) (tail & (capacity - 1));
+            int length = data.getInt(index);
+            if (length == MappedSpanRing.PADDING) {
+                tail += capacity - index;
+                continue;
+            }
+            data.limit(index + MappedSpanRing.RECORD_HEADER_SIZE + length);
+            data.position(index + MappedSpanRing.RECORD_HEADER_SIZE);
+            records.add(SpanRecordCodec.decode(data.slice()));
+            data.clear();
+            tail += MappedSpanRing.recordSize(length);
+        }
+        OrderedMemory.putOrderedLong(tailAddress, tail);
+        return records;
+    }
+
+    /**
+     * Get the number of bytes written by the producer but not yet read.
+     *
+     * @return unread byte count
+     */
+    public long getBacklog() {
+        return OrderedMemory.getLongVolatile(headAddress) - tail;
+    }
+
+    /**
+     * Stop reading.  The file remains mapped until the reader is garbage collected.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+}
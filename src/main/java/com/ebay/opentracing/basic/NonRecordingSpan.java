@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+
+/**
+ * Span which propagates its context to children and across process boundaries, but which records nothing
+ * and is never delivered to the {@link FinishedSpanReceiver}.
+ *
+ * @param <T> trace context type
+ */
+final class NonRecordingSpan<T> extends SpanImpl<Span, T> {
+
+    NonRecordingSpan(NonRecordingSpanData<T> spanData) {
+        super(spanData, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRecording() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish() {
+        // Not recorded
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void finish(long finishMicros) {
+        // Not recorded
+    }
+
+}
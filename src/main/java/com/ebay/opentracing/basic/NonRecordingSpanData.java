@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MutableSpanData} of a span which is not being recorded.  Only what is needed to propagate the span's
+ * context is retained, and all modifications are discarded.
+ *
+ * @param <T> trace context type
+ */
+final class NonRecordingSpanData<T> implements MutableSpanData<T>, SpanLimitCounts {
+    private final InternalSpanContext<T> spanContext;
+    private final String operationName;
+    private final TimeUnit startTimeUnit;
+    private final long startTimeStamp;
+
+    NonRecordingSpanData(
+            InternalSpanContext<T> spanContext,
+            String operationName,
+            TimeUnit startTimeUnit,
+            long startTimeStamp) {
+        this.spanContext = Objects.requireNonNull(spanContext);
+        this.operationName = Objects.requireNonNull(operationName);
+        this.startTimeUnit = Objects.requireNonNull(startTimeUnit);
+        this.startTimeStamp = startTimeStamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InternalSpanContext<T> getSpanContext() {
+        return spanContext;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStartTime(TimeUnit timeUnit) {
+        return timeUnit.convert(startTimeStamp, startTimeUnit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As non-recording spans are never finished, this is always the start time.
+     */
+    @Override
+    public long getFinishTime(TimeUnit timeUnit) {
+        return getStartTime(timeUnit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getTags() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<? extends InternalSpanContext<T>> getReferences(String referenceType) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LogEvent> getLogEvents() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedTagCount() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedLogEventCount() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTruncatedValueCount() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOperationName(String operationName) {
+        // Discarded
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setFinishTime(TimeUnit finishTimeUnit, long finishTimeStamp) {
+        // Discarded
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putTag(String key, String value) {
+        // Discarded
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addLogEvent(LogEvent logEvent) {
+        // Discarded
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "NonRecordingSpan{operationName='" + operationName + "'}";
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * {@link SpanStartedListener} used when no listener has been configured.  Being the only implementation
+ * seen at the call site in that case, the call is inlined away by the JIT.
+ *
+ * @param <T> trace context type
+ */
+final class NoopSpanStartedListener<T> implements SpanStartedListener<T> {
+    private static final NoopSpanStartedListener<?> INSTANCE = new NoopSpanStartedListener<>();
+
+    private NoopSpanStartedListener() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> SpanStartedListener<T> instance() {
+        return (SpanStartedListener<T>) INSTANCE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanStarted(MutableSpanData<T> spanData) {
+        // No-op
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.tag.Tags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} which aggregates rate, error and duration (RED) metrics for every finished
+ * span, grouped by operation name and, optionally, by the values of a fixed set of tags.  Spans are
+ * counted as errors when their {@link Tags#ERROR} tag is {@code true}.
+ * <p>
+ * Recording is lock-free.  The number of distinct series is bounded; once the limit is reached, spans
+ * which would create a new series are aggregated into a single series named {@link #OVERFLOW_OPERATION}.
+ * Since this receiver sees every span, it is typically combined with the trace exporter using a
+ * {@link FanOutFinishedSpanReceiver} so that metrics retain full fidelity while traces are sampled.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class OperationMetricsReceiver<T> implements FinishedSpanReceiver<T> {
+
+    /**
+     * Operation name of the series into which spans are aggregated once the series limit has been reached.
+     */
+    public static final String OVERFLOW_OPERATION = "__overflow__";
+
+    private final String[] dimensionTagKeys;
+    private final int maxSeries;
+    private final ConcurrentMap<SeriesKey, Series> seriesMap = new ConcurrentHashMap<>();
+    private final SeriesKey overflowKey;
+
+    /**
+     * Create a receiver which aggregates by operation name only.
+     *
+     * @param maxSeries maximum number of distinct series to track
+     */
+    public OperationMetricsReceiver(int maxSeries) {
+        this(Collections.<String>emptyList(), maxSeries);
+    }
+
+    /**
+     * Create a receiver which aggregates by operation name and the values of the specified tags.  Spans
+     * which lack one of the tags are aggregated with a {@code null} value for that dimension.
+     *
+     * @param dimensionTagKeys tag keys whose values are used as additional dimensions
+     * @param maxSeries        maximum number of distinct series to track
+     */
+    public OperationMetricsReceiver(List<String> dimensionTagKeys, int maxSeries) {
+        Objects.requireNonNull(dimensionTagKeys, "dimensionTagKeys may not be null");
+        if (maxSeries < 1) {
+            throw new IllegalArgumentException("maxSeries must be positive");
+        }
+        this.dimensionTagKeys = dimensionTagKeys.toArray(new String[dimensionTagKeys.size()]);
+        this.maxSeries = maxSeries;
+        this.overflowKey = new SeriesKey(OVERFLOW_OPERATION, new String[this.dimensionTagKeys.length]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        Map<String, String> tags = spanData.getTags();
+        String[] dimensionValues = new String[dimensionTagKeys.length];
+        for (int i = 0; i < dimensionTagKeys.length; i++) {
+            dimensionValues[i] = tags.get(dimensionTagKeys[i]);
+        }
+
+        Series series = getSeries(new SeriesKey(spanData.getOperationName(), dimensionValues));
+        long durationMicros = spanData.getFinishTime(TimeUnit.MICROSECONDS)
+                - spanData.getStartTime(TimeUnit.MICROSECONDS);
+        series.latency.record(durationMicros);
+        if (Boolean.parseBoolean(tags.get(Tags.ERROR.getKey()))) {
+            series.errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Collect the metrics aggregated since the previous collection, resetting all series.  Series which
+     * saw no spans during the interval are omitted.
+     *
+     * @return list of interval snapshots
+     */
+    public List<OperationMetricsSnapshot> collect() {
+        List<OperationMetricsSnapshot> result = new ArrayList<>(seriesMap.size());
+        for (Map.Entry<SeriesKey, Series> entry : seriesMap.entrySet()) {
+            Series series = entry.getValue();
+            HistogramSnapshot latency = series.latency.snapshotAndReset();
+            long errors = series.errors.getAndSet(0L);
+            if (latency.getCount() == 0L && errors == 0L) {
+                continue;
+            }
+            SeriesKey key = entry.getKey();
+            result.add(new OperationMetricsSnapshot(key.operationName, toDimensionMap(key), errors, latency));
+        }
+        return result;
+    }
+
+    private Series getSeries(SeriesKey key) {
+        Series series = seriesMap.get(key);
+        if (series != null) {
+            return series;
+        }
+
+        if (seriesMap.size() >= maxSeries - 1) {
+            key = overflowKey;
+        }
+        Series created = new Series();
+        series = seriesMap.putIfAbsent(key, created);
+        return (series == null) ? created : series;
+    }
+
+    private Map<String, String> toDimensionMap(SeriesKey key) {
+        if (dimensionTagKeys.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new LinkedHashMap<>(dimensionTagKeys.length * 2);
+        for (int i = 0; i < dimensionTagKeys.length; i++) {
+            result.put(dimensionTagKeys[i], key.dimensionValues[i]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static final class Series {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    private static final class SeriesKey {
+        private final String operationName;
+        private final String[] dimensionValues;
+        private final int hashCode;
+
+        SeriesKey(String operationName, String[] dimensionValues) {
+            this.operationName = operationName;
+            this.dimensionValues = dimensionValues;
+            this.hashCode = 31 * operationName.hashCode() + Arrays.hashCode(dimensionValues);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SeriesKey)) {
+                return false;
+            }
+            SeriesKey other = (SeriesKey) obj;
+            return hashCode == other.hashCode
+                    && operationName.equals(other.operationName)
+                    && Arrays.equals(dimensionValues, other.dimensionValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+}
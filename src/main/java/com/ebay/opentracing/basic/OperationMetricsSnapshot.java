@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Map;
+
+/**
+ * Rate, error and duration metrics of a single series over a collection interval.
+ *
+ * @see OperationMetricsReceiver#collect()
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class OperationMetricsSnapshot {
+    private final String operationName;
+    private final Map<String, String> dimensions;
+    private final long errorCount;
+    private final HistogramSnapshot latency;
+
+    OperationMetricsSnapshot(
+            String operationName,
+            Map<String, String> dimensions,
+            long errorCount,
+            HistogramSnapshot latency) {
+        this.operationName = operationName;
+        this.dimensions = dimensions;
+        this.errorCount = errorCount;
+        this.latency = latency;
+    }
+
+    /**
+     * Get the operation name of the series.
+     *
+     * @return operation name
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Get the dimension tag values of the series, keyed by tag key.
+     *
+     * @return unmodifiable map of dimension values
+     */
+    public Map<String, String> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Get the number of spans finished during the interval.
+     *
+     * @return span count
+     */
+    public long getRequestCount() {
+        return latency.getCount();
+    }
+
+    /**
+     * Get the number of spans finished during the interval which were flagged as errors.
+     *
+     * @return error count
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Get the distribution of span durations during the interval.
+     *
+     * @return latency histogram
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "OperationMetricsSnapshot{operationName='" + operationName
+                + "',dimensions=" + dimensions
+                + ",requestCount=" + getRequestCount()
+                + ",errorCount=" + errorCount + "}";
+    }
+
+}
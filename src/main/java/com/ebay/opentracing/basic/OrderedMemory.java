@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Ordered and volatile access to longs held in direct buffers, which {@link ByteBuffer} does not otherwise
+ * provide.  Such access is required when the memory is shared with another process, as plain buffer writes
+ * may become visible in any order.
+ * <p>
+ * Access is performed via {@code sun.misc.Unsafe}, obtained reflectively and invoked through constant method
+ * handles so that calls are compiled down to the underlying intrinsics.  {@link #isAvailable()} must be
+ * checked before use.
+ */
+final class OrderedMemory {
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle PUT_ORDERED_LONG;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        MethodHandle getLong = null;
+        MethodHandle getLongVolatile = null;
+        MethodHandle putOrderedLong = null;
+        long addressOffset = -1L;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType getType = MethodType.methodType(long.class, Object.class, long.class);
+            getLong = lookup.findVirtual(unsafeClass, "getLong", getType).bindTo(unsafe);
+            getLongVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile", getType).bindTo(unsafe);
+            putOrderedLong = lookup.findVirtual(unsafeClass, "putOrderedLong",
+                    MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+            addressOffset = (long) lookup.findVirtual(unsafeClass, "objectFieldOffset",
+                    MethodType.methodType(long.class, Field.class))
+                    .invoke(unsafe, Buffer.class.getDeclaredField("address"));
+        } catch (Throwable t) {
+            getLong = null;
+        }
+        GET_LONG = getLong;
+        GET_LONG_VOLATILE = getLongVolatile;
+        PUT_ORDERED_LONG = putOrderedLong;
+        ADDRESS_OFFSET = addressOffset;
+    }
+
+    private OrderedMemory() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Determine whether ordered memory access is supported by the running JVM.
+     *
+     * @return {@code true} if supported
+     */
+    static boolean isAvailable() {
+        return GET_LONG != null;
+    }
+
+    /**
+     * Get the native address of the first byte of a direct buffer's content.  The buffer must remain
+     * reachable for as long as the address is used.
+     *
+     * @param buffer direct buffer
+     * @return native address
+     */
+    static long address(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("buffer must be direct");
+        }
+        try {
+            return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Read a long with volatile semantics, such that subsequent reads observe the writes which preceded
+     * the ordered write of the value read.
+     *
+     * @param address native address
+     * @return value
+     */
+    static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Write a long such that it becomes visible no earlier than all preceding writes.
+     *
+     * @param address native address
+     * @param value   value
+     */
+    static void putOrderedLong(long address, long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.References;
+import io.opentracing.log.Fields;
+import io.opentracing.tag.Tags;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SpanBatchEncoder} which encodes batches of spans as an OTLP {@code ExportTraceServiceRequest}
+ * in protobuf wire format, suitable for posting to an OTLP/HTTP collector's {@code /v1/traces} endpoint.
+ * The wire format is written directly, without requiring the protobuf runtime.  The size of every nested
+ * message is computed before it is written so that each length prefix can be written ahead of its content
+ * without copying.  Spans which may still be changing are snapshotted first, so that both passes see the same
+ * content.  Instances are not thread safe.
+ * <p>
+ * Spans are mapped as follows:
+ * <ul>
+ * <li>the first child-of reference becomes the parent span and all other references become links, with a
+ * {@code opentracing.ref_type} attribute recording the reference type</li>
+ * <li>the {@code span.kind} tag becomes the span kind and an {@code error} tag of {@code true} sets an
+ * error status</li>
+ * <li>tags become string attributes</li>
+ * <li>log events become span events: a standard {@code event} field names the event, while other fields
+ * become an event named {@code log} with the field as a typed attribute</li>
+ * </ul>
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class OtlpProtobufEncoder<T> implements SpanBatchEncoder<T> {
+    // Field tags, being (field number << 3) | wire type
+    private static final int REQUEST_RESOURCE_SPANS = (1 << 3) | 2;
+    private static final int RESOURCE_SPANS_RESOURCE = (1 << 3) | 2;
+    private static final int RESOURCE_SPANS_SCOPE_SPANS = (2 << 3) | 2;
+    private static final int RESOURCE_ATTRIBUTES = (1 << 3) | 2;
+    private static final int SCOPE_SPANS_SCOPE = (1 << 3) | 2;
+    private static final int SCOPE_SPANS_SPANS = (2 << 3) | 2;
+    private static final int SCOPE_NAME = (1 << 3) | 2;
+    private static final int SPAN_TRACE_ID = (1 << 3) | 2;
+    private static final int SPAN_SPAN_ID = (2 << 3) | 2;
+    private static final int SPAN_PARENT_SPAN_ID = (4 << 3) | 2;
+    private static final int SPAN_NAME = (5 << 3) | 2;
+    private static final int SPAN_KIND = (6 << 3);
+    private static final int SPAN_START_TIME = (7 << 3) | 1;
+    private static final int SPAN_END_TIME = (8 << 3) | 1;
+    private static final int SPAN_ATTRIBUTES = (9 << 3) | 2;
+    private static final int SPAN_DROPPED_ATTRIBUTES_COUNT = (10 << 3);
+    private static final int SPAN_EVENTS = (11 << 3) | 2;
+    private static final int SPAN_DROPPED_EVENTS_COUNT = (12 << 3);
+    private static final int SPAN_LINKS = (13 << 3) | 2;
+    private static final int SPAN_STATUS = (15 << 3) | 2;
+    private static final int EVENT_TIME = (1 << 3) | 1;
+    private static final int EVENT_NAME = (2 << 3) | 2;
+    private static final int EVENT_ATTRIBUTES = (3 << 3) | 2;
+    private static final int LINK_TRACE_ID = (1 << 3) | 2;
+    private static final int LINK_SPAN_ID = (2 << 3) | 2;
+    private static final int LINK_ATTRIBUTES = (4 << 3) | 2;
+    private static final int STATUS_CODE = (3 << 3);
+    private static final int KEY_VALUE_KEY = (1 << 3) | 2;
+    private static final int KEY_VALUE_VALUE = (2 << 3) | 2;
+    private static final int ANY_VALUE_STRING = (1 << 3) | 2;
+    private static final int ANY_VALUE_BOOL = (2 << 3);
+    private static final int ANY_VALUE_INT = (3 << 3);
+    private static final int ANY_VALUE_DOUBLE = (4 << 3) | 1;
+
+    private static final int TRACE_ID_LENGTH = 16;
+    private static final int SPAN_ID_LENGTH = 8;
+    private static final int STATUS_CODE_ERROR = 2;
+    private static final String SERVICE_NAME_KEY = "service.name";
+    private static final String REF_TYPE_KEY = "opentracing.ref_type";
+    private static final String REF_TYPE_CHILD_OF = "child_of";
+    private static final String REF_TYPE_FOLLOWS_FROM = "follows_from";
+    private static final String LOG_EVENT_NAME = "log";
+    private static final String SCOPE_NAME_VALUE = "com.ebay.opentracing.basic";
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final String serviceName;
+    private final List<SpanData<T>> snapshots = new ArrayList<>();
+    private ByteBuffer buffer = newBuffer(64 * 1024);
+    private int[] spanSizes = new int[256];
+
+    /**
+     * Create an encoder for spans reported by the named service.
+     *
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param serviceName    value of the {@code service.name} resource attribute
+     */
+    public OtlpProtobufEncoder(SpanIdAccessor<T> spanIdAccessor, String serviceName) {
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        this.serviceName = Objects.requireNonNull(serviceName, "serviceName may not be null");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer encode(List<? extends SpanData<T>> spans) {
+        if (spanSizes.length < spans.size()) {
+            spanSizes = Arrays.copyOf(spanSizes, Math.max(spans.size(), spanSizes.length * 2));
+        }
+        // The length prefixes computed by the size pass must match the bytes written by the write pass
+        for (SpanData<T> spanData : spans) {
+            snapshots.add(SpanDataSnapshot.of(spanData));
+        }
+        try {
+            return encodeSnapshots(snapshots);
+        } finally {
+            snapshots.clear();
+        }
+    }
+
+    private ByteBuffer encodeSnapshots(List<SpanData<T>> spans) {
+
+        // Size pass
+        int resourceSize = fieldSize(stringKeyValueSize(SERVICE_NAME_KEY, serviceName));
+        int scopeSize = stringFieldSize(SCOPE_NAME_VALUE);
+        int scopeSpansSize = fieldSize(scopeSize);
+        for (int i = 0; i < spans.size(); i++) {
+            int spanSize = spanSize(spans.get(i));
+            spanSizes[i] = spanSize;
+            scopeSpansSize += fieldSize(spanSize);
+        }
+        int resourceSpansSize = fieldSize(resourceSize) + fieldSize(scopeSpansSize);
+        int requestSize = fieldSize(resourceSpansSize);
+
+        // Write pass
+        if (buffer.capacity() < requestSize) {
+            buffer = newBuffer(Math.max(requestSize, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        putTagAndLength(REQUEST_RESOURCE_SPANS, resourceSpansSize);
+        putTagAndLength(RESOURCE_SPANS_RESOURCE, resourceSize);
+        putStringKeyValue(RESOURCE_ATTRIBUTES, SERVICE_NAME_KEY, serviceName);
+        putTagAndLength(RESOURCE_SPANS_SCOPE_SPANS, scopeSpansSize);
+        putTagAndLength(SCOPE_SPANS_SCOPE, scopeSize);
+        putString(SCOPE_NAME, SCOPE_NAME_VALUE);
+        for (int i = 0; i < spans.size(); i++) {
+            putTagAndLength(SCOPE_SPANS_SPANS, spanSizes[i]);
+            putSpan(spans.get(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private int spanSize(SpanData<T> spanData) {
+        int size = fieldSize(TRACE_ID_LENGTH) + fieldSize(SPAN_ID_LENGTH);
+        List<? extends InternalSpanContext<T>> childOf = spanData.getReferences(References.CHILD_OF);
+        if (childOf != null && !childOf.isEmpty()) {
+            size += fieldSize(SPAN_ID_LENGTH);
+        }
+        size += stringFieldSize(spanData.getOperationName());
+
+        Map<String, String> tags = spanData.getTags();
+        if (spanKind(tags) != 0) {
+            size += 2;
+        }
+        size += 18; // start and end times
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (isAttribute(tag)) {
+                size += fieldSize(stringKeyValueSize(tag.getKey(), tag.getValue()));
+            }
+        }
+
+        if (droppedTagCount(spanData) > 0) {
+            size += 1 + varintSize(droppedTagCount(spanData));
+        }
+
+        for (LogEvent logEvent : spanData.getLogEvents()) {
+            size += fieldSize(eventSize(logEvent));
+        }
+        if (droppedLogEventCount(spanData) > 0) {
+            size += 1 + varintSize(droppedLogEventCount(spanData));
+        }
+
+        size += linksSize(childOf, 1, REF_TYPE_CHILD_OF);
+        size += linksSize(spanData.getReferences(References.FOLLOWS_FROM), 0, REF_TYPE_FOLLOWS_FROM);
+
+        if (isError(tags)) {
+            size += fieldSize(2);
+        }
+        return size;
+    }
+
+    private void putSpan(SpanData<T> spanData) {
+        T traceContext = spanData.getSpanContext().getTraceContext();
+        putId(SPAN_TRACE_ID, spanIdAccessor.getTraceId(traceContext), TRACE_ID_LENGTH);
+        putId(SPAN_SPAN_ID, spanIdAccessor.getSpanId(traceContext), SPAN_ID_LENGTH);
+        List<? extends InternalSpanContext<T>> childOf = spanData.getReferences(References.CHILD_OF);
+        if (childOf != null && !childOf.isEmpty()) {
+            putId(SPAN_PARENT_SPAN_ID, spanIdAccessor.getSpanId(childOf.get(0).getTraceContext()), SPAN_ID_LENGTH);
+        }
+        putString(SPAN_NAME, spanData.getOperationName());
+
+        Map<String, String> tags = spanData.getTags();
+        int kind = spanKind(tags);
+        if (kind != 0) {
+            putVarint(SPAN_KIND);
+            putVarint(kind);
+        }
+        putVarint(SPAN_START_TIME);
+        buffer.putLong(TimeUnit.MICROSECONDS.toNanos(spanData.getStartTime(TimeUnit.MICROSECONDS)));
+        putVarint(SPAN_END_TIME);
+        buffer.putLong(TimeUnit.MICROSECONDS.toNanos(spanData.getFinishTime(TimeUnit.MICROSECONDS)));
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (isAttribute(tag)) {
+                putStringKeyValue(SPAN_ATTRIBUTES, tag.getKey(), tag.getValue());
+            }
+        }
+        if (droppedTagCount(spanData) > 0) {
+            putVarint(SPAN_DROPPED_ATTRIBUTES_COUNT);
+            putVarint(droppedTagCount(spanData));
+        }
+
+        for (LogEvent logEvent : spanData.getLogEvents()) {
+            putTagAndLength(SPAN_EVENTS, eventSize(logEvent));
+            putVarint(EVENT_TIME);
+            buffer.putLong(TimeUnit.MICROSECONDS.toNanos(logEvent.getTimeStamp(TimeUnit.MICROSECONDS)));
+            if (Fields.EVENT.equals(logEvent.getEventName())) {
+                putString(EVENT_NAME, String.valueOf(logEvent.getPayload()));
+            } else {
+                putString(EVENT_NAME, LOG_EVENT_NAME);
+                putTagAndLength(EVENT_ATTRIBUTES, keyValueSize(logEvent.getEventName(), logEvent.getPayload()));
+                putKeyValue(logEvent.getEventName(), logEvent.getPayload());
+            }
+        }
+        if (droppedLogEventCount(spanData) > 0) {
+            putVarint(SPAN_DROPPED_EVENTS_COUNT);
+            putVarint(droppedLogEventCount(spanData));
+        }
+
+        putLinks(childOf, 1, REF_TYPE_CHILD_OF);
+        putLinks(spanData.getReferences(References.FOLLOWS_FROM), 0, REF_TYPE_FOLLOWS_FROM);
+
+        if (isError(tags)) {
+            putTagAndLength(SPAN_STATUS, 2);
+            putVarint(STATUS_CODE);
+            putVarint(STATUS_CODE_ERROR);
+        }
+    }
+
+    private static int eventSize(LogEvent logEvent) {
+        int size = 9;
+        if (Fields.EVENT.equals(logEvent.getEventName())) {
+            size += stringFieldSize(String.valueOf(logEvent.getPayload()));
+        } else {
+            size += stringFieldSize(LOG_EVENT_NAME);
+            size += fieldSize(keyValueSize(logEvent.getEventName(), logEvent.getPayload()));
+        }
+        return size;
+    }
+
+    private static int linkSize(String refType) {
+        return fieldSize(TRACE_ID_LENGTH) + fieldSize(SPAN_ID_LENGTH)
+                + fieldSize(stringKeyValueSize(REF_TYPE_KEY, refType));
+    }
+
+    private static int linksSize(List<?> references, int skip, String refType) {
+        if (references == null || references.size() <= skip) {
+            return 0;
+        }
+        return (references.size() - skip) * fieldSize(linkSize(refType));
+    }
+
+    private void putLinks(List<? extends InternalSpanContext<T>> references, int skip, String refType) {
+        if (references == null) {
+            return;
+        }
+        int linkSize = linkSize(refType);
+        for (int i = skip; i < references.size(); i++) {
+            T traceContext = references.get(i).getTraceContext();
+            putTagAndLength(SPAN_LINKS, linkSize);
+            putId(LINK_TRACE_ID, spanIdAccessor.getTraceId(traceContext), TRACE_ID_LENGTH);
+            putId(LINK_SPAN_ID, spanIdAccessor.getSpanId(traceContext), SPAN_ID_LENGTH);
+            putStringKeyValue(LINK_ATTRIBUTES, REF_TYPE_KEY, refType);
+        }
+    }
+
+    private static boolean isAttribute(Map.Entry<String, String> tag) {
+        return tag.getValue() != null && !Tags.SPAN_KIND.getKey().equals(tag.getKey());
+    }
+
+    private static boolean isError(Map<String, String> tags) {
+        return Boolean.parseBoolean(tags.get(Tags.ERROR.getKey()));
+    }
+
+    private static int spanKind(Map<String, String> tags) {
+        String kind = tags.get(Tags.SPAN_KIND.getKey());
+        if (kind == null) {
+            return 0;
+        }
+        switch (kind) {
+            case Tags.SPAN_KIND_SERVER:
+                return 2;
+            case Tags.SPAN_KIND_CLIENT:
+                return 3;
+            case Tags.SPAN_KIND_PRODUCER:
+                return 4;
+            case Tags.SPAN_KIND_CONSUMER:
+                return 5;
+            default:
+                return 0;
+        }
+    }
+
+    private static int droppedTagCount(SpanData<?> spanData) {
+        return (spanData instanceof SpanLimitCounts) ? ((SpanLimitCounts) spanData).getDroppedTagCount() : 0;
+    }
+
+    private static int droppedLogEventCount(SpanData<?> spanData) {
+        return (spanData instanceof SpanLimitCounts) ? ((SpanLimitCounts) spanData).getDroppedLogEventCount() : 0;
+    }
+
+    private static int stringKeyValueSize(String key, String value) {
+        return stringFieldSize(key) + fieldSize(stringFieldSize(value));
+    }
+
+    private static int keyValueSize(String key, Object value) {
+        return stringFieldSize(key) + fieldSize(anyValueSize(value));
+    }
+
+    private static int anyValueSize(Object value) {
+        if (value instanceof Boolean) {
+            return 2;
+        } else if (isIntegral(value)) {
+            return 1 + varintSize(((Number) value).longValue());
+        } else if (value instanceof Float || value instanceof Double) {
+            return 9;
+        }
+        return stringFieldSize(String.valueOf(value));
+    }
+
+    private void putStringKeyValue(int tag, String key, String value) {
+        putTagAndLength(tag, stringKeyValueSize(key, value));
+        putString(KEY_VALUE_KEY, key);
+        putTagAndLength(KEY_VALUE_VALUE, stringFieldSize(value));
+        putString(ANY_VALUE_STRING, value);
+    }
+
+    private void putKeyValue(String key, Object value) {
+        putString(KEY_VALUE_KEY, key);
+        putTagAndLength(KEY_VALUE_VALUE, anyValueSize(value));
+        if (value instanceof Boolean) {
+            putVarint(ANY_VALUE_BOOL);
+            putVarint((Boolean) value ? 1L : 0L);
+        } else if (isIntegral(value)) {
+            putVarint(ANY_VALUE_INT);
+            putVarint(((Number) value).longValue());
+        } else if (value instanceof Float || value instanceof Double) {
+            putVarint(ANY_VALUE_DOUBLE);
+            buffer.putDouble(((Number) value).doubleValue());
+        } else {
+            putString(ANY_VALUE_STRING, String.valueOf(value));
+        }
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Write a hex encoded ID as a bytes field of a fixed length, left padding shorter IDs with zeros.
+     */
+    private void putId(int tag, String hex, int length) {
+        int hexLength = hex.length();
+        if (hexLength > length * 2 || (hexLength & 1) != 0) {
+            throw new IllegalArgumentException("Invalid ID: " + hex);
+        }
+        putTagAndLength(tag, length);
+        for (int i = hexLength / 2; i < length; i++) {
+            buffer.put((byte) 0);
+        }
+        for (int i = 0; i < hexLength; i += 2) {
+            buffer.put((byte) ((hexDigit(hex.charAt(i)) << 4) | hexDigit(hex.charAt(i + 1))));
+        }
+    }
+
+    private static int hexDigit(char c) {
+        int digit = Character.digit(c, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("Invalid hex digit: " + c);
+        }
+        return digit;
+    }
+
+    private void putTagAndLength(int tag, int length) {
+        putVarint(tag);
+        putVarint(length);
+    }
+
+    private void putString(int tag, String value) {
+        putTagAndLength(tag, utf8Length(value));
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0L) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int stringFieldSize(String value) {
+        return fieldSize(utf8Length(value));
+    }
+
+    /**
+     * Get the size of a length delimited field with a single byte tag.
+     */
+    private static int fieldSize(int length) {
+        return 1 + varintSize(length) + length;
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0L) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int utf8Length(String value) {
+        int length = value.length();
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                size++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        // Protobuf fixed width fields are little endian
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+}
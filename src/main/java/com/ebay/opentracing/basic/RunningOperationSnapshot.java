@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Comparator;
+
+/**
+ * Point-in-time view of the running spans of a single operation.
+ *
+ * @param <T> trace context type
+ * @see InFlightSpanRegistry#snapshot()
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class RunningOperationSnapshot<T> {
+    static final Comparator<RunningOperationSnapshot<?>> COUNT_ORDER = new Comparator<RunningOperationSnapshot<?>>() {
+        @Override
+        public int compare(RunningOperationSnapshot<?> a, RunningOperationSnapshot<?> b) {
+            return Long.compare(b.getRunningCount(), a.getRunningCount());
+        }
+    };
+
+    private final String operationName;
+    private final HistogramSnapshot ages;
+    private final SpanData<T> oldest;
+
+    RunningOperationSnapshot(String operationName, HistogramSnapshot ages, SpanData<T> oldest) {
+        this.operationName = operationName;
+        this.ages = ages;
+        this.oldest = oldest;
+    }
+
+    /**
+     * Get the operation name.
+     *
+     * @return operation name
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Get the number of spans of the operation which were running.
+     *
+     * @return running span count
+     */
+    public long getRunningCount() {
+        return ages.getCount();
+    }
+
+    /**
+     * Get the distribution of the time for which the operation's spans had been running.
+     *
+     * @return age histogram
+     */
+    public HistogramSnapshot getAges() {
+        return ages;
+    }
+
+    /**
+     * Get the data of the operation's longest running span, with the time of the snapshot as its finish
+     * time.
+     *
+     * @return oldest span data
+     */
+    public SpanData<T> getOldest() {
+        return oldest;
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FinishedSpanReceiver} which captures the full data of the slowest spans of each operation, to serve
+ * as exemplars of the operation's worst case behavior over each collection interval.
+ * <p>
+ * Each operation keeps a bounded min-heap of its slowest spans.  Once the heap is full, the duration of its
+ * fastest member is published as a volatile threshold, so that the vast majority of spans, which are not
+ * among the slowest, are rejected by a single volatile read without locking or copying.  Only spans which
+ * enter the heap are copied.  The number of distinct operations is bounded; once the limit is reached,
+ * spans of further operations compete for the single set named {@link #OVERFLOW_OPERATION}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SlowestSpansReceiver<T> implements FinishedSpanReceiver<T> {
+
+    /**
+     * Operation name under which spans are captured once the operation limit has been reached.
+     */
+    public static final String OVERFLOW_OPERATION = "__overflow__";
+
+    private final int spansPerOperation;
+    private final int maxOperations;
+    private final ConcurrentMap<String, Exemplars<T>> exemplarsMap = new ConcurrentHashMap<>();
+
+    /**
+     * Create a receiver.
+     *
+     * @param spansPerOperation number of spans to capture per operation and interval
+     * @param maxOperations     maximum number of distinct operations to track
+     */
+    public SlowestSpansReceiver(int spansPerOperation, int maxOperations) {
+        if (spansPerOperation < 1) {
+            throw new IllegalArgumentException("spansPerOperation must be positive");
+        }
+        if (maxOperations < 1) {
+            throw new IllegalArgumentException("maxOperations must be positive");
+        }
+        this.spansPerOperation = spansPerOperation;
+        this.maxOperations = maxOperations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        Exemplars<T> exemplars = getExemplars(spanData.getOperationName());
+        long durationMicros = spanData.getFinishTime(TimeUnit.MICROSECONDS)
+                - spanData.getStartTime(TimeUnit.MICROSECONDS);
+        if (durationMicros > exemplars.threshold) {
+            exemplars.offer(spanData, durationMicros);
+        }
+    }
+
+    /**
+     * Collect the slowest spans captured since the previous collection, resetting all operations.
+     * Operations which saw no spans during the interval are omitted.
+     *
+     * @return slowest spans, slowest first, keyed by operation name
+     */
+    public Map<String, List<SpanData<T>>> collect() {
+        Map<String, List<SpanData<T>>> result = new HashMap<>();
+        for (Map.Entry<String, Exemplars<T>> entry : exemplarsMap.entrySet()) {
+            List<SpanData<T>> spans = entry.getValue().drain();
+            if (!spans.isEmpty()) {
+                result.put(entry.getKey(), spans);
+            }
+        }
+        return result;
+    }
+
+    private Exemplars<T> getExemplars(String operationName) {
+        Exemplars<T> exemplars = exemplarsMap.get(operationName);
+        if (exemplars != null) {
+            return exemplars;
+        }
+
+        if (exemplarsMap.size() >= maxOperations - 1) {
+            operationName = OVERFLOW_OPERATION;
+        }
+        Exemplars<T> created = new Exemplars<>(spansPerOperation);
+        exemplars = exemplarsMap.putIfAbsent(operationName, created);
+        return (exemplars == null) ? created : exemplars;
+    }
+
+    private static final class Exemplars<T> {
+        private final int capacity;
+        private final PriorityQueue<Exemplar<T>> heap;
+
+        /**
+         * Duration which a span must exceed to enter the heap, being that of the fastest member once full.
+         */
+        private volatile long threshold = Long.MIN_VALUE;
+
+        private Exemplars(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<>(capacity, Exemplar.DURATION_ORDER);
+        }
+
+        private synchronized void offer(SpanData<T> spanData, long durationMicros) {
+            if (heap.size() == capacity) {
+                if (durationMicros <= heap.peek().durationMicros) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.add(new Exemplar<>(SpanDataSnapshot.of(spanData), durationMicros));
+            if (heap.size() == capacity) {
+                threshold = heap.peek().durationMicros;
+            }
+        }
+
+        private synchronized List<SpanData<T>> drain() {
+            List<Exemplar<T>> exemplars = new ArrayList<>(heap);
+            heap.clear();
+            threshold = Long.MIN_VALUE;
+
+            Collections.sort(exemplars, Collections.reverseOrder(Exemplar.DURATION_ORDER));
+            List<SpanData<T>> spans = new ArrayList<>(exemplars.size());
+            for (Exemplar<T> exemplar : exemplars) {
+                spans.add(exemplar.spanData);
+            }
+            return spans;
+        }
+    }
+
+    private static final class Exemplar<T> {
+        private static final Comparator<Exemplar<?>> DURATION_ORDER = new Comparator<Exemplar<?>>() {
+            @Override
+            public int compare(Exemplar<?> a, Exemplar<?> b) {
+                return Long.compare(a.durationMicros, b.durationMicros);
+            }
+        };
+
+        private final SpanData<T> spanData;
+        private final long durationMicros;
+
+        private Exemplar(SpanData<T> spanData, long durationMicros) {
+            this.spanData = spanData;
+            this.durationMicros = durationMicros;
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Encoder of batches of spans into a wire format.  Implementations typically reuse the same buffer for
+ * every batch and are therefore not thread safe.
+ *
+ * @param <T> trace context type
+ */
+public interface SpanBatchEncoder<T> {
+
+    /**
+     * Encode a batch of spans.
+     *
+     * @param spans spans to encode
+     * @return buffer containing the encoded batch between its position and limit, which is only valid until
+     * the next call to this method
+     */
+    ByteBuffer encode(List<? extends SpanData<T>> spans);
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination for encoded batches of spans, typically a remote collector.
+ *
+ * @see SpoolingSpanExporter
+ */
+public interface SpanBatchSink {
+
+    /**
+     * Send an encoded batch of spans.  The content of the buffer is only valid for the duration of the call.
+     *
+     * @param batch buffer containing the encoded batch between its position and limit
+     * @throws IOException if the batch could not be sent and should be retried
+     */
+    void send(ByteBuffer batch) throws IOException;
+
+}
@@ -41,6 +41,14 @@ final class SpanBuilderImpl<T> implements Tracer.SpanBuilder {
     private final SpanInitiatorContext<T> spanInitiatorContext;
     private final SpanInitiator<T> spanInitiator;
     private final TraceContextHandler<T> traceContextHandler;
+    private final SpanProcessorChain<T> spanProcessors;
+    private final TracerMetrics tracerMetrics;
+    @Nullable
+    private final TraceBudget.Limits traceBudgetLimits;
+    @Nullable
+    private final SpanLimits spanLimits;
+    private final StringDictionary stringDictionary;
+    private final CardinalityLimiter cardinalityLimiter;
     private final String operationName;
 
     private boolean ignoreActiveSpan;
@@ -57,11 +65,23 @@ final class SpanBuilderImpl<T> implements Tracer.SpanBuilder {
             SpanInitiatorContext<T> spanInitiatorContext,
             SpanInitiator<T> spanInitiator,
             TraceContextHandler<T> traceContextHandler,
+            SpanProcessorChain<T> spanProcessors,
+            TracerMetrics tracerMetrics,
+            @Nullable TraceBudget.Limits traceBudgetLimits,
+            @Nullable SpanLimits spanLimits,
+            StringDictionary stringDictionary,
+            CardinalityLimiter cardinalityLimiter,
             String operationName) {
         this.scopeManager = scopeManager;
         this.spanInitiatorContext = spanInitiatorContext;
         this.spanInitiator = spanInitiator;
         this.traceContextHandler = traceContextHandler;
+        this.spanProcessors = spanProcessors;
+        this.tracerMetrics = tracerMetrics;
+        this.traceBudgetLimits = traceBudgetLimits;
+        this.spanLimits = spanLimits;
+        this.stringDictionary = stringDictionary;
+        this.cardinalityLimiter = cardinalityLimiter;
         this.operationName = operationName;
     }
 
@@ -132,7 +152,7 @@ final class SpanBuilderImpl<T> implements Tracer.SpanBuilder {
         if (tags == null) {
             tags = new HashMap<>(5);
         }
-        tags.put(key, value);
+        tags.put(stringDictionary.intern(key), cardinalityLimiter.limitTag(key, value));
         return this;
     }
 
@@ -182,11 +202,47 @@ final class SpanBuilderImpl<T> implements Tracer.SpanBuilder {
      */
     @Override
     public Span start() {
-        SpanState<T> spanState = buildContext();
+        InternalSpanContext<T> spanContext = buildContext();
+        InternalSpanContext<T> traceParent = InternalSpanContext.traceParent(references);
+        spanContext.local = true;
+        spanContext.localRoot = (traceParent == null || !traceParent.local);
+
+        TraceBudget localRootBudget = null;
+        if (traceBudgetLimits != null) {
+            TraceBudget traceBudget = TraceBudget.find(references);
+            if (traceBudget == null) {
+                traceBudget = traceBudgetLimits.newBudget();
+                localRootBudget = traceBudget;
+            }
+            spanContext.traceBudget = traceBudget;
+            long size = TraceBudget.estimateSize(operationName, tags);
+            if (localRootBudget != null) {
+                localRootBudget.chargeRoot(size);
+            } else if (!traceBudget.tryAcquire(size)) {
+                return spanInitiator.initiateSpan(spanInitiatorContext,
+                        new NonRecordingSpanData<>(spanContext, operationName, startTimeUnit, startTimeStamp));
+            }
+        }
+
+        SpanState<T> spanState = new SpanState<>(
+                spanContext,
+                operationName,
+                startTimeUnit,
+                startTimeStamp,
+                tags,
+                references,
+                spanLimits,
+                stringDictionary,
+                cardinalityLimiter);
+        if (localRootBudget != null) {
+            localRootBudget.setRoot(spanState);
+        }
+        spanProcessors.onStart(spanState);
+        tracerMetrics.spanStarted();
         return spanInitiator.initiateSpan(spanInitiatorContext, spanState);
     }
 
-    private SpanState<T> buildContext() {
+    private InternalSpanContext<T> buildContext() {
         ScopeManager scopeManager = this.scopeManager;
 
         if (references == null) {
@@ -221,7 +277,7 @@ final class SpanBuilderImpl<T> implements Tracer.SpanBuilder {
             startTimeStamp = System.currentTimeMillis();
         }
 
-        return new SpanState<>(internalSpanContext, operationName, startTimeUnit, startTimeStamp, tags, references);
+        return internalSpanContext;
     }
 
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.References;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable copy of a span's data, suitable for sharing between multiple threads without further copying.
+ *
+ * @param <T> trace context type
+ */
+final class SpanDataSnapshot<T> implements SpanData<T>, SpanLimitCounts {
+    private final InternalSpanContext<T> spanContext;
+    private final long startTimeMicros;
+    private final long finishTimeMicros;
+    private final String operationName;
+    private final Map<String, String> tags;
+    private final Map<String, List<InternalSpanContext<T>>> references;
+    private final List<LogEvent> logEvents;
+    private final int droppedTagCount;
+    private final int droppedLogEventCount;
+    private final int truncatedValueCount;
+
+    private SpanDataSnapshot(SpanData<T> spanData, long finishTimeMicros) {
+        spanContext = spanData.getSpanContext();
+        startTimeMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+        this.finishTimeMicros = finishTimeMicros;
+        operationName = spanData.getOperationName();
+        tags = copyTags(spanData);
+        references = copyReferences(spanData);
+        logEvents = Collections.unmodifiableList(new ArrayList<>(spanData.getLogEvents()));
+        if (spanData instanceof SpanLimitCounts) {
+            SpanLimitCounts limitCounts = (SpanLimitCounts) spanData;
+            droppedTagCount = limitCounts.getDroppedTagCount();
+            droppedLogEventCount = limitCounts.getDroppedLogEventCount();
+            truncatedValueCount = limitCounts.getTruncatedValueCount();
+        } else {
+            droppedTagCount = 0;
+            droppedLogEventCount = 0;
+            truncatedValueCount = 0;
+        }
+    }
+
+    /**
+     * Obtain an immutable snapshot of the span data provided.
+     *
+     * @param spanData span data
+     * @param <T>      trace context type
+     * @return snapshot instance, which will be the instance provided if it was already a snapshot
+     */
+    static <T> SpanDataSnapshot<T> of(SpanData<T> spanData) {
+        if (spanData instanceof SpanDataSnapshot) {
+            @SuppressWarnings("unchecked")
+            SpanDataSnapshot<T> snapshot = (SpanDataSnapshot<T>) spanData;
+            return snapshot;
+        }
+        return new SpanDataSnapshot<>(spanData, spanData.getFinishTime(TimeUnit.MICROSECONDS));
+    }
+
+    /**
+     * Obtain an immutable snapshot of the data of a span which has not finished, using the finish time
+     * provided in place of the span's own.
+     *
+     * @param spanData         span data
+     * @param finishTimeMicros finish time to record, in microseconds
+     * @param <T>              trace context type
+     * @return snapshot instance
+     */
+    static <T> SpanDataSnapshot<T> unfinished(SpanData<T> spanData, long finishTimeMicros) {
+        return new SpanDataSnapshot<>(spanData, finishTimeMicros);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InternalSpanContext<T> getSpanContext() {
+        return spanContext;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStartTime(TimeUnit timeUnit) {
+        return timeUnit.convert(startTimeMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFinishTime(TimeUnit timeUnit) {
+        return timeUnit.convert(finishTimeMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<? extends InternalSpanContext<T>> getReferences(String referenceType) {
+        return references.get(referenceType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LogEvent> getLogEvents() {
+        return logEvents;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedTagCount() {
+        return droppedTagCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedLogEventCount() {
+        return droppedLogEventCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTruncatedValueCount() {
+        return truncatedValueCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "SpanDataSnapshot{operationName='" + operationName + "'}";
+    }
+
+    private static Map<String, String> copyTags(SpanData<?> spanData) {
+        Map<String, String> copy;
+        if (spanData instanceof SpanState) {
+            copy = ((SpanState<?>) spanData).copyTags();
+        } else {
+            // Tags should not be modified once a span has finished, but tolerate misbehaving callers
+            Map<String, String> source = spanData.getTags();
+            synchronized (source) {
+                copy = new HashMap<>(source);
+            }
+        }
+        return copy.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(copy);
+    }
+
+    private static <T> Map<String, List<InternalSpanContext<T>>> copyReferences(SpanData<T> spanData) {
+        if (spanData instanceof SpanState) {
+            // The reference map is never modified after span creation
+            @SuppressWarnings("unchecked")
+            SpanState<T> spanState = (SpanState<T>) spanData;
+            return spanState.getReferences();
+        }
+
+        Map<String, List<InternalSpanContext<T>>> result = new HashMap<>(4);
+        copyReferences(spanData, References.CHILD_OF, result);
+        copyReferences(spanData, References.FOLLOWS_FROM, result);
+        return result;
+    }
+
+    private static <T> void copyReferences(
+            SpanData<T> spanData,
+            String referenceType,
+            Map<String, List<InternalSpanContext<T>>> destination) {
+        List<? extends InternalSpanContext<T>> list = spanData.getReferences(referenceType);
+        if (list != null) {
+            destination.put(referenceType, Collections.<InternalSpanContext<T>>unmodifiableList(list));
+        }
+    }
+
+}
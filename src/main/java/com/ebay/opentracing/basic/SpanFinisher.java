@@ -16,13 +16,38 @@
 
 package com.ebay.opentracing.basic;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 final class SpanFinisher<T> {
     private final FinishedSpanReceiver<T> receiver;
+    private final SpanProcessorChain<T> spanProcessors;
+    private final TracerMetrics tracerMetrics;
+    private final AbandonedSpanTracker<T> abandonedSpanTracker;
+    private final InFlightSpanRegistry<T> inFlightSpanRegistry;
 
-    SpanFinisher(FinishedSpanReceiver<T> receiver) {
+    /**
+     * Create a finisher which delivers finished spans to the receiver.
+     *
+     * @param receiver             receiver instance
+     * @param spanProcessors       processors whose finish stage is to be run on the finishing thread prior to
+     *                             delivery
+     * @param tracerMetrics        metrics to record finished spans and receiver latency into
+     * @param abandonedSpanTracker tracker from which finished spans are deregistered
+     * @param inFlightSpanRegistry registry from which finished spans are deregistered
+     */
+    SpanFinisher(
+            FinishedSpanReceiver<T> receiver,
+            SpanProcessorChain<T> spanProcessors,
+            TracerMetrics tracerMetrics,
+            AbandonedSpanTracker<T> abandonedSpanTracker,
+            InFlightSpanRegistry<T> inFlightSpanRegistry) {
         this.receiver = receiver;
+        this.spanProcessors = spanProcessors;
+        this.tracerMetrics = tracerMetrics;
+        this.abandonedSpanTracker = abandonedSpanTracker;
+        this.inFlightSpanRegistry = inFlightSpanRegistry;
     }
 
     void finish(MutableSpanData<T> spanState) {
@@ -30,8 +55,39 @@ final class SpanFinisher<T> {
     }
 
     void finish(MutableSpanData<T> spanState, TimeUnit finishTimeUnit, long finishTime) {
+        abandonedSpanTracker.spanFinished(spanState);
+        inFlightSpanRegistry.spanFinished(spanState);
+        TraceBudget traceBudget = spanState.getSpanContext().traceBudget;
+        if (traceBudget != null) {
+            traceBudget.spanFinished(spanState);
+        }
         spanState.setFinishTime(finishTimeUnit, finishTime);
-        receiver.spanFinished(spanState);
+        tracerMetrics.spanFinished(spanState);
+        if (spanProcessors.isEmpty()) {
+            deliver(spanState);
+            return;
+        }
+
+        List<MutableSpanData<T>> batch = new ArrayList<>(1);
+        batch.add(spanState);
+        spanProcessors.onFinish(batch);
+        for (MutableSpanData<T> spanData : batch) {
+            deliver(spanData);
+        }
+    }
+
+    private void deliver(SpanData<T> spanData) {
+        if (!tracerMetrics.isEnabled()) {
+            receiver.spanFinished(spanData);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            receiver.spanFinished(spanData);
+        } finally {
+            tracerMetrics.receiverInvoked(System.nanoTime() - startNanos);
+        }
     }
 
 }
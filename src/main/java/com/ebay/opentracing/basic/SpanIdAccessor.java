@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Interface used by receivers which export spans to external systems to obtain the identifiers held within
+ * an otherwise opaque trace context object.
+ *
+ * @param <T> trace context type
+ */
+public interface SpanIdAccessor<T> {
+
+    /**
+     * Get the ID of the trace to which the span belongs, encoded as a lower-case hexadecimal string.
+     *
+     * @param traceContext trace context
+     * @return trace ID
+     */
+    String getTraceId(T traceContext);
+
+    /**
+     * Get the ID of the span, encoded as a lower-case hexadecimal string.
+     *
+     * @param traceContext trace context
+     * @return span ID
+     */
+    String getSpanId(T traceContext);
+
+}
@@ -28,7 +28,7 @@ import java.util.concurrent.TimeUnit;
  * @param <S> span class type
  * @param <T> trace context type
  */
-class SpanImpl<S extends Span, T> implements Span {
+class SpanImpl<S extends Span, T> implements BasicSpan {
     private static final String DEFAULT_EVENT_NAME = "event";
 
     private final MutableSpanData<T> spanState;
@@ -140,6 +140,48 @@ class SpanImpl<S extends Span, T> implements Span {
         return logAll(TimeUnit.MILLISECONDS, System.currentTimeMillis(), fields);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRecording() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final BasicSpan setTag(String key, CharSequence value) {
+        if (value instanceof String) {
+            spanState.putTag(key, (String) value);
+        } else if (value != null) {
+            putDeferredTag(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final BasicSpan setTag(String key, ValueSupplier<?> valueSupplier) {
+        putDeferredTag(key, valueSupplier);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final BasicSpan log(String field, ValueSupplier<?> valueSupplier) {
+        if (isRecording()) {
+            Object payload = (spanState instanceof SpanState) ? valueSupplier : SpanState.resolve(valueSupplier);
+            log(TimeUnit.MILLISECONDS, System.currentTimeMillis(), field, payload);
+        }
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -166,6 +208,17 @@ class SpanImpl<S extends Span, T> implements Span {
         return spanState.toString();
     }
 
+    private void putDeferredTag(String key, Object value) {
+        if (!isRecording()) {
+            return;
+        }
+        if (spanState instanceof SpanState) {
+            ((SpanState<T>) spanState).putDeferredTag(key, value);
+        } else {
+            spanState.putTag(key, SpanState.resolve(value));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private S log(TimeUnit timeUnit, long timeStamp, String eventName, Object payload) {
         LogEvent logEvent = new LogEvent(timeUnit, timeStamp, eventName, payload);
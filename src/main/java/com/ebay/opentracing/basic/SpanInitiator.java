@@ -33,6 +33,9 @@ public interface SpanInitiator<T> {
      * context does provide access to the {@link io.opentracing.ScopeManager} to expose any potential currently
      * active span.
      *
+     * Spans suppressed by the tracer's trace budget are also passed to the initiator, with span data which records
+     * nothing.  The span created for them by the initiator context is never delivered to the receiver.
+     *
      * @param initiatorContext context in which the span is being created, providing access to the necessary internals
      * @param spanData the span data being turned into a {@link Span}
      * @return new span instance
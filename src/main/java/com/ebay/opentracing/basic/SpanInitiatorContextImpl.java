@@ -28,12 +28,21 @@ final class SpanInitiatorContextImpl<T> implements SpanInitiatorContext<T> {
 
     private ScopeManager scopeManager;
     private SpanFinisher<T> spanFinisher;
+    private AbandonedSpanTracker<T> abandonedSpanTracker;
+    private InFlightSpanRegistry<T> inFlightSpanRegistry;
+    private SpanStartedListener<T> spanStartedListener;
 
     SpanInitiatorContextImpl(
             ScopeManager scopeManager,
-            SpanFinisher<T> spanFinisher) {
+            SpanFinisher<T> spanFinisher,
+            AbandonedSpanTracker<T> abandonedSpanTracker,
+            InFlightSpanRegistry<T> inFlightSpanRegistry,
+            SpanStartedListener<T> spanStartedListener) {
         this.scopeManager = scopeManager;
         this.spanFinisher = spanFinisher;
+        this.abandonedSpanTracker = abandonedSpanTracker;
+        this.inFlightSpanRegistry = inFlightSpanRegistry;
+        this.spanStartedListener = spanStartedListener;
     }
 
     /**
@@ -49,7 +58,15 @@ final class SpanInitiatorContextImpl<T> implements SpanInitiatorContext<T> {
      */
     @Override
     public Span createSpan(MutableSpanData<T> spanData) {
-        return new SpanImpl<>(spanData, spanFinisher);
+        if (spanData instanceof NonRecordingSpanData) {
+            // Spans suppressed by a trace budget are neither tracked nor delivered
+            return new NonRecordingSpan<>((NonRecordingSpanData<T>) spanData);
+        }
+        SpanImpl<Span, T> span = new SpanImpl<>(spanData, spanFinisher);
+        abandonedSpanTracker.spanStarted(span, spanData);
+        inFlightSpanRegistry.spanStarted(spanData);
+        spanStartedListener.spanStarted(spanData);
+        return span;
     }
 
 }
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * {@link FinishedSpanReceiver} implementation which appends finished spans to a journal of memory-mapped
+ * segment files, allowing spans to survive exporter outages and process restarts without being held on the
+ * heap.  The journal is consumed via a {@link SpanJournalReader}.
+ * <p>
+ * Spans are encoded into a thread-local buffer on the finishing thread and then copied into the mapped
+ * segment while holding a lock, so the serialized portion of a write is a bounded copy.  Each record is
+ * preceded by its length and a CRC-32 of its content, the length being written last to act as the record's
+ * commit marker.  Records which were only partially written when the process died are therefore ignored.
+ * A new segment is started every time the journal is opened, so segments are never appended to after a
+ * restart.
+ * <p>
+ * The next segment is created and mapped ahead of time by a background thread, under a pending name which
+ * readers ignore.  When the active segment is full the finishing thread switches to the prepared segment,
+ * which only involves swapping buffers.  The background thread then publishes the new segment under its
+ * segment name, deletes the oldest segments until the journal fits within its size limit and no segment is
+ * older than the maximum segment age, and prepares the next segment.  Spans which find the active segment full
+ * before the next one has been prepared are dropped.  Data is written to the operating system's page cache
+ * and so survives the death of the process; use {@link #flush()} when it must also survive the loss of the
+ * machine.
+ * <p>
+ * Instances are created via {@link SpanJournalBuilder}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanJournal<T> implements FinishedSpanReceiver<T>, Closeable {
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String PENDING_SEGMENT_SUFFIX = ".next";
+    static final int SEGMENT_MAGIC = 0x53504E4A; // "SPNJ"
+    static final int SEGMENT_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final AtomicInteger THREAD_SERIAL = new AtomicInteger();
+    private static final long RETRY_INTERVAL_MS = 1000L;
+
+    private final Path directory;
+    private final SpanRecordCodec<T> codec;
+    private final int segmentSize;
+    private final long maxTotalSize;
+    private final long maxSegmentAgeMillis;
+    private final ThreadLocal<ByteBuffer> encodeBuffers;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Object lock = new Object();
+    private final Thread worker;
+
+    // Guarded by lock
+    private long segmentId;
+    @Nullable
+    private MappedByteBuffer segment;
+    @Nullable
+    private MappedByteBuffer preparedSegment;
+    private boolean maintenanceDue;
+    private boolean closed;
+
+    SpanJournal(
+            Path directory,
+            SpanIdAccessor<T> spanIdAccessor,
+            int segmentSize,
+            final int maxRecordSize,
+            long maxTotalSize,
+            long maxSegmentAgeMillis) throws IOException {
+        this.directory = directory;
+        this.codec = new SpanRecordCodec<>(spanIdAccessor);
+        this.segmentSize = segmentSize;
+        this.maxTotalSize = maxTotalSize;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.encodeBuffers = new ThreadLocal<ByteBuffer>() {
+            @Override
+            protected ByteBuffer initialValue() {
+                return ByteBuffer.allocate(maxRecordSize);
+            }
+        };
+
+        Files.createDirectories(directory);
+        publishPendingSegments(directory);
+        List<Long> segmentIds = segmentIds(directory);
+        segmentId = segmentIds.isEmpty() ? 1L : segmentIds.get(segmentIds.size() - 1) + 1;
+        segment = createSegment(segmentPath(directory, segmentId), StandardOpenOption.CREATE_NEW);
+        deleteExpiredSegments(segmentId);
+        maintenanceDue = true;
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                maintain();
+            }
+        }, "basic-tracer-span-journal-" + THREAD_SERIAL.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        ByteBuffer buffer = encodeBuffers.get();
+        buffer.clear();
+        try {
+            codec.encode(spanData, buffer);
+        } catch (BufferOverflowException e) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        buffer.flip();
+        int length = buffer.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset(), length);
+
+        synchronized (lock) {
+            if (closed) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            MappedByteBuffer segment = this.segment;
+            if (segment == null || segment.remaining() < RECORD_HEADER_SIZE + length) {
+                segment = switchSegment();
+                if (segment == null) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+            }
+            int position = segment.position();
+            segment.putInt(position + 4, (int) crc.getValue());
+            segment.position(position + RECORD_HEADER_SIZE);
+            segment.put(buffer);
+            // Commit marker
+            segment.putInt(position, length);
+        }
+    }
+
+    /**
+     * Get the number of spans which could not be written to the journal, either because their encoded form
+     * exceeded the maximum record size or because the active segment was full and the next segment had not
+     * been prepared.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Force the content of the active segment to be written to the storage device.
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Flush the active segment, stop accepting spans and stop the background thread.  Spans finished after
+     * the journal has been closed are counted as dropped.
+     */
+    @Override
+    public void close() {
+        long activeSegmentId;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (segment != null) {
+                segment.force();
+                segment = null;
+            }
+            preparedSegment = null;
+            closed = true;
+            activeSegmentId = segmentId;
+            lock.notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            publishSegment(activeSegmentId);
+            Files.deleteIfExists(pendingSegmentPath(directory, activeSegmentId + 1));
+        } catch (IOException e) {
+            // Any pending segment is published when the journal is next opened
+        }
+    }
+
+    /**
+     * Determine whether the segment to switch to once the active segment is full has been prepared.
+     *
+     * @return true if prepared
+     */
+    boolean isSegmentPrepared() {
+        synchronized (lock) {
+            return preparedSegment != null;
+        }
+    }
+
+    @Nullable
+    private MappedByteBuffer switchSegment() {
+        MappedByteBuffer prepared = preparedSegment;
+        if (prepared == null) {
+            return null;
+        }
+        preparedSegment = null;
+        // Segment age is measured from when the segment is first used, not from when it was prepared
+        prepared.putLong(8, System.currentTimeMillis());
+        segmentId++;
+        segment = prepared;
+        maintenanceDue = true;
+        lock.notifyAll();
+        return prepared;
+    }
+
+    private void maintain() {
+        boolean failed = false;
+        while (true) {
+            long activeSegmentId;
+            synchronized (lock) {
+                while (!closed && !maintenanceDue) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Shutdown is signalled via the closed flag
+                    }
+                }
+                if (!closed && failed) {
+                    try {
+                        lock.wait(RETRY_INTERVAL_MS);
+                    } catch (InterruptedException e) {
+                        // Shutdown is signalled via the closed flag
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                maintenanceDue = false;
+                activeSegmentId = segmentId;
+            }
+
+            try {
+                // The active segment is only published once used, so readers never see a later segment early
+                publishSegment(activeSegmentId);
+                deleteExpiredSegments(activeSegmentId);
+                if (!isSegmentPrepared()) {
+                    // A pending segment left by a failed attempt has never been used, so may be overwritten
+                    MappedByteBuffer prepared = createSegment(
+                            pendingSegmentPath(directory, activeSegmentId + 1), StandardOpenOption.CREATE);
+                    synchronized (lock) {
+                        if (!closed) {
+                            preparedSegment = prepared;
+                        }
+                    }
+                }
+                failed = false;
+            } catch (IOException e) {
+                failed = true;
+                synchronized (lock) {
+                    maintenanceDue = true;
+                }
+            }
+        }
+    }
+
+    private MappedByteBuffer createSegment(Path path, StandardOpenOption createOption) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path,
+                createOption, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+        }
+        mapped.putInt(SEGMENT_MAGIC);
+        mapped.putInt(SEGMENT_VERSION);
+        mapped.putLong(System.currentTimeMillis());
+        return mapped;
+    }
+
+    private void publishSegment(long id) throws IOException {
+        Path pending = pendingSegmentPath(directory, id);
+        if (Files.exists(pending)) {
+            Files.move(pending, segmentPath(directory, id), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Publish the segments left pending by a previous instance which was not closed, in case they were used.
+     */
+    private static void publishPendingSegments(Path directory) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PENDING_SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                Path published = directory.resolve(
+                        fileName.substring(0, fileName.length() - PENDING_SEGMENT_SUFFIX.length()) + SEGMENT_SUFFIX);
+                Files.move(path, published, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    private void deleteExpiredSegments(long activeSegmentId) throws IOException {
+        List<Long> segmentIds = segmentIds(directory);
+        long now = System.currentTimeMillis();
+        long totalSize = segmentSize;
+        for (int i = segmentIds.size() - 1; i >= 0; i--) {
+            long id = segmentIds.get(i);
+            if (id >= activeSegmentId) {
+                continue;
+            }
+
+            Path path = segmentPath(directory, id);
+            try {
+                totalSize += Files.size(path);
+                if (totalSize > maxTotalSize || now - segmentCreationTime(path) > maxSegmentAgeMillis) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (NoSuchFileException e) {
+                // Already removed
+            }
+        }
+    }
+
+    static Path segmentPath(Path directory, long segmentId) {
+        return directory.resolve(String.format("%020d%s", segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static Path pendingSegmentPath(Path directory, long segmentId) {
+        return directory.resolve(String.format("%020d%s", segmentId, PENDING_SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Get the IDs of the segments present in the journal directory.
+     *
+     * @param directory journal directory
+     * @return segment IDs in ascending order
+     * @throws IOException if the directory could not be read
+     */
+    static List<Long> segmentIds(Path directory) throws IOException {
+        List<Long> segmentIds = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                try {
+                    segmentIds.add(Long.parseLong(
+                            fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(segmentIds);
+        return segmentIds;
+    }
+
+    private static long segmentCreationTime(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading
+            }
+        }
+        header.flip();
+        if (header.remaining() < SEGMENT_HEADER_SIZE || header.getInt() != SEGMENT_MAGIC) {
+            // Not a valid segment, treat as expired
+            return 0L;
+        }
+        header.getInt();
+        return header.getLong();
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for creating instances of {@link SpanJournal}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanJournalBuilder<T> {
+    private final Path directory;
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private int segmentSize = 16 * 1024 * 1024;
+    private int maxRecordSize = 64 * 1024;
+    private long maxTotalSize = 256L * 1024 * 1024;
+    private long maxSegmentAgeMillis = TimeUnit.DAYS.toMillis(1L);
+
+    /**
+     * Create a builder for a journal stored in the directory provided.
+     *
+     * @param directory      journal directory, which will be created if necessary
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     */
+    public SpanJournalBuilder(Path directory, SpanIdAccessor<T> spanIdAccessor) {
+        this.directory = Objects.requireNonNull(directory, "directory may not be null");
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+    }
+
+    /**
+     * Configure the size of each segment file.  Defaults to 16 MiB.
+     *
+     * @param segmentSize segment size, in bytes
+     * @return builder instance
+     */
+    public SpanJournalBuilder<T> segmentSize(int segmentSize) {
+        if (segmentSize <= SpanJournal.SEGMENT_HEADER_SIZE + SpanJournal.RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * Configure the maximum size of an encoded span.  Larger spans are dropped.  Defaults to 64 KiB.
+     *
+     * @param maxRecordSize maximum record size, in bytes
+     * @return builder instance
+     */
+    public SpanJournalBuilder<T> maxRecordSize(int maxRecordSize) {
+        if (maxRecordSize < 1) {
+            throw new IllegalArgumentException("maxRecordSize must be positive");
+        }
+        this.maxRecordSize = maxRecordSize;
+        return this;
+    }
+
+    /**
+     * Configure the maximum total size of the journal, beyond which the oldest segments are deleted.
+     * Defaults to 256 MiB.
+     *
+     * @param maxTotalSize maximum journal size, in bytes
+     * @return builder instance
+     */
+    public SpanJournalBuilder<T> maxTotalSize(long maxTotalSize) {
+        if (maxTotalSize < 1L) {
+            throw new IllegalArgumentException("maxTotalSize must be positive");
+        }
+        this.maxTotalSize = maxTotalSize;
+        return this;
+    }
+
+    /**
+     * Configure the maximum age of a segment, beyond which it is deleted.  Defaults to one day.
+     *
+     * @param maxSegmentAge maximum segment age
+     * @param timeUnit      unit of the maximum segment age
+     * @return builder instance
+     */
+    public SpanJournalBuilder<T> maxSegmentAge(long maxSegmentAge, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (maxSegmentAge < 1L) {
+            throw new IllegalArgumentException("maxSegmentAge must be positive");
+        }
+        this.maxSegmentAgeMillis = timeUnit.toMillis(maxSegmentAge);
+        return this;
+    }
+
+    /**
+     * Open the journal, starting a new segment.
+     *
+     * @return journal instance
+     * @throws IOException if the journal directory or segment could not be created
+     */
+    public SpanJournal<T> build() throws IOException {
+        if (maxRecordSize > segmentSize - SpanJournal.SEGMENT_HEADER_SIZE - SpanJournal.RECORD_HEADER_SIZE) {
+            throw new IllegalStateException("maxRecordSize does not fit within segmentSize");
+        }
+        if (maxTotalSize < segmentSize) {
+            throw new IllegalStateException("maxTotalSize may not be less than segmentSize");
+        }
+        return new SpanJournal<>(
+                directory, spanIdAccessor, segmentSize, maxRecordSize, maxTotalSize, maxSegmentAgeMillis);
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Reader of the spans written to a {@link SpanJournal}.  The reader's position is persisted within the
+ * journal directory by {@link #commit()}, allowing a reader created after a restart to resume from the
+ * last committed position.  Spans read but not committed prior to a restart will be read again.
+ * <p>
+ * Segments deleted by the journal's retention limits before they have been read are skipped.  Instances
+ * are not thread safe.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanJournalReader implements Closeable {
+    static final String OFFSET_FILE_NAME = "reader.offset";
+
+    private final Path directory;
+    private final Path offsetPath;
+
+    private long segmentId;
+    private int position;
+    @Nullable
+    private MappedByteBuffer segment;
+
+    /**
+     * Create a reader of the journal in the directory provided, resuming from the last committed position.
+     *
+     * @param directory journal directory
+     * @throws IOException if the committed position could not be read
+     */
+    public SpanJournalReader(Path directory) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory may not be null");
+        this.offsetPath = directory.resolve(OFFSET_FILE_NAME);
+        try {
+            ByteBuffer offset = ByteBuffer.wrap(Files.readAllBytes(offsetPath));
+            segmentId = offset.getLong();
+            position = offset.getInt();
+        } catch (NoSuchFileException e) {
+            segmentId = 0L;
+            position = SpanJournal.SEGMENT_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Read the spans which follow the reader's current position.
+     *
+     * @param maxRecords maximum number of spans to read
+     * @return spans read, which will be empty if no further spans have been committed to the journal
+     * @throws IOException if a segment could not be read
+     */
+    public List<SpanRecord> read(int maxRecords) throws IOException {
+        if (maxRecords < 1) {
+            throw new IllegalArgumentException("maxRecords must be positive");
+        }
+
+        List<SpanRecord> records = new ArrayList<>(Math.min(maxRecords, 256));
+        while (records.size() < maxRecords) {
+            if (segment == null && !openSegment()) {
+                break;
+            }
+
+            SpanRecord record = readRecord();
+            if (record == null) {
+                if (!hasLaterSegment()) {
+                    break;
+                }
+                // The writer never returns to a segment once a later one exists, so a final attempt is conclusive
+                record = readRecord();
+                if (record == null) {
+                    segmentId++;
+                    position = SpanJournal.SEGMENT_HEADER_SIZE;
+                    segment = null;
+                    continue;
+                }
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Persist the reader's current position.
+     *
+     * @throws IOException if the position could not be written
+     */
+    public void commit() throws IOException {
+        ByteBuffer offset = ByteBuffer.allocate(12);
+        offset.putLong(segmentId);
+        offset.putInt(position);
+        Path temp = directory.resolve(OFFSET_FILE_NAME + ".tmp");
+        Files.write(temp, offset.array());
+        Files.move(temp, offsetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        segment = null;
+    }
+
+    @Nullable
+    private SpanRecord readRecord() throws IOException {
+        MappedByteBuffer segment = this.segment;
+        if (position + SpanJournal.RECORD_HEADER_SIZE > segment.limit()) {
+            return null;
+        }
+        int length = segment.getInt(position);
+        if (length <= 0 || length > segment.limit() - position - SpanJournal.RECORD_HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer content = segment.duplicate();
+        content.position(position + SpanJournal.RECORD_HEADER_SIZE);
+        content.limit(position + SpanJournal.RECORD_HEADER_SIZE + length);
+        byte[] bytes = new byte[length];
+        content.get(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        if ((int) crc.getValue() != segment.getInt(position + 4)) {
+            // Torn or not yet fully visible
+            return null;
+        }
+
+        SpanRecord record;
+        try {
+            record = SpanRecordCodec.decode(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid span record in segment " + segmentId + " at " + position, e);
+        }
+        position += SpanJournal.RECORD_HEADER_SIZE + length;
+        return record;
+    }
+
+    private boolean openSegment() throws IOException {
+        List<Long> segmentIds = SpanJournal.segmentIds(directory);
+        for (long id : segmentIds) {
+            if (id < segmentId) {
+                continue;
+            }
+            if (id > segmentId) {
+                // Our segment was deleted before being read
+                segmentId = id;
+                position = SpanJournal.SEGMENT_HEADER_SIZE;
+            }
+            try (FileChannel channel = FileChannel.open(
+                    SpanJournal.segmentPath(directory, id), StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            if (segment.limit() < SpanJournal.SEGMENT_HEADER_SIZE
+                    || segment.getInt(0) != SpanJournal.SEGMENT_MAGIC
+                    || segment.getInt(4) != SpanJournal.SEGMENT_VERSION) {
+                throw new IOException("Invalid journal segment: " + SpanJournal.segmentPath(directory, id));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean hasLaterSegment() throws IOException {
+        List<Long> segmentIds = SpanJournal.segmentIds(directory);
+        return !segmentIds.isEmpty() && segmentIds.get(segmentIds.size() - 1) > segmentId;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Interface providing access to the number of tags, log events and values affected by the tracer's
+ * {@link SpanLimits}.  The {@link SpanData} instances provided by the tracer implement this interface, while
+ * {@link SpanData} implementations provided by other code need not.
+ */
+public interface SpanLimitCounts {
+
+    /**
+     * Get the number of tags which were dropped due to the tracer's {@link SpanLimits}.
+     *
+     * @return dropped tag count
+     */
+    int getDroppedTagCount();
+
+    /**
+     * Get the number of log events which were dropped due to the tracer's {@link SpanLimits}.
+     *
+     * @return dropped log event count
+     */
+    int getDroppedLogEventCount();
+
+    /**
+     * Get the number of tag values and log event payloads which were truncated due to the tracer's
+     * {@link SpanLimits}.
+     *
+     * @return truncated value count
+     */
+    int getTruncatedValueCount();
+
+}
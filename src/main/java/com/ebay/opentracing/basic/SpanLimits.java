@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Limits on the data recorded for each span, bounding the memory which a single span can retain.  Tags and
+ * log events beyond the limits are dropped, and values which are too long are truncated.  The number of
+ * each is available from the span's {@link SpanData}, which implements {@link SpanLimitCounts}.
+ *
+ * @see SpanLimitsBuilder
+ * @see BasicTracerBuilder#spanLimits(SpanLimits)
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanLimits {
+    private final int maxTags;
+    private final int maxLogEvents;
+    private final int maxValueLength;
+    private final int maxPayloadLength;
+
+    SpanLimits(int maxTags, int maxLogEvents, int maxValueLength, int maxPayloadLength) {
+        this.maxTags = maxTags;
+        this.maxLogEvents = maxLogEvents;
+        this.maxValueLength = maxValueLength;
+        this.maxPayloadLength = maxPayloadLength;
+    }
+
+    /**
+     * Get the maximum number of tags per span.
+     *
+     * @return maximum tag count
+     */
+    public int getMaxTags() {
+        return maxTags;
+    }
+
+    /**
+     * Get the maximum number of log events per span.
+     *
+     * @return maximum log event count
+     */
+    public int getMaxLogEvents() {
+        return maxLogEvents;
+    }
+
+    /**
+     * Get the length, in characters, beyond which tag values and string log event payloads are truncated.
+     *
+     * @return maximum value length
+     */
+    public int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    /**
+     * Get the maximum combined length, in characters, of the tag keys and values and log event names and
+     * payloads of each span.  Log event payloads which are not strings count as eight characters.
+     *
+     * @return maximum payload length
+     */
+    public int getMaxPayloadLength() {
+        return maxPayloadLength;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Builder for creating instances of {@link SpanLimits}.  Limits which are not configured are unbounded.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanLimitsBuilder {
+    private int maxTags = Integer.MAX_VALUE;
+    private int maxLogEvents = Integer.MAX_VALUE;
+    private int maxValueLength = Integer.MAX_VALUE;
+    private int maxPayloadLength = Integer.MAX_VALUE;
+
+    /**
+     * Configure the maximum number of tags per span.  Further tags are dropped, although tags which are
+     * already present may still be replaced.
+     *
+     * @param maxTags maximum tag count
+     * @return builder instance
+     */
+    public SpanLimitsBuilder maxTags(int maxTags) {
+        if (maxTags < 0) {
+            throw new IllegalArgumentException("maxTags may not be negative");
+        }
+        this.maxTags = maxTags;
+        return this;
+    }
+
+    /**
+     * Configure the maximum number of log events per span.  Further log events are dropped.
+     *
+     * @param maxLogEvents maximum log event count
+     * @return builder instance
+     */
+    public SpanLimitsBuilder maxLogEvents(int maxLogEvents) {
+        if (maxLogEvents < 0) {
+            throw new IllegalArgumentException("maxLogEvents may not be negative");
+        }
+        this.maxLogEvents = maxLogEvents;
+        return this;
+    }
+
+    /**
+     * Configure the length, in characters, beyond which tag values and string log event payloads are
+     * truncated.
+     *
+     * @param maxValueLength maximum value length
+     * @return builder instance
+     */
+    public SpanLimitsBuilder maxValueLength(int maxValueLength) {
+        if (maxValueLength < 1) {
+            throw new IllegalArgumentException("maxValueLength must be positive");
+        }
+        this.maxValueLength = maxValueLength;
+        return this;
+    }
+
+    /**
+     * Configure the maximum combined length, in characters, of the tag keys and values and log event names
+     * and payloads of each span.  Tags and log events which would exceed it are dropped.
+     *
+     * @param maxPayloadLength maximum payload length
+     * @return builder instance
+     */
+    public SpanLimitsBuilder maxPayloadLength(int maxPayloadLength) {
+        if (maxPayloadLength < 0) {
+            throw new IllegalArgumentException("maxPayloadLength may not be negative");
+        }
+        this.maxPayloadLength = maxPayloadLength;
+        return this;
+    }
+
+    /**
+     * Create the limits.
+     *
+     * @return limits instance
+     */
+    public SpanLimits build() {
+        return new SpanLimits(maxTags, maxLogEvents, maxValueLength, maxPayloadLength);
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.List;
+
+/**
+ * Stage in the span processing pipeline which sits between the tracer and the {@link FinishedSpanReceiver}.
+ * Processors can be used to filter, enrich or redact span data before it reaches the receiver.
+ * <p>
+ * When the tracer has been configured for asynchronous delivery, the finish stage of all processors is run
+ * on the delivery thread, in batches.  Otherwise it is run on the thread which finishes the span, with a
+ * batch containing only that span.
+ *
+ * @param <T> trace context type
+ * @see BasicTracerBuilder#addSpanProcessor(SpanProcessor)
+ * @see BasicTracerBuilder#asyncDelivery(int, BackpressurePolicy)
+ */
+public interface SpanProcessor<T> {
+
+    /**
+     * Called on the thread which starts the span, before the span is returned to the caller.  As this
+     * directly adds to the cost of starting a span, only cheap work should be done here.
+     *
+     * @param spanData span data
+     */
+    void onStart(MutableSpanData<T> spanData);
+
+    /**
+     * Called with a batch of finished spans prior to their delivery to the receiver.  Span data within the
+     * batch may be modified, and spans may be removed from the batch to prevent their delivery.
+     *
+     * @param spans modifiable list of finished spans
+     */
+    void onFinish(List<MutableSpanData<T>> spans);
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered, immutable collection of {@link SpanProcessor}s which are run as a unit.
+ *
+ * @param <T> trace context type
+ */
+final class SpanProcessorChain<T> {
+    private final SpanProcessor<T>[] processors;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    SpanProcessorChain(List<SpanProcessor<T>> processors) {
+        this.processors = processors.toArray(new SpanProcessor[processors.size()]);
+    }
+
+    static <T> SpanProcessorChain<T> empty() {
+        return new SpanProcessorChain<>(Collections.<SpanProcessor<T>>emptyList());
+    }
+
+    boolean isEmpty() {
+        return processors.length == 0;
+    }
+
+    /**
+     * Run the start stage of all processors.
+     *
+     * @param spanData span data
+     */
+    void onStart(MutableSpanData<T> spanData) {
+        for (SpanProcessor<T> processor : processors) {
+            processor.onStart(spanData);
+        }
+    }
+
+    /**
+     * Run the finish stage of all processors, stopping early if the batch becomes empty.
+     *
+     * @param spans modifiable list of finished spans
+     */
+    void onFinish(List<MutableSpanData<T>> spans) {
+        for (SpanProcessor<T> processor : processors) {
+            if (spans.isEmpty()) {
+                return;
+            }
+            processor.onFinish(spans);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoded form of a span which has been persisted outside of the process, identified by its trace and span
+ * IDs rather than by a trace context object.
+ *
+ * @see SpanJournalReader
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanRecord {
+    private final String traceId;
+    private final String spanId;
+    @Nullable
+    private final String parentSpanId;
+    private final String operationName;
+    private final long startTimeMicros;
+    private final long finishTimeMicros;
+    private final Map<String, String> tags;
+    private final List<LogEvent> logEvents;
+
+    SpanRecord(
+            String traceId,
+            String spanId,
+            @Nullable String parentSpanId,
+            String operationName,
+            long startTimeMicros,
+            long finishTimeMicros,
+            Map<String, String> tags,
+            List<LogEvent> logEvents) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.operationName = operationName;
+        this.startTimeMicros = startTimeMicros;
+        this.finishTimeMicros = finishTimeMicros;
+        this.tags = tags;
+        this.logEvents = logEvents;
+    }
+
+    /**
+     * Get the ID of the trace to which the span belongs.
+     *
+     * @return trace ID
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * Get the ID of the span.
+     *
+     * @return span ID
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Get the ID of the span's first child-of parent.
+     *
+     * @return parent span ID or {@code null} if the span had no child-of parent
+     */
+    @Nullable
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Get the operation name of the span.
+     *
+     * @return operation name
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Get the start time of the span.
+     *
+     * @param timeUnit time unit to return the time in
+     * @return start time
+     */
+    public long getStartTime(TimeUnit timeUnit) {
+        return timeUnit.convert(startTimeMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Get the finish time of the span.
+     *
+     * @param timeUnit time unit to return the time in
+     * @return finish time
+     */
+    public long getFinishTime(TimeUnit timeUnit) {
+        return timeUnit.convert(finishTimeMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Get the tags of the span.
+     *
+     * @return unmodifiable map of tags
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Get the log events of the span.  Payloads are decoded in their string form.
+     *
+     * @return unmodifiable list of log events
+     */
+    public List<LogEvent> getLogEvents() {
+        return logEvents;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "SpanRecord{traceId='" + traceId + "', spanId='" + spanId
+                + "', operationName='" + operationName + "'}";
+    }
+
+}
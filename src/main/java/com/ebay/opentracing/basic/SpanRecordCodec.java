@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.References;
+
+import javax.annotation.Nullable;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact binary encoding of a single span.  Integers are encoded as variable length quantities and strings
+ * as UTF-8 bytes preceded by their length plus one, a length of zero denoting {@code null}.  Log event
+ * payloads are encoded in their string form.
+ *
+ * @param <T> trace context type
+ */
+final class SpanRecordCodec<T> {
+    private final SpanIdAccessor<T> spanIdAccessor;
+
+    SpanRecordCodec(SpanIdAccessor<T> spanIdAccessor) {
+        this.spanIdAccessor = spanIdAccessor;
+    }
+
+    /**
+     * Encode span data into the buffer provided, starting at the buffer's position.
+     *
+     * @param spanData span data
+     * @param buffer   buffer to encode into
+     * @throws BufferOverflowException if the encoded span does not fit into the buffer
+     */
+    void encode(SpanData<T> spanData, ByteBuffer buffer) {
+        T traceContext = spanData.getSpanContext().getTraceContext();
+        putString(buffer, spanIdAccessor.getTraceId(traceContext));
+        putString(buffer, spanIdAccessor.getSpanId(traceContext));
+        putString(buffer, parentSpanId(spanData));
+        putString(buffer, spanData.getOperationName());
+        long startTimeMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+        putVarLong(buffer, startTimeMicros);
+        putVarLong(buffer, spanData.getFinishTime(TimeUnit.MICROSECONDS) - startTimeMicros);
+
+        Map<String, String> tags = spanData.getTags();
+        putVarLong(buffer, tags.size());
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            putString(buffer, entry.getKey());
+            putString(buffer, entry.getValue());
+        }
+
+        List<LogEvent> logEvents = spanData.getLogEvents();
+        putVarLong(buffer, logEvents.size());
+        for (LogEvent logEvent : logEvents) {
+            putVarLong(buffer, logEvent.getTimeStamp(TimeUnit.MICROSECONDS) - startTimeMicros);
+            putString(buffer, logEvent.getEventName());
+            Object payload = logEvent.getPayload();
+            putString(buffer, (payload == null) ? null : payload.toString());
+        }
+    }
+
+    /**
+     * Decode a span from the buffer provided, starting at the buffer's position.
+     *
+     * @param buffer buffer to decode from
+     * @return decoded span
+     * @throws IllegalArgumentException if the buffer does not contain a valid record
+     */
+    static SpanRecord decode(ByteBuffer buffer) {
+        try {
+            String traceId = getString(buffer);
+            String spanId = getString(buffer);
+            String parentSpanId = getString(buffer);
+            String operationName = getString(buffer);
+            long startTimeMicros = getVarLong(buffer);
+            long finishTimeMicros = startTimeMicros + getVarLong(buffer);
+
+            int tagCount = getCount(buffer);
+            Map<String, String> tags;
+            if (tagCount == 0) {
+                tags = Collections.emptyMap();
+            } else {
+                tags = new HashMap<>(tagCount * 2);
+                for (int i = 0; i < tagCount; i++) {
+                    tags.put(getString(buffer), getString(buffer));
+                }
+                tags = Collections.unmodifiableMap(tags);
+            }
+
+            int logEventCount = getCount(buffer);
+            List<LogEvent> logEvents;
+            if (logEventCount == 0) {
+                logEvents = Collections.emptyList();
+            } else {
+                logEvents = new ArrayList<>(logEventCount);
+                for (int i = 0; i < logEventCount; i++) {
+                    long timeStamp = startTimeMicros + getVarLong(buffer);
+                    logEvents.add(new LogEvent(TimeUnit.MICROSECONDS, timeStamp, getString(buffer), getString(buffer)));
+                }
+                logEvents = Collections.unmodifiableList(logEvents);
+            }
+
+            return new SpanRecord(traceId, spanId, parentSpanId, operationName,
+                    startTimeMicros, finishTimeMicros, tags, logEvents);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated span record", e);
+        }
+    }
+
+    @Nullable
+    private String parentSpanId(SpanData<T> spanData) {
+        List<? extends InternalSpanContext<T>> parents = spanData.getReferences(References.CHILD_OF);
+        if (parents == null || parents.isEmpty()) {
+            return null;
+        }
+        return spanIdAccessor.getSpanId(parents.get(0).getTraceContext());
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer");
+    }
+
+    static void putString(ByteBuffer buffer, @Nullable String value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarLong(buffer, bytes.length + 1L);
+        buffer.put(bytes);
+    }
+
+    @Nullable
+    static String getString(ByteBuffer buffer) {
+        long length = getVarLong(buffer) - 1L;
+        if (length < 0L) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[(int) length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int getCount(ByteBuffer buffer) {
+        long count = getVarLong(buffer);
+        if (count < 0L || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed span record count");
+        }
+        return (int) count;
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Append-only directory of encoded span batches awaiting delivery, one file per batch.  Files are written
+ * under a temporary name and then renamed, so a batch is either fully present or absent after a crash.
+ * When the spool would exceed its size limit, the oldest batches are discarded to make room.
+ */
+final class SpanSpool {
+    private static final String BATCH_SUFFIX = ".batch";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxSize;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private long size;
+    private long sequence;
+    private long discardedCount;
+
+    SpanSpool(Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        Files.createDirectories(directory);
+        List<Entry> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (fileName.endsWith(TEMP_SUFFIX)) {
+                    // Incomplete write from a previous process
+                    Files.deleteIfExists(path);
+                } else if (fileName.endsWith(BATCH_SUFFIX)) {
+                    try {
+                        long id = Long.parseLong(fileName.substring(0, fileName.length() - BATCH_SUFFIX.length()));
+                        existing.add(new Entry(id, path, Files.size(path)));
+                    } catch (NumberFormatException e) {
+                        // Not a batch
+                    }
+                }
+            }
+        }
+        Collections.sort(existing);
+        for (Entry entry : existing) {
+            entries.addLast(entry);
+            size += entry.size;
+            sequence = entry.id;
+        }
+    }
+
+    /**
+     * Write a batch to the spool, discarding the oldest batches if necessary to stay within the size limit.
+     *
+     * @param batch encoded batch
+     * @return {@code true} if written, {@code false} if the batch alone exceeds the size limit
+     * @throws IOException if the batch could not be written
+     */
+    synchronized boolean write(ByteBuffer batch) throws IOException {
+        long batchSize = batch.remaining();
+        if (batchSize > maxSize) {
+            discardedCount++;
+            return false;
+        }
+        while (size + batchSize > maxSize && !entries.isEmpty()) {
+            Entry oldest = entries.removeFirst();
+            size -= oldest.size;
+            discardedCount++;
+            Files.deleteIfExists(oldest.path);
+        }
+
+        long id = ++sequence;
+        Path path = directory.resolve(String.format("%020d%s", id, BATCH_SUFFIX));
+        Path temp = directory.resolve(path.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        entries.addLast(new Entry(id, path, batchSize));
+        size += batchSize;
+        return true;
+    }
+
+    /**
+     * Get the oldest batch in the spool.
+     *
+     * @return path of the batch file or {@code null} if the spool is empty
+     */
+    @Nullable
+    synchronized Path oldest() {
+        Entry oldest = entries.peekFirst();
+        return (oldest == null) ? null : oldest.path;
+    }
+
+    /**
+     * Read the content of a batch.
+     *
+     * @param path path of the batch file
+     * @return batch content or {@code null} if the batch has since been discarded
+     * @throws IOException if the batch could not be read
+     */
+    @Nullable
+    ByteBuffer read(Path path) throws IOException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove a batch which has been delivered.
+     *
+     * @param path path of the batch file
+     * @throws IOException if the batch file could not be deleted
+     */
+    synchronized void remove(Path path) throws IOException {
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.path.equals(path)) {
+                iterator.remove();
+                size -= entry.size;
+                Files.deleteIfExists(path);
+                return;
+            }
+        }
+    }
+
+    synchronized int getBatchCount() {
+        return entries.size();
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final long id;
+        private final Path path;
+        private final long size;
+
+        Entry(long id, Path path, long size) {
+            this.id = id;
+            this.path = path;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return (id < other.id) ? -1 : ((id == other.id) ? 0 : 1);
+        }
+    }
+
+}
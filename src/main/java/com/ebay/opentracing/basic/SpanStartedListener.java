@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Listener notified of each span as it is started, allowing spans to be observed while they are running
+ * rather than only once they have been delivered to the {@link FinishedSpanReceiver}.
+ * <p>
+ * The listener is called on the thread which starts the span, before the span is returned to the caller,
+ * and so directly adds to the cost of starting a span.  Implementations should do only cheap work, handing
+ * off anything more costly to another thread.  The span data may be retained, but will continue to be
+ * modified until the span is finished.
+ *
+ * @param <T> trace context type
+ * @see BasicTracerBuilder#spanStartedListener(SpanStartedListener)
+ */
+public interface SpanStartedListener<T> {
+
+    /**
+     * Called when a span has been started.
+     *
+     * @param spanData data of the started span
+     */
+    void spanStarted(MutableSpanData<T> spanData);
+
+}
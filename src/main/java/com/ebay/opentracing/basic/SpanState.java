@@ -23,7 +23,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -35,7 +37,8 @@ import java.util.concurrent.TimeUnit;
  *
  * @param <T> trace context type
  */
-final class SpanState<T> implements MutableSpanData<T> {
+final class SpanState<T> implements MutableSpanData<T>, SpanLimitCounts {
+    private static final int NON_STRING_PAYLOAD_LENGTH = 8;
 
     private final InternalSpanContext<T> spanContext;
     private final TimeUnit startTimeUnit;
@@ -44,10 +47,24 @@ final class SpanState<T> implements MutableSpanData<T> {
     private String operationName;
 
     @Nullable
-    private Map<String, String> tags;
+    private final SpanLimits limits;
+    private final StringDictionary stringDictionary;
+    private final CardinalityLimiter cardinalityLimiter;
+    // Limit checks and the counters below are only updated while holding this span's lock
+    private int payloadLength;
+    private volatile int droppedTagCount;
+    private volatile int droppedLogEventCount;
+    private volatile int truncatedValueCount;
 
     @Nullable
-    private List<LogEvent> logs;
+    private Map<String, Object> deferredTags;
+    private volatile boolean hasDeferredValues;
+
+    @Nullable
+    private volatile Map<String, String> tags;
+
+    @Nullable
+    private volatile List<LogEvent> logs;
 
     @Nullable
     private TimeUnit finishTimeUnit;
@@ -59,14 +76,27 @@ final class SpanState<T> implements MutableSpanData<T> {
             TimeUnit startTimeUnit,
             long startTimeStamp,
             @Nullable Map<String, String> tags,
-            Map<String, List<InternalSpanContext<T>>> references
+            Map<String, List<InternalSpanContext<T>>> references,
+            @Nullable SpanLimits limits,
+            StringDictionary stringDictionary,
+            CardinalityLimiter cardinalityLimiter
     ) {
         this.spanContext = Objects.requireNonNull(spanContext);
         this.operationName = Objects.requireNonNull(operationName);
         this.startTimeUnit = Objects.requireNonNull(startTimeUnit);
         this.startTimeStamp = startTimeStamp;
-        this.tags = tags;
         this.references = Objects.requireNonNull(references);
+        this.limits = limits;
+        this.stringDictionary = stringDictionary;
+        this.cardinalityLimiter = cardinalityLimiter;
+        if (limits == null) {
+            this.tags = (tags == null) ? null : Collections.synchronizedMap(tags);
+        } else if (tags != null) {
+            // Builder tags have already been interned and cardinality limited by the span builder
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                storeTag(tag.getKey(), tag.getValue());
+            }
+        }
     }
 
     /**
@@ -106,8 +136,8 @@ final class SpanState<T> implements MutableSpanData<T> {
      */
     @Override
     public void setOperationName(String operationName) {
-        this.operationName = Objects.requireNonNull(
-                operationName, "operationName may not be null");
+        this.operationName = stringDictionary.intern(cardinalityLimiter.limitOperationName(
+                Objects.requireNonNull(operationName, "operationName may not be null")));
     }
 
     /**
@@ -115,9 +145,31 @@ final class SpanState<T> implements MutableSpanData<T> {
      */
     @Override
     public Map<String, String> getTags() {
+        if (hasDeferredValues) {
+            resolveDeferredValues();
+        }
         return (tags == null) ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(tags);
     }
 
+    /**
+     * Copy the tags while holding the tag map's lock, so that the copy is consistent even if tags are
+     * concurrently being set.
+     *
+     * @return tag map copy
+     */
+    Map<String, String> copyTags() {
+        if (hasDeferredValues) {
+            resolveDeferredValues();
+        }
+        Map<String, String> current = tags;
+        if (current == null) {
+            return new HashMap<>();
+        }
+        synchronized (current) {
+            return new HashMap<>(current);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -126,14 +178,50 @@ final class SpanState<T> implements MutableSpanData<T> {
         return references.get(referenceType);
     }
 
+    /**
+     * Get the map of all causal span references, keyed by reference type.
+     *
+     * @return reference map
+     */
+    Map<String, List<InternalSpanContext<T>>> getReferences() {
+        return references;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public List<LogEvent> getLogEvents() {
+        if (hasDeferredValues) {
+            resolveDeferredValues();
+        }
         return (logs == null) ? Collections.<LogEvent>emptyList() : logs;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedTagCount() {
+        return droppedTagCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDroppedLogEventCount() {
+        return droppedLogEventCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getTruncatedValueCount() {
+        return truncatedValueCount;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -213,11 +301,119 @@ final class SpanState<T> implements MutableSpanData<T> {
      */
     @Override
     public void putTag(String key, String value) {
-        if (tags == null) {
-            tags = Collections.synchronizedMap(new HashMap<String, String>());
+        key = stringDictionary.intern(key);
+        String limitedValue = cardinalityLimiter.limitTag(key, value);
+        if (hasDeferredValues) {
+            synchronized (this) {
+                if (deferredTags != null) {
+                    deferredTags.remove(key);
+                }
+                storeTag(key, limitedValue);
+            }
+            return;
+        }
+        storeTag(key, limitedValue);
+    }
+
+    /**
+     * Add a tag whose value is resolved, via {@link #resolve(Object)}, only when the tags are first read.
+     *
+     * @param key   tag name
+     * @param value {@link ValueSupplier} or {@link CharSequence} providing the tag value
+     */
+    synchronized void putDeferredTag(String key, Object value) {
+        key = stringDictionary.intern(key);
+        boolean present = (tags != null && tags.containsKey(key))
+                || (deferredTags != null && deferredTags.containsKey(key));
+        if (limits != null && !present && getTagCount() >= limits.getMaxTags()) {
+            droppedTagCount++;
+            return;
         }
-        tags.put(key, value);
+        if (deferredTags == null) {
+            deferredTags = new LinkedHashMap<>();
+        }
+        deferredTags.put(key, value);
+        hasDeferredValues = true;
+    }
 
+    /**
+     * Get the number of tags, without resolving deferred tag values.
+     *
+     * @return tag count, which may over-count tags which have been replaced
+     */
+    int getTagCount() {
+        int count = (tags == null) ? 0 : tags.size();
+        Map<String, Object> deferred = deferredTags;
+        return (deferred == null) ? count : count + deferred.size();
+    }
+
+    /**
+     * Get the number of log events, without resolving deferred log values.
+     *
+     * @return log event count
+     */
+    int getLogEventCount() {
+        List<LogEvent> events = logs;
+        return (events == null) ? 0 : events.size();
+    }
+
+    private void addTag(String key, @Nullable String value) {
+        storeTag(key, cardinalityLimiter.limitTag(key, value));
+    }
+
+    private void storeTag(String key, @Nullable String value) {
+        if (limits == null) {
+            tagMap().put(key, value);
+            return;
+        }
+
+        synchronized (this) {
+            Map<String, String> tagMap = tagMap();
+            String previous = tagMap.get(key);
+            if (previous == null && tagMap.size() >= limits.getMaxTags()) {
+                droppedTagCount++;
+                return;
+            }
+            String limitedValue = truncate(value);
+            int delta = (previous == null)
+                    ? key.length() + length(limitedValue)
+                    : length(limitedValue) - previous.length();
+            if (payloadLength + delta > limits.getMaxPayloadLength()) {
+                droppedTagCount++;
+                return;
+            }
+            if (limitedValue != value) {
+                truncatedValueCount++;
+            }
+            payloadLength += delta;
+            tagMap.put(key, limitedValue);
+        }
+    }
+
+    private Map<String, String> tagMap() {
+        Map<String, String> current = tags;
+        if (current == null) {
+            synchronized (this) {
+                if (tags == null) {
+                    tags = Collections.synchronizedMap(new HashMap<String, String>());
+                }
+                current = tags;
+            }
+        }
+        return current;
+    }
+
+    private List<LogEvent> logList() {
+        List<LogEvent> current = logs;
+        if (current == null) {
+            synchronized (this) {
+                if (logs == null) {
+                    logs = Collections.synchronizedList(new ArrayList<LogEvent>(5));
+                }
+                current = logs;
+            }
+        }
+        return current;
     }
 
     /**
@@ -225,10 +421,136 @@ final class SpanState<T> implements MutableSpanData<T> {
      */
     @Override
     public void addLogEvent(LogEvent logEvent) {
-        if (logs == null) {
-            logs = Collections.synchronizedList(new ArrayList<LogEvent>(5));
+        // The deferred flag is raised only once the event is in the list, so that readers resolve it
+        boolean deferred = logEvent.getPayload() instanceof ValueSupplier;
+        if (limits == null) {
+            logList().add(logEvent);
+            if (deferred) {
+                hasDeferredValues = true;
+            }
+            return;
+        }
+
+        LogEvent limitedEvent = logEvent;
+        int length = length(logEvent.getEventName());
+        Object payload = logEvent.getPayload();
+        if (payload instanceof String) {
+            String limitedPayload = truncate((String) payload);
+            if (limitedPayload != payload) {
+                limitedEvent = logEvent.withPayload(limitedPayload);
+            }
+            length += limitedPayload.length();
+        } else if (payload != null) {
+            length += NON_STRING_PAYLOAD_LENGTH;
+        }
+
+        synchronized (this) {
+            List<LogEvent> logList = logList();
+            if (logList.size() >= limits.getMaxLogEvents()
+                    || payloadLength + length > limits.getMaxPayloadLength()) {
+                droppedLogEventCount++;
+                return;
+            }
+            if (limitedEvent != logEvent) {
+                truncatedValueCount++;
+            }
+            payloadLength += length;
+            logList.add(limitedEvent);
+            if (deferred) {
+                hasDeferredValues = true;
+            }
         }
-        logs.add(logEvent);
+    }
+
+    /**
+     * Resolve a deferred tag or log value to its string form.
+     *
+     * @param value {@link ValueSupplier} or {@link CharSequence}
+     * @return resolved value
+     */
+    @Nullable
+    static String resolve(Object value) {
+        if (value instanceof ValueSupplier) {
+            Object supplied = ((ValueSupplier<?>) value).get();
+            return (supplied == null) ? null : supplied.toString();
+        }
+        return value.toString();
+    }
+
+    private synchronized void resolveDeferredValues() {
+        if (!hasDeferredValues) {
+            return;
+        }
+        hasDeferredValues = false;
+
+        if (deferredTags != null) {
+            Map<String, Object> pending = deferredTags;
+            deferredTags = null;
+            for (Map.Entry<String, Object> entry : pending.entrySet()) {
+                String value;
+                try {
+                    value = resolve(entry.getValue());
+                } catch (RuntimeException e) {
+                    droppedTagCount++;
+                    continue;
+                }
+                addTag(entry.getKey(), value);
+            }
+        }
+
+        List<LogEvent> logList = logs;
+        if (logList != null) {
+            synchronized (logList) {
+                ListIterator<LogEvent> iterator = logList.listIterator();
+                while (iterator.hasNext()) {
+                    LogEvent logEvent = iterator.next();
+                    if (!(logEvent.getPayload() instanceof ValueSupplier)) {
+                        continue;
+                    }
+                    String payload;
+                    try {
+                        payload = resolve(logEvent.getPayload());
+                    } catch (RuntimeException e) {
+                        dropDeferredLogEvent(iterator, logEvent);
+                        continue;
+                    }
+                    String limitedPayload = truncate(payload);
+                    if (limits != null) {
+                        // The event was charged a placeholder length when added, now replaced by the real one
+                        int delta = length(limitedPayload) - NON_STRING_PAYLOAD_LENGTH;
+                        if (payloadLength + delta > limits.getMaxPayloadLength()) {
+                            dropDeferredLogEvent(iterator, logEvent);
+                            continue;
+                        }
+                        payloadLength += delta;
+                    }
+                    if (limitedPayload != payload) {
+                        truncatedValueCount++;
+                    }
+                    iterator.set(logEvent.withPayload(limitedPayload));
+                }
+            }
+        }
+    }
+
+    private void dropDeferredLogEvent(ListIterator<LogEvent> iterator, LogEvent logEvent) {
+        iterator.remove();
+        droppedLogEventCount++;
+        if (limits != null) {
+            payloadLength -= length(logEvent.getEventName()) + NON_STRING_PAYLOAD_LENGTH;
+        }
+    }
+
+    @Nullable
+    private String truncate(@Nullable String value) {
+        if (limits == null || value == null || value.length() <= limits.getMaxValueLength()) {
+            return value;
+        }
+        return value.substring(0, limits.getMaxValueLength());
+    }
+
+    private static int length(@Nullable String value) {
+        return (value == null) ? 0 : value.length();
     }
 
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} implementation which retains recent spans in memory so that they may be
+ * queried locally, for example during a performance investigation on a host without access to a tracing
+ * backend.
+ * <p>
+ * Spans are appended to fixed capacity chunks which hold the queried attributes in primitive columns and the
+ * spans themselves in encoded form, so that retaining a span costs little more than its encoded size and
+ * creates no per-span objects.  When a chunk fills it is sealed, at which point it is indexed by trace and
+ * by operation, the latter ordered by duration so that queries for the slowest spans need only visit the
+ * head of each chunk's index.  The oldest chunks are evicted once the memory budget is exceeded or all of
+ * their spans are older than the retention window, which is checked as chunks are sealed and as the store is
+ * queried.  Operations whose spans have all been evicted release their index entry for reuse.
+ * <p>
+ * Queries run concurrently with the recording of spans, only holding the store's lock while scanning the
+ * active chunk.  Instances are created via {@link SpanStoreBuilder}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanStore<T> implements FinishedSpanReceiver<T> {
+    private static final int UNKNOWN_OPERATION = -1;
+
+    private static final Comparator<Hit> DURATION_ORDER = new Comparator<Hit>() {
+        @Override
+        public int compare(Hit a, Hit b) {
+            return Long.compare(a.duration, b.duration);
+        }
+    };
+
+    private static final Comparator<Hit> FINISH_ORDER = new Comparator<Hit>() {
+        @Override
+        public int compare(Hit a, Hit b) {
+            return Long.compare(a.chunk.getFinishMicros(a.position), b.chunk.getFinishMicros(b.position));
+        }
+    };
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final SpanRecordCodec<T> codec;
+    private final int chunkSpans;
+    private final int chunkRecordBytes;
+    private final long maxMemorySize;
+    private final long retentionMicros;
+    private final int maxOperations;
+    private final Map<String, Integer> operationIds = new HashMap<>();
+    private final ArrayDeque<Integer> freeOperationIds = new ArrayDeque<>();
+    private final ArrayDeque<SpanStoreChunk> sealedChunks = new ArrayDeque<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Object lock = new Object();
+
+    private SpanStoreChunk activeChunk;
+    private volatile SpanStoreChunk[] sealedSnapshot = new SpanStoreChunk[0];
+    private long sealedMemorySize;
+
+    SpanStore(
+            SpanIdAccessor<T> spanIdAccessor,
+            int chunkSpans,
+            int chunkRecordBytes,
+            long maxMemorySize,
+            long retentionMicros,
+            int maxOperations) {
+        this.spanIdAccessor = spanIdAccessor;
+        this.codec = new SpanRecordCodec<>(spanIdAccessor);
+        this.chunkSpans = chunkSpans;
+        this.chunkRecordBytes = chunkRecordBytes;
+        this.maxMemorySize = maxMemorySize;
+        this.retentionMicros = retentionMicros;
+        this.maxOperations = maxOperations;
+        this.activeChunk = new SpanStoreChunk(chunkSpans, chunkRecordBytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        long traceKey = traceKey(spanIdAccessor.getTraceId(spanData.getSpanContext().getTraceContext()));
+        synchronized (lock) {
+            int operationId = operationId(spanData.getOperationName(), true);
+            if (!activeChunk.add(spanData, codec, traceKey, operationId)) {
+                if (activeChunk.isEmpty()) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                sealActiveChunk(System.currentTimeMillis() * 1000L);
+                if (!activeChunk.add(spanData, codec, traceKey, operationId)) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the slowest spans of an operation which finished within the window provided.
+     *
+     * @param operationName operation name
+     * @param window        length of the window, ending now
+     * @param timeUnit      unit of the window
+     * @param limit         maximum number of spans to return
+     * @return spans, slowest first
+     */
+    public List<SpanRecord> findSlowest(String operationName, long window, TimeUnit timeUnit, int limit) {
+        return findSlowest(operationName, System.currentTimeMillis() * 1000L - timeUnit.toMicros(window), limit);
+    }
+
+    List<SpanRecord> findSlowest(String operationName, long fromMicros, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        int operationId;
+        SpanStoreChunk active;
+        int activeSize;
+        SpanStoreChunk[] chunks;
+        synchronized (lock) {
+            evict(System.currentTimeMillis() * 1000L);
+            operationId = operationId(operationName, false);
+            active = activeChunk;
+            activeSize = active.size();
+            // Taken under the lock, as operation IDs released by eviction may since have been reused
+            chunks = sealedSnapshot;
+        }
+        if (operationId == UNKNOWN_OPERATION) {
+            return Collections.emptyList();
+        }
+
+        // Min-heap of the slowest spans seen so far
+        PriorityQueue<Hit> hits = new PriorityQueue<>(limit, DURATION_ORDER);
+        for (int i = 0; i < activeSize; i++) {
+            if (active.getOperationId(i) == operationId && active.getFinishMicros(i) >= fromMicros) {
+                offer(hits, limit, active, i);
+            }
+        }
+        for (int c = chunks.length - 1; c >= 0; c--) {
+            SpanStoreChunk chunk = chunks[c];
+            if (chunk.getMaxFinishMicros() < fromMicros) {
+                continue;
+            }
+            int[] positions = chunk.getOperationPositions(operationId);
+            if (positions == null) {
+                continue;
+            }
+            boolean allInWindow = chunk.getMinFinishMicros() >= fromMicros;
+            for (int position : positions) {
+                if (hits.size() == limit && chunk.getDurationMicros(position) <= hits.peek().duration) {
+                    break;
+                }
+                if (allInWindow || chunk.getFinishMicros(position) >= fromMicros) {
+                    offer(hits, limit, chunk, position);
+                }
+            }
+        }
+
+        List<Hit> ordered = new ArrayList<>(hits);
+        Collections.sort(ordered, Collections.reverseOrder(DURATION_ORDER));
+        List<SpanRecord> records = new ArrayList<>(ordered.size());
+        for (Hit hit : ordered) {
+            records.add(hit.chunk.getRecord(hit.position));
+        }
+        return records;
+    }
+
+    /**
+     * Find the retained spans of a trace.
+     *
+     * @param traceId trace ID, as returned by the {@link SpanIdAccessor}
+     * @return spans, in order of finish time
+     */
+    public List<SpanRecord> findTrace(String traceId) {
+        long traceKey = traceKey(traceId);
+        SpanStoreChunk active;
+        int activeSize;
+        SpanStoreChunk[] chunks;
+        synchronized (lock) {
+            evict(System.currentTimeMillis() * 1000L);
+            active = activeChunk;
+            activeSize = active.size();
+            // Taken together with the active chunk, which may otherwise be sealed and seen twice
+            chunks = sealedSnapshot;
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (SpanStoreChunk chunk : chunks) {
+            for (int position : chunk.getTracePositions(traceKey)) {
+                hits.add(new Hit(chunk, position));
+            }
+        }
+        for (int i = 0; i < activeSize; i++) {
+            if (active.getTraceKey(i) == traceKey) {
+                hits.add(new Hit(active, i));
+            }
+        }
+        Collections.sort(hits, FINISH_ORDER);
+
+        List<SpanRecord> records = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            SpanRecord record = hit.chunk.getRecord(hit.position);
+            // Trace keys are hashes, so may collide
+            if (traceId.equals(record.getTraceId())) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Get the number of spans currently retained.
+     *
+     * @return span count
+     */
+    public long getSpanCount() {
+        SpanStoreChunk[] chunks;
+        long count;
+        synchronized (lock) {
+            chunks = sealedSnapshot;
+            count = activeChunk.size();
+        }
+        for (SpanStoreChunk chunk : chunks) {
+            count += chunk.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the approximate heap footprint of the retained spans, in bytes.
+     *
+     * @return memory size
+     */
+    public long getMemorySize() {
+        synchronized (lock) {
+            return sealedMemorySize + activeChunk.getMemorySize();
+        }
+    }
+
+    /**
+     * Get the number of spans which could not be stored because their encoded form exceeded the capacity of
+     * a chunk.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void sealActiveChunk(long nowMicros) {
+        activeChunk.seal();
+        sealedChunks.addLast(activeChunk);
+        sealedMemorySize += activeChunk.getMemorySize();
+        activeChunk = new SpanStoreChunk(chunkSpans, chunkRecordBytes);
+        if (!evict(nowMicros)) {
+            sealedSnapshot = sealedChunks.toArray(new SpanStoreChunk[sealedChunks.size()]);
+        }
+    }
+
+    /**
+     * Evict the oldest chunks while over the memory budget or wholly outside the retention window.  Must be
+     * called holding the lock.
+     *
+     * @param nowMicros current time
+     * @return true if any chunks were evicted
+     */
+    private boolean evict(long nowMicros) {
+        long expiredMicros = nowMicros - retentionMicros;
+        boolean evicted = false;
+        while (!sealedChunks.isEmpty()
+                && (sealedMemorySize + activeChunk.getMemorySize() > maxMemorySize
+                || sealedChunks.peekFirst().getMaxFinishMicros() < expiredMicros)) {
+            sealedMemorySize -= sealedChunks.removeFirst().getMemorySize();
+            evicted = true;
+        }
+        if (evicted) {
+            sealedSnapshot = sealedChunks.toArray(new SpanStoreChunk[sealedChunks.size()]);
+            releaseOperationIds();
+        }
+        return evicted;
+    }
+
+    private void releaseOperationIds() {
+        boolean[] used = new boolean[maxOperations];
+        for (SpanStoreChunk chunk : sealedChunks) {
+            chunk.markOperationIds(used);
+        }
+        activeChunk.markOperationIds(used);
+
+        Iterator<Integer> iterator = operationIds.values().iterator();
+        while (iterator.hasNext()) {
+            Integer operationId = iterator.next();
+            if (!used[operationId]) {
+                iterator.remove();
+                freeOperationIds.addLast(operationId);
+            }
+        }
+    }
+
+    private int operationId(String operationName, boolean create) {
+        Integer operationId = operationIds.get(operationName);
+        if (operationId == null) {
+            if (!create || operationIds.size() >= maxOperations) {
+                return UNKNOWN_OPERATION;
+            }
+            operationId = freeOperationIds.isEmpty() ? operationIds.size() : freeOperationIds.removeFirst();
+            operationIds.put(operationName, operationId);
+        }
+        return operationId;
+    }
+
+    private static void offer(PriorityQueue<Hit> hits, int limit, SpanStoreChunk chunk, int position) {
+        long duration = chunk.getDurationMicros(position);
+        if (hits.size() < limit) {
+            hits.add(new Hit(chunk, position));
+        } else if (duration > hits.peek().duration) {
+            hits.poll();
+            hits.add(new Hit(chunk, position));
+        }
+    }
+
+    static long traceKey(String traceId) {
+        // 64 bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < traceId.length(); i++) {
+            hash ^= traceId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Hit {
+        private final SpanStoreChunk chunk;
+        private final int position;
+        private final long duration;
+
+        private Hit(SpanStoreChunk chunk, int position) {
+            this.chunk = chunk;
+            this.position = position;
+            this.duration = chunk.getDurationMicros(position);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for creating instances of {@link SpanStore}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpanStoreBuilder<T> {
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private int chunkSpans = 4096;
+    private int chunkRecordBytes = 1024 * 1024;
+    private long maxMemorySize = 64L * 1024 * 1024;
+    private long retentionMicros = TimeUnit.MINUTES.toMicros(15L);
+    private int maxOperations = 1024;
+
+    /**
+     * Create a builder for a store of spans with the trace context type of the accessor provided.
+     *
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     */
+    public SpanStoreBuilder(SpanIdAccessor<T> spanIdAccessor) {
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+    }
+
+    /**
+     * Configure the capacity of each chunk.  A chunk is sealed and indexed once either limit is reached.
+     * Defaults to 4096 spans and 1 MiB of encoded spans.
+     *
+     * @param maxSpans maximum number of spans per chunk
+     * @param maxBytes maximum size of the encoded spans per chunk, which also limits the size of a span
+     * @return builder instance
+     */
+    public SpanStoreBuilder<T> chunkSize(int maxSpans, int maxBytes) {
+        if (maxSpans < 1) {
+            throw new IllegalArgumentException("maxSpans must be positive");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.chunkSpans = maxSpans;
+        this.chunkRecordBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Configure the memory budget of the store, beyond which the oldest chunks are evicted.  Defaults to
+     * 64 MiB.
+     *
+     * @param maxMemorySize maximum memory size, in bytes
+     * @return builder instance
+     */
+    public SpanStoreBuilder<T> maxMemorySize(long maxMemorySize) {
+        if (maxMemorySize < 1L) {
+            throw new IllegalArgumentException("maxMemorySize must be positive");
+        }
+        this.maxMemorySize = maxMemorySize;
+        return this;
+    }
+
+    /**
+     * Configure the period for which spans are retained, beyond which chunks are evicted.  Defaults to 15
+     * minutes.
+     *
+     * @param retention retention period
+     * @param timeUnit  unit of the retention period
+     * @return builder instance
+     */
+    public SpanStoreBuilder<T> retention(long retention, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (retention < 1L) {
+            throw new IllegalArgumentException("retention must be positive");
+        }
+        this.retentionMicros = timeUnit.toMicros(retention);
+        return this;
+    }
+
+    /**
+     * Configure the maximum number of distinct operation names which are indexed at once.  Spans of further
+     * operations are retained and may be found by trace, but not by operation.  Operations whose spans have
+     * all been evicted no longer count towards the limit.  Defaults to 1024.
+     *
+     * @param maxOperations maximum number of indexed operations
+     * @return builder instance
+     */
+    public SpanStoreBuilder<T> maxOperations(int maxOperations) {
+        if (maxOperations < 1) {
+            throw new IllegalArgumentException("maxOperations must be positive");
+        }
+        this.maxOperations = maxOperations;
+        return this;
+    }
+
+    /**
+     * Create the store.
+     *
+     * @return store instance
+     */
+    public SpanStore<T> build() {
+        if (maxMemorySize < 2L * SpanStoreChunk.memorySize(chunkSpans, chunkRecordBytes)) {
+            throw new IllegalStateException("maxMemorySize must hold at least two chunks");
+        }
+        return new SpanStore<>(
+                spanIdAccessor, chunkSpans, chunkRecordBytes, maxMemorySize, retentionMicros, maxOperations);
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed capacity chunk of a {@link SpanStore}, holding the queried attributes of its spans in primitive
+ * columns and the spans themselves encoded as per {@link SpanJournal} in a single byte array.  Chunks are
+ * appended to while active and are immutable once sealed, at which point their indexes are built.  Spans
+ * below a chunk's size may be read without synchronization by any thread which has observed that size
+ * under the store's lock.
+ */
+final class SpanStoreChunk {
+    private final long[] traceKeys;
+    private final int[] operationIds;
+    private final long[] finishMicros;
+    private final long[] durationMicros;
+    private final int[] recordOffsets;
+    private final byte[] records;
+    private int size;
+    private long minFinishMicros = Long.MAX_VALUE;
+    private long maxFinishMicros = Long.MIN_VALUE;
+
+    // Indexes, built on seal
+    private long[] sortedTraceKeys;
+    private int[] traceKeyPositions;
+    private Map<Integer, int[]> operationPositions;
+
+    SpanStoreChunk(int maxSpans, int maxRecordBytes) {
+        traceKeys = new long[maxSpans];
+        operationIds = new int[maxSpans];
+        finishMicros = new long[maxSpans];
+        durationMicros = new long[maxSpans];
+        recordOffsets = new int[maxSpans + 1];
+        records = new byte[maxRecordBytes];
+    }
+
+    /**
+     * Append a span to the chunk.
+     *
+     * @return {@code true} if the span was appended, or {@code false} if the chunk is full
+     */
+    <T> boolean add(SpanData<T> spanData, SpanRecordCodec<T> codec, long traceKey, int operationId) {
+        if (size == traceKeys.length) {
+            return false;
+        }
+        int offset = recordOffsets[size];
+        ByteBuffer buffer = ByteBuffer.wrap(records, offset, records.length - offset);
+        try {
+            codec.encode(spanData, buffer);
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+
+        long finish = spanData.getFinishTime(TimeUnit.MICROSECONDS);
+        traceKeys[size] = traceKey;
+        operationIds[size] = operationId;
+        finishMicros[size] = finish;
+        durationMicros[size] = finish - spanData.getStartTime(TimeUnit.MICROSECONDS);
+        recordOffsets[size + 1] = buffer.position();
+        minFinishMicros = Math.min(minFinishMicros, finish);
+        maxFinishMicros = Math.max(maxFinishMicros, finish);
+        size++;
+        return true;
+    }
+
+    /**
+     * Build the chunk's indexes.  No further spans may be added.
+     */
+    void seal() {
+        Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(traceKeys[a], traceKeys[b]);
+            }
+        });
+        sortedTraceKeys = new long[size];
+        traceKeyPositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            traceKeyPositions[i] = positions[i];
+            sortedTraceKeys[i] = traceKeys[positions[i]];
+        }
+
+        // Group by operation, slowest first within each operation
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int result = Integer.compare(operationIds[a], operationIds[b]);
+                return (result != 0) ? result : Long.compare(durationMicros[b], durationMicros[a]);
+            }
+        });
+        operationPositions = new HashMap<>();
+        int start = 0;
+        for (int i = 1; i <= size; i++) {
+            if (i == size || operationIds[positions[i]] != operationIds[positions[start]]) {
+                int[] group = new int[i - start];
+                for (int j = 0; j < group.length; j++) {
+                    group[j] = positions[start + j];
+                }
+                operationPositions.put(operationIds[positions[start]], group);
+                start = i;
+            }
+        }
+    }
+
+    boolean isSealed() {
+        return sortedTraceKeys != null;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getMinFinishMicros() {
+        return minFinishMicros;
+    }
+
+    long getMaxFinishMicros() {
+        return maxFinishMicros;
+    }
+
+    long getTraceKey(int position) {
+        return traceKeys[position];
+    }
+
+    int getOperationId(int position) {
+        return operationIds[position];
+    }
+
+    long getFinishMicros(int position) {
+        return finishMicros[position];
+    }
+
+    long getDurationMicros(int position) {
+        return durationMicros[position];
+    }
+
+    /**
+     * Mark the IDs of the operations of which this chunk holds spans.
+     *
+     * @param used flags indexed by operation ID, set for each operation present
+     */
+    void markOperationIds(boolean[] used) {
+        if (operationPositions != null) {
+            for (int operationId : operationPositions.keySet()) {
+                if (operationId >= 0) {
+                    used[operationId] = true;
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                if (operationIds[i] >= 0) {
+                    used[operationIds[i]] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the positions of the spans of an operation, slowest first.  Only valid once sealed.
+     *
+     * @return positions, or {@code null} if the chunk holds no spans of the operation
+     */
+    int[] getOperationPositions(int operationId) {
+        return operationPositions.get(operationId);
+    }
+
+    /**
+     * Get the positions of the spans with a trace key.  Only valid once sealed.
+     *
+     * @return positions, which will be empty if the chunk holds no spans with the key
+     */
+    int[] getTracePositions(long traceKey) {
+        int index = Arrays.binarySearch(sortedTraceKeys, traceKey);
+        if (index < 0) {
+            return new int[0];
+        }
+        int from = index;
+        while (from > 0 && sortedTraceKeys[from - 1] == traceKey) {
+            from--;
+        }
+        int to = index + 1;
+        while (to < sortedTraceKeys.length && sortedTraceKeys[to] == traceKey) {
+            to++;
+        }
+        return Arrays.copyOfRange(traceKeyPositions, from, to);
+    }
+
+    SpanRecord getRecord(int position) {
+        int offset = recordOffsets[position];
+        return SpanRecordCodec.decode(ByteBuffer.wrap(records, offset, recordOffsets[position + 1] - offset));
+    }
+
+    /**
+     * Get the approximate heap footprint of the chunk, in bytes.
+     */
+    long getMemorySize() {
+        return memorySize(traceKeys.length, records.length);
+    }
+
+    static long memorySize(int maxSpans, int maxRecordBytes) {
+        // Columns of 8 + 4 + 8 + 8 + 4 bytes per span, plus indexes of 8 + 4 + 4 once sealed
+        return maxSpans * 48L + maxRecordBytes;
+    }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} which batches finished spans, encodes them and sends them to a
+ * {@link SpanBatchSink} from a dedicated export thread.  When the sink fails, or is too slow to keep up,
+ * encoded batches are spilled to a local spool directory rather than being held in memory.  Spooled
+ * batches are replayed, oldest first, once the sink recovers.  Failed sends are retried with exponential
+ * backoff.
+ * <p>
+ * Disk usage is bounded; when the spool is full its oldest batches are discarded to make room for new
+ * ones.  Batches remaining in the spool when the exporter is closed are replayed by the next exporter
+ * created for the same directory.
+ * <p>
+ * Completed batches are handed to the export thread via a bounded queue, so that the threads finishing
+ * spans never encode, block on the sink or touch the file system.  While sends are backing off, the export
+ * thread moves queued batches to the spool to keep the queue drained.  When the queue is full because the
+ * sink is slow, batches are handed to a separate spool writer thread, via a second queue of the same size,
+ * which spools them.  Batches arriving when both queues are full are dropped and counted, as are batches
+ * which cannot be encoded or spooled.
+ * <p>
+ * Instances are created via {@link SpoolingSpanExporterBuilder}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpoolingSpanExporter<T> implements FinishedSpanReceiver<T>, Closeable {
+    private static final AtomicInteger THREAD_SERIAL = new AtomicInteger();
+    private static final long MAX_POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final SpanBatchEncoder<T> encoder;
+    private final SpanBatchSink sink;
+    private final SpanSpool spool;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long pollIntervalNanos;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final BlockingQueue<List<SpanData<T>>> pendingBatches;
+    private final BlockingQueue<List<SpanData<T>>> overflowBatches;
+    private final Object batchLock = new Object();
+    private final Object encodeLock = new Object();
+    private final AtomicLong sendFailures = new AtomicLong();
+    private final AtomicLong droppedSpans = new AtomicLong();
+    private final Thread worker;
+    private final Thread spoolWriter;
+    private volatile boolean closed;
+
+    private List<SpanData<T>> currentBatch;
+    private long currentBatchStartNanos;
+
+    // Accessed only by the export thread
+    private ByteBuffer sendBuffer = ByteBuffer.allocate(0);
+    private long backoffNanos;
+    private long retryAtNanos;
+
+    SpoolingSpanExporter(
+            SpanBatchEncoder<T> encoder,
+            SpanBatchSink sink,
+            Path spoolDirectory,
+            long maxSpoolSize,
+            int batchSize,
+            long flushIntervalNanos,
+            int maxPendingBatches,
+            long initialBackoffNanos,
+            long maxBackoffNanos) throws IOException {
+        this.encoder = encoder;
+        this.sink = sink;
+        this.spool = new SpanSpool(spoolDirectory, maxSpoolSize);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.pollIntervalNanos = Math.min(flushIntervalNanos, MAX_POLL_INTERVAL_NANOS);
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.pendingBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+        this.overflowBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+        this.currentBatch = new ArrayList<>(batchSize);
+        this.retryAtNanos = System.nanoTime();
+
+        int serial = THREAD_SERIAL.incrementAndGet();
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        }, "basic-tracer-span-export-" + serial);
+        worker.setDaemon(true);
+        worker.start();
+
+        spoolWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                spoolOverflow();
+            }
+        }, "basic-tracer-span-spool-" + serial);
+        spoolWriter.setDaemon(true);
+        spoolWriter.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Spans which arrive after this exporter has been closed are dropped.
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        if (closed) {
+            droppedSpans.incrementAndGet();
+            return;
+        }
+
+        List<SpanData<T>> fullBatch = null;
+        synchronized (batchLock) {
+            // The export thread may have taken its final batch since the check above
+            if (closed) {
+                droppedSpans.incrementAndGet();
+                return;
+            }
+            if (currentBatch.isEmpty()) {
+                currentBatchStartNanos = System.nanoTime();
+            }
+            currentBatch.add(SpanDataSnapshot.of(spanData));
+            if (currentBatch.size() >= batchSize) {
+                fullBatch = currentBatch;
+                currentBatch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (fullBatch != null) {
+            handOff(fullBatch);
+        }
+    }
+
+    private void handOff(List<SpanData<T>> batch) {
+        BlockingQueue<List<SpanData<T>>> queue = pendingBatches;
+        if (!queue.offer(batch)) {
+            queue = overflowBatches;
+            if (!queue.offer(batch)) {
+                droppedSpans.addAndGet(batch.size());
+                return;
+            }
+        }
+
+        // Both threads may have drained their queue and exited after the batch was completed, in which case
+        // take it back rather than lose it uncounted
+        if (closed && queue.remove(batch)) {
+            droppedSpans.addAndGet(batch.size());
+        }
+    }
+
+    /**
+     * Get the number of batches currently held in the spool directory.
+     *
+     * @return spooled batch count
+     */
+    public int getSpooledBatchCount() {
+        return spool.getBatchCount();
+    }
+
+    /**
+     * Get the total size of the batches currently held in the spool directory.
+     *
+     * @return spool size, in bytes
+     */
+    public long getSpoolSize() {
+        return spool.getSize();
+    }
+
+    /**
+     * Get the number of spooled batches discarded to keep the spool within its size limit.
+     *
+     * @return discarded batch count
+     */
+    public long getDiscardedBatchCount() {
+        return spool.getDiscardedCount();
+    }
+
+    /**
+     * Get the number of attempts to send a batch to the sink which failed.
+     *
+     * @return send failure count
+     */
+    public long getSendFailureCount() {
+        return sendFailures.get();
+    }
+
+    /**
+     * Get the number of spans dropped because they arrived after close or while both the export and the spool
+     * writer queues were full, or because they could not be encoded or written to the spool.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedSpanCount() {
+        return droppedSpans.get();
+    }
+
+    /**
+     * Stop accepting spans, send any batches held in memory - spooling them instead if the sink is
+     * unavailable - and stop the export and spool writer threads.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = join(worker);
+        interrupted |= join(spoolWriter);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean join(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        return interrupted;
+    }
+
+    private void spoolOverflow() {
+        while (!closed) {
+            List<SpanData<T>> batch = poll(overflowBatches, MAX_POLL_INTERVAL_NANOS);
+            if (batch != null) {
+                spoolBatch(batch);
+            }
+        }
+
+        List<SpanData<T>> batch;
+        while ((batch = overflowBatches.poll()) != null) {
+            spoolBatch(batch);
+        }
+    }
+
+    private void export() {
+        while (!closed) {
+            long waitNanos = retryAtNanos - System.nanoTime();
+            if (waitNanos > 0L) {
+                // Keep draining while backing off, so that spans keep being accepted while the sink is down
+                List<SpanData<T>> batch = poll(pendingBatches, Math.min(waitNanos, MAX_POLL_INTERVAL_NANOS));
+                if (batch != null) {
+                    spoolBatch(batch);
+                }
+                continue;
+            }
+
+            Path spooled = spool.oldest();
+            if (spooled != null) {
+                replay(spooled);
+                continue;
+            }
+
+            List<SpanData<T>> batch = nextBatch();
+            if (batch != null) {
+                exportBatch(batch);
+            }
+        }
+
+        // Send what remains in memory while the sink is healthy, otherwise keep it for the next exporter
+        List<SpanData<T>> batch;
+        while ((batch = remainingBatch()) != null) {
+            if (System.nanoTime() - retryAtNanos >= 0L) {
+                exportBatch(batch);
+            } else {
+                spoolBatch(batch);
+            }
+        }
+    }
+
+    @Nullable
+    private List<SpanData<T>> nextBatch() {
+        List<SpanData<T>> batch = poll(pendingBatches, pollIntervalNanos);
+        if (batch != null) {
+            return batch;
+        }
+
+        synchronized (batchLock) {
+            if (currentBatch.isEmpty() || System.nanoTime() - currentBatchStartNanos < flushIntervalNanos) {
+                return null;
+            }
+            batch = currentBatch;
+            currentBatch = new ArrayList<>(batchSize);
+            return batch;
+        }
+    }
+
+    @Nullable
+    private List<SpanData<T>> poll(BlockingQueue<List<SpanData<T>>> queue, long timeoutNanos) {
+        try {
+            return queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Shutdown is signalled via the closed flag
+            return null;
+        }
+    }
+
+    @Nullable
+    private List<SpanData<T>> remainingBatch() {
+        List<SpanData<T>> batch = pendingBatches.poll();
+        if (batch != null) {
+            return batch;
+        }
+
+        synchronized (batchLock) {
+            if (currentBatch.isEmpty()) {
+                return null;
+            }
+            batch = currentBatch;
+            currentBatch = new ArrayList<>(0);
+            return batch;
+        }
+    }
+
+    private void exportBatch(List<SpanData<T>> batch) {
+        synchronized (encodeLock) {
+            // The encoder's buffer is only valid until its next use, by either thread
+            ByteBuffer encoded = encode(batch);
+            if (encoded == null) {
+                return;
+            }
+            if (sendBuffer.capacity() < encoded.remaining()) {
+                sendBuffer = ByteBuffer.allocate(Math.max(encoded.remaining(), sendBuffer.capacity() * 2));
+            }
+            sendBuffer.clear();
+            sendBuffer.put(encoded);
+            sendBuffer.flip();
+        }
+
+        if (!send(sendBuffer.duplicate())) {
+            writeToSpool(sendBuffer.duplicate(), batch.size());
+        }
+    }
+
+    private void replay(Path spooled) {
+        ByteBuffer batch;
+        try {
+            batch = spool.read(spooled);
+        } catch (IOException e) {
+            sendFailed();
+            return;
+        }
+
+        try {
+            if (batch == null) {
+                // Discarded while we were reading it
+                spool.remove(spooled);
+            } else if (send(batch)) {
+                spool.remove(spooled);
+            }
+        } catch (IOException e) {
+            // Unable to delete the batch, back off rather than resending it in a tight loop
+            sendFailed();
+        }
+    }
+
+    private void spoolBatch(List<SpanData<T>> batch) {
+        synchronized (encodeLock) {
+            ByteBuffer encoded = encode(batch);
+            if (encoded != null) {
+                writeToSpool(encoded, batch.size());
+            }
+        }
+    }
+
+    @Nullable
+    private ByteBuffer encode(List<SpanData<T>> batch) {
+        try {
+            return encoder.encode(batch);
+        } catch (RuntimeException e) {
+            // A span the encoder cannot handle must not stop the export of later batches
+            droppedSpans.addAndGet(batch.size());
+            return null;
+        }
+    }
+
+    private void writeToSpool(ByteBuffer encoded, int spanCount) {
+        boolean written;
+        try {
+            written = spool.write(encoded);
+        } catch (IOException e) {
+            written = false;
+        }
+        if (!written) {
+            droppedSpans.addAndGet(spanCount);
+        }
+    }
+
+    private boolean send(ByteBuffer batch) {
+        try {
+            sink.send(batch);
+        } catch (IOException | RuntimeException e) {
+            sendFailed();
+            return false;
+        }
+        backoffNanos = 0L;
+        return true;
+    }
+
+    private void sendFailed() {
+        sendFailures.incrementAndGet();
+        backoffNanos = (backoffNanos == 0L) ? initialBackoffNanos : Math.min(maxBackoffNanos, backoffNanos * 2);
+        retryAtNanos = System.nanoTime() + backoffNanos;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for creating instances of {@link SpoolingSpanExporter}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class SpoolingSpanExporterBuilder<T> {
+    private final SpanBatchEncoder<T> encoder;
+    private final SpanBatchSink sink;
+    private final Path spoolDirectory;
+    private long maxSpoolSize = 128L * 1024 * 1024;
+    private int batchSize = 512;
+    private long flushIntervalNanos = TimeUnit.SECONDS.toNanos(1L);
+    private int maxPendingBatches = 4;
+    private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100L);
+    private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(30L);
+
+    /**
+     * Create a builder for an exporter which sends batches to the sink provided.
+     *
+     * @param encoder        encoder used to encode batches of spans
+     * @param sink           sink to send encoded batches to
+     * @param spoolDirectory directory in which to spool batches, which will be created if necessary
+     */
+    public SpoolingSpanExporterBuilder(SpanBatchEncoder<T> encoder, SpanBatchSink sink, Path spoolDirectory) {
+        this.encoder = Objects.requireNonNull(encoder, "encoder may not be null");
+        this.sink = Objects.requireNonNull(sink, "sink may not be null");
+        this.spoolDirectory = Objects.requireNonNull(spoolDirectory, "spoolDirectory may not be null");
+    }
+
+    /**
+     * Configure the maximum total size of the spool, beyond which the oldest batches are discarded.
+     * Defaults to 128 MiB.
+     *
+     * @param maxSpoolSize maximum spool size, in bytes
+     * @return builder instance
+     */
+    public SpoolingSpanExporterBuilder<T> maxSpoolSize(long maxSpoolSize) {
+        if (maxSpoolSize < 1L) {
+            throw new IllegalArgumentException("maxSpoolSize must be positive");
+        }
+        this.maxSpoolSize = maxSpoolSize;
+        return this;
+    }
+
+    /**
+     * Configure the maximum number of spans per batch.  Defaults to 512.
+     *
+     * @param batchSize maximum batch size
+     * @return builder instance
+     */
+    public SpoolingSpanExporterBuilder<T> batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Configure the maximum time a span may wait for its batch to fill before the batch is sent anyway.
+     * Defaults to one second.
+     *
+     * @param flushInterval flush interval
+     * @param timeUnit      unit of the flush interval
+     * @return builder instance
+     */
+    public SpoolingSpanExporterBuilder<T> flushInterval(long flushInterval, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (flushInterval < 1L) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        this.flushIntervalNanos = timeUnit.toNanos(flushInterval);
+        return this;
+    }
+
+    /**
+     * Configure the number of complete batches which may be held in memory awaiting the export thread
+     * before further batches are spooled.  Defaults to 4.
+     *
+     * @param maxPendingBatches maximum number of batches held in memory
+     * @return builder instance
+     */
+    public SpoolingSpanExporterBuilder<T> maxPendingBatches(int maxPendingBatches) {
+        if (maxPendingBatches < 1) {
+            throw new IllegalArgumentException("maxPendingBatches must be positive");
+        }
+        this.maxPendingBatches = maxPendingBatches;
+        return this;
+    }
+
+    /**
+     * Configure the delay before retrying after a failed send, which doubles after each consecutive
+     * failure up to the maximum.  Defaults to 100 milliseconds, up to 30 seconds.
+     *
+     * @param initialBackoff delay after the first failure
+     * @param maxBackoff     maximum delay
+     * @param timeUnit       unit of the delays
+     * @return builder instance
+     */
+    public SpoolingSpanExporterBuilder<T> backoff(long initialBackoff, long maxBackoff, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (initialBackoff < 1L) {
+            throw new IllegalArgumentException("initialBackoff must be positive");
+        }
+        if (maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("maxBackoff may not be less than initialBackoff");
+        }
+        this.initialBackoffNanos = timeUnit.toNanos(initialBackoff);
+        this.maxBackoffNanos = timeUnit.toNanos(maxBackoff);
+        return this;
+    }
+
+    /**
+     * Create the exporter instance and start its export thread.  Batches left in the spool directory by a
+     * previous exporter will be replayed.
+     *
+     * @return exporter instance
+     * @throws IOException if the spool directory could not be created or read
+     */
+    public SpoolingSpanExporter<T> build() throws IOException {
+        return new SpoolingSpanExporter<>(encoder, sink, spoolDirectory, maxSpoolSize, batchSize,
+                flushIntervalNanos, maxPendingBatches, initialBackoffNanos, maxBackoffNanos);
+    }
+
+}
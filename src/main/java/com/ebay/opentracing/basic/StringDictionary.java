@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded intern table for the operation names and tag keys seen by the tracer.  Each distinct string is
+ * assigned a small integer ID, in order of first sighting, and a canonical instance which is then shared
+ * by all spans using it.  Exporters may use the IDs to dictionary-encode the strings, emitting each string
+ * once and referring to it by ID thereafter.
+ * <p>
+ * The table is bounded both in the number of entries and in the length of the strings it accepts, so that
+ * instrumentation generating unbounded names cannot grow it without limit.  Strings which are refused are
+ * used as-is, have no ID, and are counted by {@link #getOverflowCount()}.  Lookups of strings already
+ * present are lock-free, while new entries are added under a lock.  Once the dictionary is full, unseen
+ * strings are refused without taking the lock.
+ * <p>
+ * An instance is supplied to the tracer via {@link BasicTracerBuilder#stringDictionary(StringDictionary)}.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class StringDictionary {
+    /**
+     * ID returned for strings which are not present in the dictionary.
+     */
+    public static final int NO_ID = -1;
+
+    private static final StringDictionary DISABLED = new StringDictionary();
+
+    private final int maxEntries;
+    private final int maxLength;
+    private final boolean enabled;
+    private final ConcurrentMap<String, Integer> ids;
+    private final AtomicReferenceArray<String> strings;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private int size;
+    private volatile boolean full;
+
+    /**
+     * Create a new dictionary.
+     *
+     * @param maxEntries maximum number of strings held
+     * @param maxLength  maximum length of the strings held
+     */
+    public StringDictionary(int maxEntries, int maxLength) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("maxLength must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+        this.enabled = true;
+        this.ids = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        this.strings = new AtomicReferenceArray<>(maxEntries);
+    }
+
+    private StringDictionary() {
+        this.maxEntries = 0;
+        this.maxLength = 0;
+        this.enabled = false;
+        this.ids = new ConcurrentHashMap<>();
+        this.strings = new AtomicReferenceArray<>(0);
+    }
+
+    /**
+     * Get the dictionary used when none has been configured, which holds nothing.
+     *
+     * @return disabled dictionary
+     */
+    static StringDictionary disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Get the ID of a string.
+     *
+     * @param value string value
+     * @return ID, or {@link #NO_ID} if the string is not present
+     */
+    public int getId(String value) {
+        Integer id = ids.get(value);
+        return (id == null) ? NO_ID : id;
+    }
+
+    /**
+     * Get the string with the ID provided.
+     *
+     * @param id string ID
+     * @return string, or null if no string has the ID
+     */
+    @Nullable
+    public String lookup(int id) {
+        return (id < 0 || id >= maxEntries) ? null : strings.get(id);
+    }
+
+    /**
+     * Get the number of strings held.
+     *
+     * @return string count
+     */
+    public int getSize() {
+        return ids.size();
+    }
+
+    /**
+     * Get the number of times a string was refused because the dictionary was full or the string too long.
+     *
+     * @return overflow count
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    /**
+     * Obtain the canonical instance of a string, adding it to the dictionary if absent and there is room.
+     *
+     * @param value string value
+     * @return canonical instance, or the value provided if it was refused
+     */
+    String intern(String value) {
+        if (!enabled || value == null) {
+            return value;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return strings.get(id);
+        }
+        if (full || value.length() > maxLength) {
+            overflowCount.incrementAndGet();
+            return value;
+        }
+        return add(value);
+    }
+
+    private synchronized String add(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return strings.get(id);
+        }
+        if (full) {
+            overflowCount.incrementAndGet();
+            return value;
+        }
+
+        // Publish the string before its ID, so that any thread seeing the ID also sees the string
+        strings.set(size, value);
+        ids.put(value, size);
+        size++;
+        full = (size == maxEntries);
+        return value;
+    }
+
+}
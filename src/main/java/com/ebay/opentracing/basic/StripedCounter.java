@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which spreads updates from different threads over multiple cache-line padded cells in order to
+ * avoid contention.  Reads sum all cells and are therefore more expensive than updates.
+ */
+final class StripedCounter {
+    private static final int PADDING_SHIFT = 3; // 8 longs per 64 byte cache line
+    private static final int STRIPE_COUNT = stripeCount();
+    private static final int STRIPE_SHIFT = 64 - Integer.numberOfTrailingZeros(STRIPE_COUNT);
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPE_COUNT << PADDING_SHIFT);
+
+    void increment() {
+        add(1L);
+    }
+
+    void add(long delta) {
+        cells.addAndGet(cellIndex(), delta);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            sum += cells.get(i << PADDING_SHIFT);
+        }
+        return sum;
+    }
+
+    private static int cellIndex() {
+        long threadId = Thread.currentThread().getId();
+        int stripe = (int) ((threadId * 0x9E3779B97F4A7C15L) >>> STRIPE_SHIFT);
+        return stripe << PADDING_SHIFT;
+    }
+
+    private static int stripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = Integer.highestOneBit(Math.max(1, processors - 1)) << 1;
+        return Math.min(count, 32);
+    }
+
+}
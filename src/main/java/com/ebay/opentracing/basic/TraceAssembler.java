@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FinishedSpanReceiver} which groups finished spans by trace and passes each trace as a whole to an
+ * {@link AssembledTraceReceiver}.
+ * <p>
+ * A trace is emitted once its local root has finished and the grace period has elapsed without any further
+ * spans of the trace arriving, or once the timeout has elapsed since its first span arrived.  The local root
+ * is the span the tracer started without a local parent, as recorded by the span builder, so spans started
+ * by another tracer never complete a trace.  The grace period allows for spans outliving the local root,
+ * such as follows-from children.  Spans arriving after their trace has been emitted form a new group.
+ * <p>
+ * Timeouts are tracked by a hashed timing wheel advanced by a single thread, so that the cost of each tick
+ * is independent of the number of traces in flight.  The number of traces in flight is bounded; spans of
+ * further traces are dropped.  Instances are created via {@link TraceAssemblerBuilder}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class TraceAssembler<T> implements FinishedSpanReceiver<T>, Closeable {
+    private static final AtomicInteger THREAD_SERIAL = new AtomicInteger();
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final AssembledTraceReceiver<T> receiver;
+    private final long tickNanos;
+    private final long graceTicks;
+    private final long timeoutTicks;
+    private final int maxTraces;
+    private final long startNanos;
+    private final Map<String, PendingTrace<T>> traces = new HashMap<>();
+    private final HashedTimingWheel<PendingTrace<T>> wheel;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong deliveryFailures = new AtomicLong();
+    private final Object lock = new Object();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    TraceAssembler(
+            SpanIdAccessor<T> spanIdAccessor,
+            AssembledTraceReceiver<T> receiver,
+            long tickNanos,
+            long gracePeriodNanos,
+            long timeoutNanos,
+            int maxTraces) {
+        this.spanIdAccessor = spanIdAccessor;
+        this.receiver = receiver;
+        this.tickNanos = tickNanos;
+        this.graceTicks = Math.max(1L, (gracePeriodNanos + tickNanos - 1L) / tickNanos);
+        this.timeoutTicks = Math.max(1L, (timeoutNanos + tickNanos - 1L) / tickNanos);
+        this.maxTraces = maxTraces;
+        this.startNanos = System.nanoTime();
+        // Size the wheel to cover the timeout in a single revolution
+        this.wheel = new HashedTimingWheel<>(Integer.highestOneBit((int) Math.min(timeoutTicks, 1 << 16)) << 1);
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, "basic-tracer-trace-assembly-" + THREAD_SERIAL.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Spans which arrive after this assembler has been closed are dropped.
+     */
+    @Override
+    public void spanFinished(SpanData<T> spanData) {
+        if (closed) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        String traceId = spanIdAccessor.getTraceId(spanData.getSpanContext().getTraceContext());
+        boolean localRoot = spanData.getSpanContext().localRoot;
+        SpanDataSnapshot<T> snapshot = SpanDataSnapshot.of(spanData);
+
+        synchronized (lock) {
+            if (closed) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            long nowTick = currentTick();
+            PendingTrace<T> trace = traces.get(traceId);
+            if (trace == null) {
+                if (traces.size() >= maxTraces) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                trace = new PendingTrace<>(traceId, nowTick + timeoutTicks);
+                trace.timeout = wheel.schedule(trace, trace.timeoutTick);
+                traces.put(traceId, trace);
+            }
+
+            trace.spans.add(snapshot);
+            if (localRoot) {
+                trace.rootFinished = true;
+            }
+            if (trace.rootFinished) {
+                wheel.reschedule(trace.timeout, Math.min(trace.timeoutTick, nowTick + graceTicks));
+            }
+        }
+    }
+
+    /**
+     * Get the number of traces awaiting completion.
+     *
+     * @return in-flight trace count
+     */
+    public int getPendingTraceCount() {
+        synchronized (lock) {
+            return traces.size();
+        }
+    }
+
+    /**
+     * Get the number of spans dropped because the limit on traces in flight had been reached or the
+     * assembler had been closed.
+     *
+     * @return dropped span count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the number of traces for which the receiver threw an exception.
+     *
+     * @return failure count
+     */
+    public long getDeliveryFailureCount() {
+        return deliveryFailures.get();
+    }
+
+    /**
+     * Stop accepting spans, emit all traces in flight regardless of whether they have finished, and stop the
+     * assembly thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            worker.interrupt();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingTrace<T>> remaining;
+        // Holding the lock ensures no span can be added once the remaining traces are taken
+        synchronized (lock) {
+            remaining = new ArrayList<>(traces.values());
+            traces.clear();
+        }
+        for (PendingTrace<T> trace : remaining) {
+            trace.rootFinished = false;
+        }
+        emit(remaining);
+    }
+
+    private void tick() {
+        List<PendingTrace<T>> expired = new ArrayList<>();
+        while (!closed) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(tickNanos);
+            } catch (InterruptedException e) {
+                // Shutdown is signalled via the closed flag
+                continue;
+            }
+
+            synchronized (lock) {
+                wheel.advance(currentTick(), expired);
+                for (PendingTrace<T> trace : expired) {
+                    traces.remove(trace.traceId);
+                }
+            }
+            emit(expired);
+            expired.clear();
+        }
+    }
+
+    private void emit(List<PendingTrace<T>> pendingTraces) {
+        for (PendingTrace<T> trace : pendingTraces) {
+            try {
+                receiver.traceAssembled(Collections.unmodifiableList(trace.spans), trace.rootFinished);
+            } catch (RuntimeException e) {
+                deliveryFailures.incrementAndGet();
+            }
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private static final class PendingTrace<T> {
+        private final String traceId;
+        private final long timeoutTick;
+        private final List<SpanData<T>> spans = new ArrayList<>();
+        private HashedTimingWheel.Timeout<PendingTrace<T>> timeout;
+        private boolean rootFinished;
+
+        private PendingTrace(String traceId, long timeoutTick) {
+            this.traceId = traceId;
+            this.timeoutTick = timeoutTick;
+        }
+    }
+
+}
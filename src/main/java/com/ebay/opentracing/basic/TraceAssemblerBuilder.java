@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for creating instances of {@link TraceAssembler}.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class TraceAssemblerBuilder<T> {
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final AssembledTraceReceiver<T> receiver;
+    private long tickNanos = TimeUnit.MILLISECONDS.toNanos(100L);
+    private long gracePeriodNanos = TimeUnit.SECONDS.toNanos(1L);
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(30L);
+    private int maxTraces = 100000;
+
+    /**
+     * Create a builder for an assembler passing traces to the receiver provided.
+     *
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param receiver       receiver of assembled traces
+     */
+    public TraceAssemblerBuilder(SpanIdAccessor<T> spanIdAccessor, AssembledTraceReceiver<T> receiver) {
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        this.receiver = Objects.requireNonNull(receiver, "receiver may not be null");
+    }
+
+    /**
+     * Configure the granularity with which the grace period and timeout are tracked.  Defaults to 100
+     * milliseconds.
+     *
+     * @param tickDuration tick duration
+     * @param timeUnit     unit of the tick duration
+     * @return builder instance
+     */
+    public TraceAssemblerBuilder<T> tickDuration(long tickDuration, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (tickDuration < 1L) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        this.tickNanos = timeUnit.toNanos(tickDuration);
+        return this;
+    }
+
+    /**
+     * Configure the time to wait for further spans after a trace's local root has finished.  Defaults to
+     * one second.
+     *
+     * @param gracePeriod grace period
+     * @param timeUnit    unit of the grace period
+     * @return builder instance
+     */
+    public TraceAssemblerBuilder<T> gracePeriod(long gracePeriod, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (gracePeriod < 0L) {
+            throw new IllegalArgumentException("gracePeriod may not be negative");
+        }
+        this.gracePeriodNanos = timeUnit.toNanos(gracePeriod);
+        return this;
+    }
+
+    /**
+     * Configure the time after the arrival of a trace's first span at which the trace is emitted, even if
+     * its local root has not finished.  Defaults to 30 seconds.
+     *
+     * @param timeout  timeout
+     * @param timeUnit unit of the timeout
+     * @return builder instance
+     */
+    public TraceAssemblerBuilder<T> timeout(long timeout, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (timeout < 1L) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeoutNanos = timeUnit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Configure the maximum number of traces in flight.  Defaults to 100,000.
+     *
+     * @param maxTraces maximum number of traces in flight
+     * @return builder instance
+     */
+    public TraceAssemblerBuilder<T> maxTraces(int maxTraces) {
+        if (maxTraces < 1) {
+            throw new IllegalArgumentException("maxTraces must be positive");
+        }
+        this.maxTraces = maxTraces;
+        return this;
+    }
+
+    /**
+     * Create the assembler, starting its thread.
+     *
+     * @return assembler instance
+     */
+    public TraceAssembler<T> build() {
+        if (gracePeriodNanos > timeoutNanos) {
+            throw new IllegalStateException("gracePeriod may not exceed timeout");
+        }
+        return new TraceAssembler<>(spanIdAccessor, receiver, tickNanos, gracePeriodNanos, timeoutNanos, maxTraces);
+    }
+
+}
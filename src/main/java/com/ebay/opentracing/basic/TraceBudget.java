@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget limiting the number of spans, and their estimated size, recorded for a single trace within this
+ * process.  A budget is created when the local root span of a trace is started and is shared, via
+ * {@link InternalSpanContext}, by all spans descending from it.  Once the budget has been exhausted, all
+ * further spans of the trace are suppressed and the number suppressed is tagged onto the local root span
+ * when it finishes.
+ * <p>
+ * Sizes are estimated from the operation name and tags known when the span is started.
+ */
+final class TraceBudget {
+    static final String SUPPRESSED_SPANS_TAG = "suppressed_spans";
+
+    private static final int SPAN_OVERHEAD_BYTES = 256;
+    private static final int TAG_OVERHEAD_BYTES = 48;
+
+    private final long maxSpans;
+    private final long maxBytes;
+    private final AtomicLong spans = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    @Nullable
+    private volatile MutableSpanData<?> root;
+
+    private TraceBudget(long maxSpans, long maxBytes) {
+        this.maxSpans = maxSpans;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Find the budget of the trace to which a span belongs.  Only the parent defining the span's trace is
+     * considered, being the first child-of reference, or the first follows-from reference if there are no
+     * child-of references, so that links to spans of other traces are not charged.
+     *
+     * @param references span references, keyed by reference type
+     * @param <T>        trace context type
+     * @return budget, or null if the parent has none
+     */
+    @Nullable
+    static <T> TraceBudget find(Map<String, List<InternalSpanContext<T>>> references) {
+        InternalSpanContext<T> parent = InternalSpanContext.traceParent(references);
+        return (parent == null) ? null : parent.traceBudget;
+    }
+
+    /**
+     * Estimate the memory retained by a span's data once recorded.
+     *
+     * @param operationName span operation name
+     * @param tags          span tags, if any
+     * @return estimated size in bytes
+     */
+    static long estimateSize(String operationName, @Nullable Map<String, String> tags) {
+        long size = SPAN_OVERHEAD_BYTES + 2L * operationName.length();
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                String value = tag.getValue();
+                size += TAG_OVERHEAD_BYTES + 2L * (tag.getKey().length() + ((value == null) ? 0 : value.length()));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Charge a span to the budget.  Spans are charged even when refused, so that once exhausted the budget
+     * remains so.
+     *
+     * @param size estimated size of the span
+     * @return true if the span is within budget and should be recorded, false if it should be suppressed
+     */
+    boolean tryAcquire(long size) {
+        if (spans.incrementAndGet() > maxSpans || bytes.addAndGet(size) > maxBytes) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Charge the local root span to the budget.  The root is always recorded, as it carries the number of
+     * spans suppressed, so it is never counted as suppressed itself.
+     *
+     * @param size estimated size of the root span
+     */
+    void chargeRoot(long size) {
+        spans.incrementAndGet();
+        bytes.addAndGet(size);
+    }
+
+    long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    void setRoot(MutableSpanData<?> root) {
+        this.root = root;
+    }
+
+    /**
+     * Tag the local root span with the number of spans suppressed, if it is the span being finished.  The
+     * root is then forgotten, so that spans outliving it do not keep its data reachable.
+     *
+     * @param spanData span being finished
+     */
+    void spanFinished(MutableSpanData<?> spanData) {
+        if (spanData == root) {
+            root = null;
+            long suppressedCount = suppressed.get();
+            if (suppressedCount > 0L) {
+                spanData.putTag(SUPPRESSED_SPANS_TAG, Long.toString(suppressedCount));
+            }
+        }
+    }
+
+    /**
+     * Limits from which the budget of each trace is created.
+     */
+    static final class Limits {
+        private final long maxSpans;
+        private final long maxBytes;
+
+        Limits(long maxSpans, long maxBytes) {
+            this.maxSpans = maxSpans;
+            this.maxBytes = maxBytes;
+        }
+
+        TraceBudget newBudget() {
+            return new TraceBudget(maxSpans, maxBytes);
+        }
+    }
+
+}
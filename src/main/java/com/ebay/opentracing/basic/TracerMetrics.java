@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.propagation.Format;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collector of metrics describing the tracer's own behavior and cost.  Counters are striped across cache
+ * lines so that recording adds negligible overhead, at the expense of somewhat more costly reads.
+ * <p>
+ * An instance is supplied to the tracer via {@link BasicTracerBuilder#tracerMetrics(TracerMetrics)}.  The
+ * metrics may then be read via {@link #snapshot()}, or exposed via JMX by registering the instance with an
+ * MBean server:
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *         tracerMetrics, new ObjectName("com.ebay.opentracing:type=TracerMetrics"));
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class TracerMetrics implements TracerMetricsMXBean {
+    private static final TracerMetrics DISABLED = new TracerMetrics(false);
+    private static final int INJECTS = 0;
+    private static final int INJECT_FAILURES = 1;
+    private static final int EXTRACTS = 2;
+    private static final int EXTRACT_FAILURES = 3;
+
+    private final boolean enabled;
+    private final StripedCounter spansStarted = new StripedCounter();
+    private final StripedCounter spansFinished = new StripedCounter();
+    private final StripedCounter tags = new StripedCounter();
+    private final StripedCounter logEvents = new StripedCounter();
+    private final StripedCounter baggageItems = new StripedCounter();
+    private final StripedCounter baggageSize = new StripedCounter();
+    private final StripedCounter receiverInvocations = new StripedCounter();
+    private final StripedCounter receiverNanos = new StripedCounter();
+    private final AtomicLong receiverMaxNanos = new AtomicLong();
+    private final ConcurrentMap<String, FormatCounters> formatCounters = new ConcurrentHashMap<>();
+    private final List<BackpressurePolicy> backpressurePolicies = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a new metrics collector.
+     */
+    public TracerMetrics() {
+        this(true);
+    }
+
+    private TracerMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get the collector used when metrics have not been configured, which records nothing.
+     *
+     * @return disabled collector
+     */
+    static TracerMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Include the spans shed by the backpressure policy provided in the reported drop counts.  The policy
+     * configured via {@link BasicTracerBuilder#asyncDelivery(int, BackpressurePolicy)} is included
+     * automatically.
+     *
+     * @param backpressurePolicy policy instance
+     */
+    public void addBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        Objects.requireNonNull(backpressurePolicy, "backpressurePolicy may not be null");
+        if (!backpressurePolicies.contains(backpressurePolicy)) {
+            backpressurePolicies.add(backpressurePolicy);
+        }
+    }
+
+    /**
+     * Take a point-in-time view of the metrics.  Counters are read individually and so may be very
+     * slightly inconsistent with each other when spans are being recorded concurrently.
+     *
+     * @return metrics snapshot
+     */
+    public TracerMetricsSnapshot snapshot() {
+        // Read finished before started so that the unfinished count is never under-reported
+        long finished = spansFinished.sum();
+        return new TracerMetricsSnapshot(
+                spansStarted.sum(),
+                finished,
+                shedCount(false),
+                shedCount(true),
+                tags.sum(),
+                logEvents.sum(),
+                baggageItems.sum(),
+                baggageSize.sum(),
+                formatCounts(INJECTS),
+                formatCounts(INJECT_FAILURES),
+                formatCounts(EXTRACTS),
+                formatCounts(EXTRACT_FAILURES),
+                receiverInvocations.sum(),
+                receiverNanos.sum(),
+                receiverMaxNanos.get());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansStarted() {
+        return spansStarted.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansFinished() {
+        return spansFinished.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansUnfinished() {
+        long finished = spansFinished.sum();
+        return Math.max(0L, spansStarted.sum() - finished);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansDroppedByBackpressure() {
+        return shedCount(false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansSampledOutByBackpressure() {
+        return shedCount(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTagsPerSpan() {
+        return perSpan(tags);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getLogEventsPerSpan() {
+        return perSpan(logEvents);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBaggageItemsPerSpan() {
+        return perSpan(baggageItems);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBaggageSizePerSpan() {
+        return perSpan(baggageSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getInjectCounts() {
+        return formatCounts(INJECTS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getInjectFailureCounts() {
+        return formatCounts(INJECT_FAILURES);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getExtractCounts() {
+        return formatCounts(EXTRACTS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getExtractFailureCounts() {
+        return formatCounts(EXTRACT_FAILURES);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getReceiverLatencyMeanNanos() {
+        long invocations = receiverInvocations.sum();
+        return (invocations == 0L) ? 0.0d : (double) receiverNanos.sum() / invocations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReceiverLatencyMaxNanos() {
+        return receiverMaxNanos.get();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void spanStarted() {
+        if (enabled) {
+            spansStarted.increment();
+        }
+    }
+
+    void spanFinished(SpanData<?> spanData) {
+        if (enabled) {
+            spansFinished.increment();
+            // Count the tags and log events of our own spans without resolving deferred values on the
+            // finishing thread
+            if (spanData instanceof SpanState) {
+                SpanState<?> spanState = (SpanState<?>) spanData;
+                tags.add(spanState.getTagCount());
+                logEvents.add(spanState.getLogEventCount());
+            } else {
+                tags.add(spanData.getTags().size());
+                logEvents.add(spanData.getLogEvents().size());
+            }
+            Map<String, String> baggage = spanData.getSpanContext().getBaggage().getAsMap();
+            baggageItems.add(baggage.size());
+            if (!baggage.isEmpty()) {
+                long size = 0L;
+                for (Map.Entry<String, String> item : baggage.entrySet()) {
+                    size += item.getKey().length() + item.getValue().length();
+                }
+                baggageSize.add(size);
+            }
+        }
+    }
+
+    void receiverInvoked(long elapsedNanos) {
+        receiverInvocations.increment();
+        receiverNanos.add(elapsedNanos);
+        long max = receiverMaxNanos.get();
+        while (elapsedNanos > max && !receiverMaxNanos.compareAndSet(max, elapsedNanos)) {
+            max = receiverMaxNanos.get();
+        }
+    }
+
+    void injected(Format<?> format, boolean success) {
+        if (enabled) {
+            getFormatCounters(format).counters[success ? INJECTS : INJECT_FAILURES].increment();
+        }
+    }
+
+    void extracted(Format<?> format, boolean success) {
+        if (enabled) {
+            getFormatCounters(format).counters[success ? EXTRACTS : EXTRACT_FAILURES].increment();
+        }
+    }
+
+    private long shedCount(boolean sampling) {
+        long count = 0L;
+        for (BackpressurePolicy backpressurePolicy : backpressurePolicies) {
+            if (backpressurePolicy.isSampling() == sampling) {
+                count += backpressurePolicy.getShedCount();
+            }
+        }
+        return count;
+    }
+
+    private double perSpan(StripedCounter counter) {
+        long finished = spansFinished.sum();
+        return (finished == 0L) ? 0.0d : (double) counter.sum() / finished;
+    }
+
+    private Map<String, Long> formatCounts(int kind) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, FormatCounters> entry : formatCounters.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().counters[kind].sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private FormatCounters getFormatCounters(Format<?> format) {
+        String key = String.valueOf(format);
+        FormatCounters counters = formatCounters.get(key);
+        if (counters == null) {
+            FormatCounters created = new FormatCounters();
+            counters = formatCounters.putIfAbsent(key, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+
+    private static final class FormatCounters {
+        // Indexed by INJECTS, INJECT_FAILURES, EXTRACTS and EXTRACT_FAILURES
+        private final StripedCounter[] counters = {
+                new StripedCounter(), new StripedCounter(), new StripedCounter(), new StripedCounter()
+        };
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Map;
+
+/**
+ * JMX management interface exposing the tracer's internal metrics.  All values are cumulative since the
+ * creation of the {@link TracerMetrics} instance.
+ *
+ * @see TracerMetrics
+ */
+public interface TracerMetricsMXBean {
+
+    /**
+     * @return number of spans started
+     */
+    long getSpansStarted();
+
+    /**
+     * @return number of spans finished
+     */
+    long getSpansFinished();
+
+    /**
+     * @return number of spans started but not yet finished
+     */
+    long getSpansUnfinished();
+
+    /**
+     * @return number of finished spans shed by non-sampling backpressure policies
+     */
+    long getSpansDroppedByBackpressure();
+
+    /**
+     * @return number of finished spans sampled out by sampling backpressure policies, such as
+     * {@link BackpressurePolicy#degradeToSampling(double)}
+     */
+    long getSpansSampledOutByBackpressure();
+
+    /**
+     * @return mean number of tags per finished span
+     */
+    double getTagsPerSpan();
+
+    /**
+     * @return mean number of log events per finished span
+     */
+    double getLogEventsPerSpan();
+
+    /**
+     * @return mean number of baggage items per finished span
+     */
+    double getBaggageItemsPerSpan();
+
+    /**
+     * @return mean combined length, in characters, of the baggage item keys and values per finished span
+     */
+    double getBaggageSizePerSpan();
+
+    /**
+     * @return number of successful inject operations, keyed by format
+     */
+    Map<String, Long> getInjectCounts();
+
+    /**
+     * @return number of failed inject operations, keyed by format
+     */
+    Map<String, Long> getInjectFailureCounts();
+
+    /**
+     * @return number of successful extract operations, keyed by format
+     */
+    Map<String, Long> getExtractCounts();
+
+    /**
+     * @return number of failed extract operations, keyed by format
+     */
+    Map<String, Long> getExtractFailureCounts();
+
+    /**
+     * @return mean time spent in the finished span receiver, in nanoseconds
+     */
+    double getReceiverLatencyMeanNanos();
+
+    /**
+     * @return maximum time spent in the finished span receiver, in nanoseconds
+     */
+    long getReceiverLatencyMaxNanos();
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.util.Map;
+
+/**
+ * Immutable point-in-time view of the tracer's internal metrics.
+ *
+ * @see TracerMetrics#snapshot()
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class TracerMetricsSnapshot implements TracerMetricsMXBean {
+    private final long spansStarted;
+    private final long spansFinished;
+    private final long spansDroppedByBackpressure;
+    private final long spansSampledOutByBackpressure;
+    private final long tags;
+    private final long logEvents;
+    private final long baggageItems;
+    private final long baggageSize;
+    private final Map<String, Long> injectCounts;
+    private final Map<String, Long> injectFailureCounts;
+    private final Map<String, Long> extractCounts;
+    private final Map<String, Long> extractFailureCounts;
+    private final long receiverInvocations;
+    private final long receiverNanos;
+    private final long receiverMaxNanos;
+
+    TracerMetricsSnapshot(
+            long spansStarted,
+            long spansFinished,
+            long spansDroppedByBackpressure,
+            long spansSampledOutByBackpressure,
+            long tags,
+            long logEvents,
+            long baggageItems,
+            long baggageSize,
+            Map<String, Long> injectCounts,
+            Map<String, Long> injectFailureCounts,
+            Map<String, Long> extractCounts,
+            Map<String, Long> extractFailureCounts,
+            long receiverInvocations,
+            long receiverNanos,
+            long receiverMaxNanos) {
+        this.spansStarted = spansStarted;
+        this.spansFinished = spansFinished;
+        this.spansDroppedByBackpressure = spansDroppedByBackpressure;
+        this.spansSampledOutByBackpressure = spansSampledOutByBackpressure;
+        this.tags = tags;
+        this.logEvents = logEvents;
+        this.baggageItems = baggageItems;
+        this.baggageSize = baggageSize;
+        this.injectCounts = injectCounts;
+        this.injectFailureCounts = injectFailureCounts;
+        this.extractCounts = extractCounts;
+        this.extractFailureCounts = extractFailureCounts;
+        this.receiverInvocations = receiverInvocations;
+        this.receiverNanos = receiverNanos;
+        this.receiverMaxNanos = receiverMaxNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansStarted() {
+        return spansStarted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansFinished() {
+        return spansFinished;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansUnfinished() {
+        return Math.max(0L, spansStarted - spansFinished);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansDroppedByBackpressure() {
+        return spansDroppedByBackpressure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpansSampledOutByBackpressure() {
+        return spansSampledOutByBackpressure;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTagsPerSpan() {
+        return perSpan(tags);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getLogEventsPerSpan() {
+        return perSpan(logEvents);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBaggageItemsPerSpan() {
+        return perSpan(baggageItems);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getBaggageSizePerSpan() {
+        return perSpan(baggageSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getInjectCounts() {
+        return injectCounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getInjectFailureCounts() {
+        return injectFailureCounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getExtractCounts() {
+        return extractCounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getExtractFailureCounts() {
+        return extractFailureCounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getReceiverLatencyMeanNanos() {
+        return (receiverInvocations == 0L) ? 0.0d : (double) receiverNanos / receiverInvocations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReceiverLatencyMaxNanos() {
+        return receiverMaxNanos;
+    }
+
+    private double perSpan(long total) {
+        return (spansFinished == 0L) ? 0.0d : (double) total / spansFinished;
+    }
+
+}
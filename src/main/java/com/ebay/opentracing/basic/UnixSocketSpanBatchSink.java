@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SpanBatchSink} which streams batches to a node-local agent over a Unix domain socket.  Each batch
+ * is framed by its length as a big-endian 32 bit integer.  The socket is used in non-blocking mode so that a
+ * stalled agent causes a send to fail after the write timeout rather than blocking indefinitely.
+ * <p>
+ * The connection is established lazily and re-established on the next send after any failure.  A send
+ * which fails part way through a batch closes the connection, so the agent never sees a frame resumed
+ * mid-way.  Combine with a {@link SpoolingSpanExporter} to obtain batching, retry with backoff, and
+ * spooling while the agent is unavailable or cannot keep up.
+ * <p>
+ * Unix domain socket channels require Java 16 or later and are accessed reflectively so that this library
+ * continues to run on earlier JVMs.  Use {@link #isAvailable()} to determine whether this sink can be used.
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class UnixSocketSpanBatchSink implements SpanBatchSink, Closeable {
+    private static final int FRAME_HEADER_SIZE = 4;
+
+    private final SocketAddress address;
+    private final long writeTimeoutNanos;
+    private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+    private final ByteBuffer[] frame = new ByteBuffer[2];
+    private final AtomicLong connectCount = new AtomicLong();
+
+    @Nullable
+    private SocketChannel channel;
+    @Nullable
+    private Selector selector;
+    private boolean closed;
+
+    /**
+     * Create a sink which sends batches to the agent listening on the socket file provided.
+     *
+     * @param socketPath   path of the agent's socket file
+     * @param writeTimeout maximum time to wait for the agent to accept a batch
+     * @param timeUnit     unit of the write timeout
+     * @throws UnsupportedOperationException if Unix domain sockets are not available
+     */
+    public UnixSocketSpanBatchSink(Path socketPath, long writeTimeout, TimeUnit timeUnit) {
+        Objects.requireNonNull(socketPath, "socketPath may not be null");
+        Objects.requireNonNull(timeUnit, "timeUnit may not be null");
+        if (writeTimeout < 1L) {
+            throw new IllegalArgumentException("writeTimeout must be positive");
+        }
+        this.address = socketAddress(socketPath);
+        this.writeTimeoutNanos = timeUnit.toNanos(writeTimeout);
+    }
+
+    /**
+     * Determine whether Unix domain socket channels are available in the running JVM.
+     *
+     * @return {@code true} if available
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("java.net.UnixDomainSocketAddress");
+            SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void send(ByteBuffer batch) throws IOException {
+        if (closed) {
+            throw new IOException("Sink has been closed");
+        }
+
+        long deadline = System.nanoTime() + writeTimeoutNanos;
+        header.clear();
+        header.putInt(batch.remaining());
+        header.flip();
+        frame[0] = header;
+        frame[1] = batch;
+        try {
+            if (channel == null) {
+                connect(deadline);
+            }
+            writeFully(deadline);
+        } catch (IOException | RuntimeException e) {
+            disconnect();
+            throw e;
+        } finally {
+            frame[1] = null;
+        }
+    }
+
+    /**
+     * Get the number of connections established to the agent, including reconnections.
+     *
+     * @return connection count
+     */
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    /**
+     * Close the connection to the agent.  Subsequent sends fail.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        disconnect();
+    }
+
+    private void connect(long deadline) throws IOException {
+        SocketChannel channel = openChannel();
+        Selector selector = null;
+        try {
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            SelectionKey key = channel.register(selector, 0);
+            if (!channel.connect(address)) {
+                key.interestOps(SelectionKey.OP_CONNECT);
+                while (!channel.finishConnect()) {
+                    await(selector, deadline, "connect");
+                }
+            }
+            key.interestOps(SelectionKey.OP_WRITE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (selector != null) {
+                selector.close();
+            }
+            throw e;
+        }
+        this.channel = channel;
+        this.selector = selector;
+        connectCount.incrementAndGet();
+    }
+
+    private void writeFully(long deadline) throws IOException {
+        while (frame[1].hasRemaining() || header.hasRemaining()) {
+            if (channel.write(frame) == 0L) {
+                await(selector, deadline, "write");
+            }
+        }
+    }
+
+    private static void await(Selector selector, long deadline, String operation) throws IOException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L) {
+            throw new IOException("Timed out waiting to " + operation);
+        }
+        selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        selector.selectedKeys().clear();
+    }
+
+    private void disconnect() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // Nothing more to be done
+        } finally {
+            selector = null;
+            channel = null;
+        }
+    }
+
+    private static SocketChannel openChannel() throws IOException {
+        try {
+            Method open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            return (SocketChannel) open.invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Unix domain sockets are not available", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new UnsupportedOperationException("Unix domain sockets are not available", cause);
+        }
+    }
+
+    /**
+     * Create a Unix domain socket address for the path provided.
+     *
+     * @param path socket file path
+     * @return socket address
+     * @throws UnsupportedOperationException if Unix domain sockets are not available
+     */
+    static SocketAddress socketAddress(Path path) {
+        try {
+            Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            return (SocketAddress) addressClass.getMethod("of", Path.class).invoke(null, path);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Unix domain sockets are not available", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Invalid socket path: " + path, e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+/**
+ * Supplier of a tag or log value which is costly to produce, allowing its production to be deferred until
+ * the span is exported, and skipped entirely for spans which are not recorded.
+ *
+ * @param <V> value type
+ * @see BasicSpan#setTag(String, ValueSupplier)
+ * @see BasicSpan#log(String, ValueSupplier)
+ */
+public interface ValueSupplier<V> {
+
+    /**
+     * Produce the value.  This may be called on a thread other than the one which supplied it to the span,
+     * once the span has finished.
+     *
+     * @return value, whose string form is recorded
+     */
+    V get();
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.References;
+import io.opentracing.log.Fields;
+import io.opentracing.tag.Tags;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SpanBatchEncoder} which encodes batches of spans as a Zipkin v2 JSON array, suitable for posting
+ * to a Zipkin collector's {@code /api/v2/spans} endpoint.  Spans are written directly into a buffer which
+ * is reused between batches, without building an intermediate object tree.
+ * <p>
+ * The {@code span.kind} tag is mapped onto the Zipkin span kind and log events are mapped onto annotations.
+ * Instances are not thread safe.
+ *
+ * @param <T> trace context type
+ */
+@SuppressWarnings("WeakerAccess") // API class
+public final class ZipkinJsonEncoder<T> implements SpanBatchEncoder<T> {
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final SpanIdAccessor<T> spanIdAccessor;
+    private final String serviceName;
+    private final JsonWriter writer = new JsonWriter(INITIAL_CAPACITY);
+
+    /**
+     * Create an encoder for spans reported by the named service.
+     *
+     * @param spanIdAccessor accessor used to obtain IDs from the trace context
+     * @param serviceName    name of the local service
+     */
+    public ZipkinJsonEncoder(SpanIdAccessor<T> spanIdAccessor, String serviceName) {
+        this.spanIdAccessor = Objects.requireNonNull(spanIdAccessor, "spanIdAccessor may not be null");
+        this.serviceName = Objects.requireNonNull(serviceName, "serviceName may not be null");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer encode(List<? extends SpanData<T>> spans) {
+        writer.reset();
+        writer.writeByte('[');
+        for (int i = 0; i < spans.size(); i++) {
+            if (i > 0) {
+                writer.writeByte(',');
+            }
+            writeSpan(spans.get(i));
+        }
+        writer.writeByte(']');
+        return writer.toByteBuffer();
+    }
+
+    private void writeSpan(SpanData<T> spanData) {
+        T traceContext = spanData.getSpanContext().getTraceContext();
+        writer.writeRaw("{\"traceId\":").writeString(spanIdAccessor.getTraceId(traceContext));
+        writer.writeRaw(",\"id\":").writeString(spanIdAccessor.getSpanId(traceContext));
+
+        List<? extends InternalSpanContext<T>> parents = spanData.getReferences(References.CHILD_OF);
+        if (parents == null || parents.isEmpty()) {
+            parents = spanData.getReferences(References.FOLLOWS_FROM);
+        }
+        if (parents != null && !parents.isEmpty()) {
+            writer.writeRaw(",\"parentId\":").writeString(spanIdAccessor.getSpanId(parents.get(0).getTraceContext()));
+        }
+
+        Map<String, String> tags = spanData.getTags();
+        String kind = tags.get(Tags.SPAN_KIND.getKey());
+        if (kind != null) {
+            writer.writeRaw(",\"kind\":").writeString(kind.toUpperCase(Locale.ROOT));
+        }
+
+        writer.writeRaw(",\"name\":").writeString(spanData.getOperationName());
+        long startMicros = spanData.getStartTime(TimeUnit.MICROSECONDS);
+        writer.writeRaw(",\"timestamp\":").writeLong(startMicros);
+        // Zipkin interprets a zero duration as unknown
+        long durationMicros = Math.max(1L, spanData.getFinishTime(TimeUnit.MICROSECONDS) - startMicros);
+        writer.writeRaw(",\"duration\":").writeLong(durationMicros);
+        writer.writeRaw(",\"localEndpoint\":{\"serviceName\":").writeString(serviceName).writeByte('}');
+
+        List<LogEvent> logEvents = spanData.getLogEvents();
+        if (!logEvents.isEmpty()) {
+            writer.writeRaw(",\"annotations\":[");
+            for (int i = 0; i < logEvents.size(); i++) {
+                if (i > 0) {
+                    writer.writeByte(',');
+                }
+                LogEvent logEvent = logEvents.get(i);
+                writer.writeRaw("{\"timestamp\":").writeLong(logEvent.getTimeStamp(TimeUnit.MICROSECONDS));
+                writer.writeRaw(",\"value\":").writeString(annotationValue(logEvent)).writeByte('}');
+            }
+            writer.writeByte(']');
+        }
+
+        boolean first = true;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (Tags.SPAN_KIND.getKey().equals(tag.getKey()) || tag.getValue() == null) {
+                continue;
+            }
+            writer.writeRaw(first ? ",\"tags\":{" : ",");
+            writer.writeString(tag.getKey()).writeByte(':').writeString(tag.getValue());
+            first = false;
+        }
+        if (!first) {
+            writer.writeByte('}');
+        }
+        writer.writeByte('}');
+    }
+
+    private static String annotationValue(LogEvent logEvent) {
+        Object payload = logEvent.getPayload();
+        String value = String.valueOf(payload);
+        if (Fields.EVENT.equals(logEvent.getEventName())) {
+            return value;
+        }
+        return logEvent.getEventName() + "=" + value;
+    }
+
+}
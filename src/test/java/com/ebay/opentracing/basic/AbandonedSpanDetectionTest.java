@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the detection of spans which are started but never finished.
+ */
+public class AbandonedSpanDetectionTest {
+
+    private final List<SpanData<TestTraceContext>> finished = new ArrayList<>();
+    private final List<SpanData<TestTraceContext>> abandoned = new ArrayList<>();
+    private final List<Boolean> unreachable = new ArrayList<>();
+    private final List<Throwable> creationSites = new ArrayList<>();
+
+    @Test
+    public void spansExceedingMaxLifetimeAreReportedWithCreationSite() throws InterruptedException {
+        Tracer tracer = newTracer(50L, 1.0d);
+        Span span = tracer.buildSpan("long-running").start();
+        awaitAbandoned(1);
+
+        synchronized (abandoned) {
+            assertEquals("long-running", abandoned.get(0).getOperationName());
+            assertFalse(unreachable.get(0));
+            assertEquals("Span 'long-running' created here", creationSites.get(0).getMessage());
+            assertEquals(getClass().getName(), creationSites.get(0).getStackTrace()[0].getClassName());
+        }
+
+        // Reported spans may still be finished as normal
+        span.finish();
+        assertEquals(1, finished.size());
+    }
+
+    @Test
+    public void unreachableUnfinishedSpansAreReported() throws InterruptedException {
+        Tracer tracer = newTracer(TimeUnit.HOURS.toMillis(1L), 0.0d);
+        tracer.buildSpan("finished").start().finish();
+        startAndForget(tracer);
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (abandonedCount() == 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        synchronized (abandoned) {
+            assertEquals(1, abandoned.size());
+            assertEquals("forgotten", abandoned.get(0).getOperationName());
+            assertTrue(unreachable.get(0));
+            assertNull(creationSites.get(0));
+        }
+    }
+
+    @Test
+    public void closingTracerStopsDetection() throws IOException, InterruptedException {
+        int threadsBefore = detectionThreadCount();
+        Tracer tracer = newTracer(50L, 0.0d);
+        assertEquals(threadsBefore + 1, detectionThreadCount());
+        tracer.buildSpan("long-running").start();
+
+        ((Closeable) tracer).close();
+        assertEquals(threadsBefore, detectionThreadCount());
+        Thread.sleep(200L);
+        assertEquals(0, abandonedCount());
+    }
+
+    private Tracer newTracer(long maxLifetimeMillis, double creationSiteSampleRate) {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.add(spanData);
+            }
+        })
+                .abandonedSpanDetection(new AbandonedSpanReceiver<TestTraceContext>() {
+                    @Override
+                    public void spanAbandoned(SpanData<TestTraceContext> spanData, boolean isUnreachable,
+                            Throwable creationSite) {
+                        synchronized (abandoned) {
+                            abandoned.add(spanData);
+                            unreachable.add(isUnreachable);
+                            creationSites.add(creationSite);
+                        }
+                    }
+                }, maxLifetimeMillis, TimeUnit.MILLISECONDS, creationSiteSampleRate)
+                .build();
+    }
+
+    private static void startAndForget(Tracer tracer) {
+        tracer.buildSpan("forgotten").start();
+    }
+
+    private static int detectionThreadCount() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("basic-tracer-abandoned-spans-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int abandonedCount() {
+        synchronized (abandoned) {
+            return abandoned.size();
+        }
+    }
+
+    private void awaitAbandoned(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (abandonedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        assertEquals(count, abandonedCount());
+    }
+
+}
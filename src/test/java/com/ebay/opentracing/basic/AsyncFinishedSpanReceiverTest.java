@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of asynchronous span delivery and the backpressure policies.
+ */
+public class AsyncFinishedSpanReceiverTest {
+
+    @Test
+    public void dropNewestShedsIncomingElement() {
+        BackpressurePolicy policy = BackpressurePolicy.dropNewest();
+        ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(2);
+
+        assertTrue(policy.enqueue(queue, "a"));
+        assertTrue(policy.enqueue(queue, "b"));
+        assertFalse(policy.enqueue(queue, "c"));
+
+        assertEquals(1, policy.getShedCount());
+        assertEquals("a", queue.poll());
+        assertEquals("b", queue.poll());
+    }
+
+    @Test
+    public void dropOldestShedsQueuedElement() {
+        BackpressurePolicy policy = BackpressurePolicy.dropOldest();
+        ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(2);
+
+        assertTrue(policy.enqueue(queue, "a"));
+        assertTrue(policy.enqueue(queue, "b"));
+        assertTrue(policy.enqueue(queue, "c"));
+
+        assertEquals(1, policy.getShedCount());
+        assertEquals("b", queue.poll());
+        assertEquals("c", queue.poll());
+    }
+
+    @Test
+    public void blockWithTimeoutShedsAfterTimeout() {
+        BackpressurePolicy policy = BackpressurePolicy.blockWithTimeout(10, TimeUnit.MILLISECONDS);
+        ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(1);
+
+        assertTrue(policy.enqueue(queue, "a"));
+        long start = System.nanoTime();
+        assertFalse(policy.enqueue(queue, "b"));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, policy.getShedCount());
+    }
+
+    @Test
+    public void degradeToSamplingShedsAboveHighWaterMark() {
+        BackpressurePolicy policy = BackpressurePolicy.degradeToSampling(0.5d);
+        ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<>(100);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(policy.enqueue(queue, i));
+        }
+        assertEquals(0, policy.getShedCount());
+
+        for (int i = 0; i < 1000; i++) {
+            policy.enqueue(queue, i);
+        }
+        assertEquals(1000, policy.getShedCount() + queue.size() - 50);
+        assertTrue(policy.getShedCount() >= 950);
+    }
+
+    @Test
+    public void spansAreDeliveredOnAnotherThread() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<Thread> deliveryThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        FinishedSpanReceiver<TestTraceContext> delegate = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                deliveryThreads.add(Thread.currentThread());
+                latch.countDown();
+            }
+        };
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), delegate)
+                .asyncDelivery(16, BackpressurePolicy.dropNewest())
+                .build();
+
+        tracer.buildSpan("operation").start().finish();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), deliveryThreads.get(0));
+    }
+
+    @Test
+    public void closeDeliversQueuedSpans() {
+        final List<SpanData<TestTraceContext>> delivered =
+                Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+        FinishedSpanReceiver<TestTraceContext> delegate = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                delivered.add(spanData);
+            }
+        };
+        AsyncFinishedSpanReceiver<TestTraceContext> receiver =
+                new AsyncFinishedSpanReceiver<>(delegate, 1024, BackpressurePolicy.dropNewest());
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            tracer.buildSpan("operation").start().finish();
+        }
+        receiver.close();
+        tracer.buildSpan("afterClose").start().finish();
+
+        assertEquals(100, delivered.size());
+        assertEquals(1, receiver.getBackpressurePolicy().getShedCount());
+    }
+
+    @Test
+    public void closingTracerStopsDeliveryThread() throws Exception {
+        final List<SpanData<TestTraceContext>> delivered =
+                Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+        FinishedSpanReceiver<TestTraceContext> delegate = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                delivered.add(spanData);
+            }
+        };
+        BackpressurePolicy policy = BackpressurePolicy.dropNewest();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), delegate)
+                .asyncDelivery(1024, policy)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            tracer.buildSpan("operation").start().finish();
+        }
+        ((Closeable) tracer).close();
+        tracer.buildSpan("afterClose").start().finish();
+
+        assertEquals(100, delivered.size());
+        assertEquals(1, policy.getShedCount());
+    }
+
+    @Test
+    public void fanOutIsolatesSlowSink() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        FinishedSpanReceiver<TestTraceContext> slowSink = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final List<SpanData<TestTraceContext>> fastDelivered =
+                Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+        final CountDownLatch fastLatch = new CountDownLatch(10);
+        FinishedSpanReceiver<TestTraceContext> fastSink = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                fastDelivered.add(spanData);
+                fastLatch.countDown();
+            }
+        };
+        final List<SpanData<TestTraceContext>> otherDelivered =
+                Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+        FinishedSpanReceiver<TestTraceContext> otherSink = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                otherDelivered.add(spanData);
+            }
+        };
+
+        FanOutFinishedSpanReceiver<TestTraceContext> receiver = new FanOutFinishedSpanReceiverBuilder<TestTraceContext>()
+                .addSink(slowSink, 2, BackpressurePolicy.dropNewest())
+                .addSink(fastSink, 16, BackpressurePolicy.dropNewest())
+                .addSink(otherSink, 16, BackpressurePolicy.dropNewest())
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            tracer.buildSpan("operation").withTag("index", i).start().finish();
+        }
+
+        assertTrue(fastLatch.await(5, TimeUnit.SECONDS));
+        // The blocked worker holds at most one batch of up to queue capacity plus the span it polled
+        assertTrue(receiver.getSinks().get(0).getBackpressurePolicy().getShedCount() >= 5);
+        assertEquals(0, receiver.getSinks().get(1).getBackpressurePolicy().getShedCount());
+
+        release.countDown();
+        receiver.close();
+
+        assertEquals(10, otherDelivered.size());
+        for (int i = 0; i < 10; i++) {
+            assertSame(fastDelivered.get(i), otherDelivered.get(i));
+            assertEquals(Integer.toString(i), fastDelivered.get(i).getTags().get("index"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fanOutRejectsSharedPolicy() {
+        FinishedSpanReceiver<TestTraceContext> sink = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+            }
+        };
+        BackpressurePolicy policy = BackpressurePolicy.dropNewest();
+        new FanOutFinishedSpanReceiverBuilder<TestTraceContext>()
+                .addSink(sink, 16, policy)
+                .addSink(sink, 16, policy);
+    }
+
+    @Test
+    public void spanProcessorsRunOnDeliveryThreadInBatches() throws Exception {
+        final List<Thread> processorThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        SpanProcessor<TestTraceContext> processor = new SpanProcessor<TestTraceContext>() {
+            @Override
+            public void onStart(MutableSpanData<TestTraceContext> spanData) {
+            }
+
+            @Override
+            public void onFinish(List<MutableSpanData<TestTraceContext>> spans) {
+                processorThreads.add(Thread.currentThread());
+                batchSizes.add(spans.size());
+                Iterator<MutableSpanData<TestTraceContext>> iterator = spans.iterator();
+                while (iterator.hasNext()) {
+                    if ("drop".equals(iterator.next().getOperationName())) {
+                        iterator.remove();
+                    }
+                }
+            }
+        };
+        final CountDownLatch inDelivery = new CountDownLatch(1);
+        final CountDownLatch blockDelivery = new CountDownLatch(1);
+        final List<SpanData<TestTraceContext>> delivered =
+                Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+        final CountDownLatch deliveredLatch = new CountDownLatch(10);
+        FinishedSpanReceiver<TestTraceContext> delegate = new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                inDelivery.countDown();
+                try {
+                    blockDelivery.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.add(spanData);
+                deliveredLatch.countDown();
+            }
+        };
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), delegate)
+                .asyncDelivery(64, BackpressurePolicy.dropNewest())
+                .addSpanProcessor(processor)
+                .build();
+
+        tracer.buildSpan("first").start().finish();
+        assertTrue(inDelivery.await(5, TimeUnit.SECONDS));
+        tracer.buildSpan("drop").start().finish();
+        for (int i = 0; i < 9; i++) {
+            tracer.buildSpan("operation").start().finish();
+        }
+        blockDelivery.countDown();
+
+        assertTrue(deliveredLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(10, delivered.size());
+        assertEquals(Arrays.asList(1, 10), batchSizes);
+        assertFalse(processorThreads.contains(Thread.currentThread()));
+    }
+
+}
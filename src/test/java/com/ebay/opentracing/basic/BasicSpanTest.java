@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of deferred tag and log values.
+ */
+public class BasicSpanTest {
+
+    private final AtomicReference<SpanData<TestTraceContext>> finished = new AtomicReference<>();
+    private final AtomicInteger supplied = new AtomicInteger();
+
+    @Test
+    public void deferredValuesAreResolvedWhenRead() {
+        TracerMetrics tracerMetrics = new TracerMetrics();
+        Tracer tracer = newTracerBuilder().tracerMetrics(tracerMetrics).build();
+        BasicSpan span = (BasicSpan) tracer.buildSpan("operation").start();
+        assertTrue(span.isRecording());
+
+        StringBuilder url = new StringBuilder("http://");
+        span.setTag("url", url);
+        span.setTag("sql", new CountingSupplier("select 1"));
+        span.log("rows", new CountingSupplier(42));
+        url.append("example.com");
+        span.finish();
+        assertEquals(0, supplied.get());
+        assertEquals(2.0d, tracerMetrics.snapshot().getTagsPerSpan(), 0.0d);
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals("http://example.com", spanData.getTags().get("url"));
+        assertEquals("select 1", spanData.getTags().get("sql"));
+        assertEquals("rows", spanData.getLogEvents().get(0).getEventName());
+        assertEquals("42", spanData.getLogEvents().get(0).getPayload());
+        assertEquals(2, supplied.get());
+
+        spanData.getTags();
+        assertEquals(2, supplied.get());
+    }
+
+    @Test
+    public void laterTagsReplaceDeferredTags() {
+        Tracer tracer = newTracerBuilder().build();
+        BasicSpan span = (BasicSpan) tracer.buildSpan("operation").start();
+        span.setTag("a", new CountingSupplier("deferred"));
+        span.setTag("a", "eager");
+        span.setTag("b", "eager");
+        span.setTag("b", new CountingSupplier("deferred"));
+        span.finish();
+
+        assertEquals("eager", finished.get().getTags().get("a"));
+        assertEquals("deferred", finished.get().getTags().get("b"));
+        assertEquals(1, supplied.get());
+    }
+
+    @Test
+    public void deferredValuesAreSubjectToLimits() {
+        Tracer tracer = newTracerBuilder()
+                .spanLimits(new SpanLimitsBuilder().maxTags(1).maxValueLength(3).build())
+                .build();
+        BasicSpan span = (BasicSpan) tracer.buildSpan("operation").start();
+        span.setTag("a", new CountingSupplier("abcdef"));
+        span.setTag("b", new CountingSupplier("ignored"));
+        span.log("event", new CountingSupplier("ghijkl"));
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals("abc", spanData.getTags().get("a"));
+        assertEquals(1, spanData.getTags().size());
+        assertEquals("ghi", spanData.getLogEvents().get(0).getPayload());
+        assertEquals(1, ((SpanLimitCounts) spanData).getDroppedTagCount());
+        assertEquals(2, ((SpanLimitCounts) spanData).getTruncatedValueCount());
+    }
+
+    @Test
+    public void deferredLogPayloadsAreChargedWhenResolved() {
+        Tracer tracer = newTracerBuilder()
+                .spanLimits(new SpanLimitsBuilder().maxPayloadLength(20).build())
+                .build();
+        BasicSpan span = (BasicSpan) tracer.buildSpan("operation").start();
+        span.log("e", new CountingSupplier("this payload is far too long"));
+        span.log("f", new CountingSupplier("ok"));
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals(1, spanData.getLogEvents().size());
+        assertEquals("ok", spanData.getLogEvents().get(0).getPayload());
+        assertEquals(1, ((SpanLimitCounts) spanData).getDroppedLogEventCount());
+    }
+
+    @Test
+    public void nonRecordingSpansSkipSuppliers() {
+        Tracer tracer = newTracerBuilder().traceBudget(1L, Long.MAX_VALUE).build();
+        Span root = tracer.buildSpan("root").start();
+        BasicSpan child = (BasicSpan) tracer.buildSpan("child").asChildOf(root).start();
+        assertFalse(child.isRecording());
+        child.setTag("sql", new CountingSupplier("select 1"));
+        child.log("rows", new CountingSupplier(42));
+        child.finish();
+        root.finish();
+
+        assertEquals(0, supplied.get());
+        assertEquals("root", finished.get().getOperationName());
+    }
+
+    private BasicTracerBuilder<TestTraceContext> newTracerBuilder() {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.set(spanData);
+            }
+        });
+    }
+
+    private final class CountingSupplier implements ValueSupplier<Object> {
+        private final Object value;
+
+        CountingSupplier(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object get() {
+            supplied.incrementAndGet();
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the cardinality limiter.
+ */
+public class CardinalityLimiterTest {
+
+    @Test
+    public void valuesBeyondLimitAreReplaced() {
+        assertValuesBeyondLimitAreReplaced(null);
+    }
+
+    @Test
+    public void valuesAreLimitedOnceWithSpanLimits() {
+        assertValuesBeyondLimitAreReplaced(new SpanLimitsBuilder().build());
+    }
+
+    @Test
+    public void sketchEstimatesLargeCardinalities() {
+        CardinalityLimiter limiter = new CardinalityLimiter(100, Collections.singletonList("id"));
+        for (int i = 0; i < 100000; i++) {
+            limiter.limitTag("id", Integer.toString(i));
+        }
+        long estimate = limiter.getEstimatedCardinalities().get("id");
+        assertEquals(100000.0d, estimate, 100000.0d * 0.2d);
+        assertEquals(Long.valueOf(99900L), limiter.getOverflowCounts().get("id"));
+    }
+
+    private static void assertValuesBeyondLimitAreReplaced(@Nullable SpanLimits spanLimits) {
+        CardinalityLimiter limiter = new CardinalityLimiter(3, Collections.singletonList("user"));
+        final List<SpanData<TestTraceContext>> finished = new ArrayList<>();
+        BasicTracerBuilder<TestTraceContext> builder = new BasicTracerBuilder<>(new TestTraceContextHandler(),
+                new FinishedSpanReceiver<TestTraceContext>() {
+                    @Override
+                    public void spanFinished(SpanData<TestTraceContext> spanData) {
+                        finished.add(spanData);
+                    }
+                })
+                .cardinalityLimiter(limiter);
+        if (spanLimits != null) {
+            builder.spanLimits(spanLimits);
+        }
+        Tracer tracer = builder.build();
+
+        for (int i = 0; i < 10; i++) {
+            Span span = tracer.buildSpan("get /user/" + (i % 5)).withTag("user", "user" + i).start();
+            span.setTag("unguarded", "value" + i);
+            span.finish();
+        }
+
+        assertEquals("get /user/0", finished.get(5).getOperationName());
+        assertEquals(CardinalityLimiter.OVERFLOW_VALUE, finished.get(3).getOperationName());
+        assertEquals("user2", finished.get(2).getTags().get("user"));
+        assertEquals(CardinalityLimiter.OVERFLOW_VALUE, finished.get(3).getTags().get("user"));
+        assertEquals("value9", finished.get(9).getTags().get("unguarded"));
+
+        assertEquals(Long.valueOf(4L), limiter.getOverflowCounts().get(CardinalityLimiter.OPERATION_NAME_KEY));
+        assertEquals(Long.valueOf(7L), limiter.getOverflowCounts().get("user"));
+        assertEquals(Long.valueOf(5L), limiter.getEstimatedCardinalities().get(CardinalityLimiter.OPERATION_NAME_KEY));
+        assertEquals(Long.valueOf(10L), limiter.getEstimatedCardinalities().get("user"));
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.log.Fields;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the trace event JSON receiver.
+ */
+public class ChromeTraceSpanReceiverTest {
+
+    private Path file;
+
+    @Before
+    public void before() throws IOException {
+        file = Files.createTempFile("trace", ".json");
+    }
+
+    @After
+    public void after() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    public void spansAndLogsAreWrittenAsEvents() throws IOException {
+        ChromeTraceSpanReceiver<TestTraceContext> receiver =
+                new ChromeTraceSpanReceiver<>(file, new TestSpanIdAccessor(), "load \"test\"");
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver).build();
+        Span span = tracer.buildSpan("request").withStartTimestamp(1000L).withTag("http.method", "GET").start();
+        span.log(1100L, Collections.singletonMap(Fields.EVENT, "cache miss"));
+        span.log(1200L, Collections.singletonMap("retries", 2));
+        span.finish(1500L);
+        receiver.close();
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        long tid = Thread.currentThread().getId();
+        assertTrue(json.startsWith("[{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":"));
+        assertTrue(json.contains(",\"args\":{\"name\":\"load \\\"test\\\"\"}}"));
+        assertTrue(json.contains("{\"name\":\"thread_name\",\"ph\":\"M\""));
+        assertTrue(json.contains("{\"name\":\"request\",\"cat\":\"span\",\"ph\":\"X\",\"ts\":1000,\"dur\":500,"));
+        assertTrue(json.contains(",\"tid\":" + tid + ",\"args\":{\"traceId\":\""));
+        assertTrue(json.contains(",\"http.method\":\"GET\"}}"));
+        assertTrue(json.contains("{\"name\":\"cache miss\",\"cat\":\"log\",\"ph\":\"i\",\"s\":\"t\",\"ts\":1100,"));
+        assertTrue(json.contains("{\"name\":\"retries\",\"cat\":\"log\",\"ph\":\"i\",\"s\":\"t\",\"ts\":1200,"));
+        assertTrue(json.contains(",\"args\":{\"retries\":\"2\"}}"));
+        assertTrue(json.endsWith("}]\n"));
+    }
+
+    @Test
+    public void tagsNamedAfterIdsAreOmitted() throws IOException {
+        ChromeTraceSpanReceiver<TestTraceContext> receiver =
+                new ChromeTraceSpanReceiver<>(file, new TestSpanIdAccessor(), "process");
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver).build();
+        tracer.buildSpan("request").withTag("traceId", "tag").withTag("spanId", "tag").withTag("other", "tag")
+                .start().finish();
+        receiver.close();
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertEquals(1, json.split("\"traceId\":", -1).length - 1);
+        assertEquals(1, json.split("\"spanId\":", -1).length - 1);
+        assertFalse(json.contains("\"traceId\":\"tag\""));
+        assertTrue(json.contains(",\"other\":\"tag\"}}"));
+    }
+
+    @Test
+    public void eventsAreStreamedRatherThanHeld() throws IOException {
+        ChromeTraceSpanReceiver<TestTraceContext> receiver =
+                new ChromeTraceSpanReceiver<>(file, new TestSpanIdAccessor(), "process");
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver).build();
+        for (int i = 0; i < 10000; i++) {
+            tracer.buildSpan("span").start().finish();
+        }
+        assertTrue(Files.size(file) > 0L);
+        receiver.close();
+        tracer.buildSpan("late").start().finish();
+        assertEquals(1L, receiver.getDroppedCount());
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertEquals(10000, json.split("\"ph\":\"X\"", -1).length - 1);
+        assertEquals(1, json.split("\"thread_name\"", -1).length - 1);
+    }
+
+}
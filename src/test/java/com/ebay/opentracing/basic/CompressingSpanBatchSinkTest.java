@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of batch compression.
+ */
+public class CompressingSpanBatchSinkTest {
+
+    @Test
+    public void lz4RoundTrips() {
+        Random random = new Random(42L);
+        byte[] randomBytes = new byte[10000];
+        random.nextBytes(randomBytes);
+        byte[] longRun = new byte[100000];
+        Arrays.fill(longRun, (byte) 'a');
+
+        List<byte[]> inputs = Arrays.asList(
+                new byte[0],
+                "a".getBytes(StandardCharsets.UTF_8),
+                "abcdefghijklm".getBytes(StandardCharsets.UTF_8),
+                repetitiveBatch(1000),
+                randomBytes,
+                longRun);
+        Lz4BlockCodec codec = new Lz4BlockCodec();
+        for (byte[] input : inputs) {
+            byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(input.length)];
+            int compressedLength = codec.compress(input, 0, input.length, compressed, 0);
+            byte[] output = new byte[input.length];
+            int outputLength = Lz4BlockCodec.decompress(compressed, 0, compressedLength, output, 0, output.length);
+            assertEquals(input.length, outputLength);
+            assertArrayEquals(input, output);
+        }
+    }
+
+    @Test
+    public void compressesBatchesAndReportsStatistics() throws IOException, DataFormatException {
+        CapturingSink capturing = new CapturingSink();
+        final List<int[]> reported = new ArrayList<>();
+        CompressingSpanBatchSink sink = new CompressingSpanBatchSink(
+                capturing, BatchCompression.deflate(Deflater.BEST_SPEED), new BatchCompressionListener() {
+            @Override
+            public void batchCompressed(int uncompressedSize, int compressedSize, long cpuTimeNanos) {
+                assertTrue(cpuTimeNanos >= 0L);
+                reported.add(new int[]{uncompressedSize, compressedSize});
+            }
+        });
+
+        byte[] batch = repetitiveBatch(500);
+        sink.send(ByteBuffer.wrap(batch));
+        sink.send(ByteBuffer.wrap(batch));
+        sink.close();
+
+        assertEquals(2, capturing.batches.size());
+        Inflater inflater = new Inflater();
+        inflater.setInput(capturing.batches.get(1));
+        byte[] inflated = new byte[batch.length];
+        assertEquals(batch.length, inflater.inflate(inflated));
+        assertTrue(inflater.finished());
+        assertArrayEquals(batch, inflated);
+
+        assertEquals(2, reported.size());
+        assertEquals(batch.length, reported.get(0)[0]);
+        assertEquals(capturing.batches.get(0).length, reported.get(0)[1]);
+        assertEquals(2L * batch.length, sink.getUncompressedBytes());
+        assertTrue(sink.getCompressionRatio() > 10.0d);
+    }
+
+    @Test
+    public void lz4BatchesCarryUncompressedLength() throws IOException {
+        CapturingSink capturing = new CapturingSink();
+        CompressingSpanBatchSink sink = new CompressingSpanBatchSink(capturing, BatchCompression.lz4());
+        byte[] batch = repetitiveBatch(500);
+        ByteBuffer direct = ByteBuffer.allocateDirect(batch.length);
+        direct.put(batch).flip();
+        sink.send(direct);
+
+        byte[] compressed = capturing.batches.get(0);
+        int length = ByteBuffer.wrap(compressed).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        assertEquals(batch.length, length);
+        byte[] output = new byte[length];
+        Lz4BlockCodec.decompress(compressed, 4, compressed.length - 4, output, 0, length);
+        assertArrayEquals(batch, output);
+        assertTrue(sink.getCompressionRatio() > 4.0d);
+        assertEquals("lz4", sink.getCompression().getName());
+    }
+
+    private static byte[] repetitiveBatch(int spanCount) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < spanCount; i++) {
+            builder.append("{\"traceId\":\"").append(String.format("%032x", i / 10))
+                    .append("\",\"id\":\"").append(String.format("%016x", i))
+                    .append("\",\"name\":\"get /api/items\",\"localEndpoint\":{\"serviceName\":\"catalog\"}")
+                    .append(",\"tags\":{\"http.method\":\"GET\",\"http.status_code\":\"200\"}},");
+        }
+        return builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class CapturingSink implements SpanBatchSink {
+        private final List<byte[]> batches = new ArrayList<>();
+
+        @Override
+        public void send(ByteBuffer batch) {
+            byte[] bytes = new byte[batch.remaining()];
+            batch.get(bytes);
+            batches.add(bytes);
+        }
+    }
+
+}
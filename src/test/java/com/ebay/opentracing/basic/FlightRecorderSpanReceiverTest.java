@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing of the Flight Recorder span receiver.  Flight Recorder is driven reflectively since the tests are
+ * compiled for a JVM which does not provide it.
+ */
+public class FlightRecorderSpanReceiverTest {
+
+    @Test
+    public void tagKeysAreConvertedToFieldNames() {
+        assertEquals("tag_http_status_code", FlightRecorderSpanReceiver.fieldName("http.status_code"));
+        assertEquals("tag_span_kind", FlightRecorderSpanReceiver.fieldName("span.kind"));
+    }
+
+    @Test
+    public void finishedSpansAreRecorded() throws Exception {
+        assumeTrue(FlightRecorderSpanReceiver.isAvailable());
+
+        String eventName = "com.ebay.opentracing.TestSpan";
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = recordingClass.getConstructor().newInstance();
+        recordingClass.getMethod("enable", String.class).invoke(recording, eventName);
+        recordingClass.getMethod("start").invoke(recording);
+
+        FlightRecorderSpanReceiver<TestTraceContext> receiver = new FlightRecorderSpanReceiver<>(
+                eventName, new TestSpanIdAccessor(), Collections.singletonList("http.method"));
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver).build();
+        tracer.buildSpan("operation")
+                .withStartTimestamp(1000000L)
+                .withTag("http.method", "GET")
+                .start()
+                .finish(1002500L);
+        receiver.close();
+
+        File file = File.createTempFile("spans", ".jfr");
+        try {
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file.toPath());
+            recordingClass.getMethod("close").invoke(recording);
+
+            Class<?> recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+            List<?> events = (List<?>) recordingFileClass.getMethod("readAllEvents", Path.class)
+                    .invoke(null, file.toPath());
+            Object recorded = null;
+            for (Object event : events) {
+                Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+                if (eventName.equals(eventType.getClass().getMethod("getName").invoke(eventType))) {
+                    recorded = event;
+                }
+            }
+            assertNotNull(recorded);
+
+            Method getValue = recorded.getClass().getMethod("getValue", String.class);
+            assertEquals("operation", getValue.invoke(recorded, "operationName"));
+            assertEquals("GET", getValue.invoke(recorded, "tag_http_method"));
+            assertEquals(16, ((String) getValue.invoke(recorded, "spanId")).length());
+            assertEquals(1000L, getValue.invoke(recorded, "spanStartTime"));
+            assertEquals(2500L, getValue.invoke(recorded, "spanDuration"));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+}
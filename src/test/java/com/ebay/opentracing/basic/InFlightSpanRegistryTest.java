@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the in-flight span registry.
+ */
+public class InFlightSpanRegistryTest {
+
+    private InFlightSpanRegistry<TestTraceContext> registry;
+    private Tracer tracer;
+
+    @Before
+    public void before() {
+        registry = new InFlightSpanRegistry<>();
+        tracer = newTracer(registry);
+    }
+
+    @Test
+    public void runningSpansAreGroupedByOperation() {
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            spans.add(tracer.buildSpan("query").withStartTimestamp(nowMicros - (i + 1) * 1000000L).start());
+        }
+        spans.add(tracer.buildSpan("render").start());
+        assertEquals(4, registry.getRunningCount());
+
+        List<RunningOperationSnapshot<TestTraceContext>> snapshots = registry.snapshot();
+        assertEquals(2, snapshots.size());
+        RunningOperationSnapshot<TestTraceContext> query = snapshots.get(0);
+        assertEquals("query", query.getOperationName());
+        assertEquals(3L, query.getRunningCount());
+        assertTrue(query.getAges().getMax(TimeUnit.SECONDS) >= 2L);
+        assertEquals(nowMicros - 3000000L, query.getOldest().getStartTime(TimeUnit.MICROSECONDS));
+        assertTrue(query.getOldest().getFinishTime(TimeUnit.MICROSECONDS) >= nowMicros);
+        assertEquals("render", snapshots.get(1).getOperationName());
+        assertEquals(1L, snapshots.get(1).getRunningCount());
+
+        for (Span span : spans) {
+            span.finish();
+        }
+        assertEquals(0, registry.getRunningCount());
+        assertTrue(registry.snapshot().isEmpty());
+    }
+
+    @Test
+    public void spansBeyondCapacityAreCounted() {
+        InFlightSpanRegistry<TestTraceContext> smallRegistry = new InFlightSpanRegistry<>(2);
+        Tracer smallTracer = newTracer(smallRegistry);
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            spans.add(smallTracer.buildSpan("query").start());
+        }
+        assertEquals(2, smallRegistry.getRunningCount());
+        assertEquals(1L, smallRegistry.getDroppedCount());
+
+        for (Span span : spans) {
+            span.finish();
+        }
+        assertEquals(0, smallRegistry.getRunningCount());
+        smallTracer.buildSpan("query").start();
+        assertEquals(1, smallRegistry.getRunningCount());
+    }
+
+    @Test
+    public void unreachableSpansAreRemoved() throws IOException, InterruptedException {
+        Tracer detectingTracer = newBuilder(registry)
+                .abandonedSpanDetection(new AbandonedSpanReceiver<TestTraceContext>() {
+                    @Override
+                    public void spanAbandoned(SpanData<TestTraceContext> spanData, boolean isUnreachable,
+                            Throwable creationSite) {
+                    }
+                }, 1L, TimeUnit.HOURS, 0.0d)
+                .build();
+        detectingTracer.buildSpan("forgotten").start();
+        assertEquals(1, registry.getRunningCount());
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (registry.getRunningCount() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertEquals(0, registry.getRunningCount());
+        ((Closeable) detectingTracer).close();
+    }
+
+    private static Tracer newTracer(InFlightSpanRegistry<TestTraceContext> registry) {
+        return newBuilder(registry).build();
+    }
+
+    private static BasicTracerBuilder<TestTraceContext> newBuilder(InFlightSpanRegistry<TestTraceContext> registry) {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+            }
+        })
+                .inFlightSpanRegistry(registry);
+    }
+
+}
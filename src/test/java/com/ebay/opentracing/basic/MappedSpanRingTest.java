@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing of the memory-mapped span ring and its reader.
+ */
+public class MappedSpanRingTest {
+
+    private Path file;
+
+    @Before
+    public void before() throws IOException {
+        assumeTrue(MappedSpanRing.isAvailable());
+        file = Files.createTempFile("span-ring", ".ring");
+    }
+
+    @After
+    public void after() throws IOException {
+        if (file != null) {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void spansAreReadAcrossWrapAndDroppedWhenFull() throws IOException {
+        MappedSpanRing<TestTraceContext> ring = new MappedSpanRing<>(file, new TestSpanIdAccessor(), 4096);
+        MappedSpanRingReader reader = new MappedSpanRingReader(file);
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), ring).build();
+
+        Span parent = tracer.buildSpan("parent").withStartTimestamp(1000L).start();
+        Span child = tracer.buildSpan("child").asChildOf(parent).withStartTimestamp(1100L)
+                .withTag("key", "value").start();
+        child.finish(1200L);
+        parent.finish(1300L);
+        List<SpanRecord> records = reader.read(10);
+        assertEquals(2, records.size());
+        assertEquals("child", records.get(0).getOperationName());
+        assertEquals(records.get(1).getSpanId(), records.get(0).getParentSpanId());
+        assertEquals(1200L, records.get(0).getFinishTime(TimeUnit.MICROSECONDS));
+        assertEquals("value", records.get(0).getTags().get("key"));
+        assertEquals(0L, reader.getBacklog());
+
+        // Write and read enough to wrap the ring several times
+        for (int i = 0; i < 1000; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+            records = reader.read(10);
+            assertEquals(1, records.size());
+            assertEquals("span-" + i, records.get(0).getOperationName());
+        }
+
+        // Without a reader the ring fills, after which spans are dropped
+        int written = 0;
+        while (ring.getDroppedCount() == 0L) {
+            tracer.buildSpan("fill").start().finish();
+            written++;
+        }
+        assertEquals(written - 1, reader.read(written).size());
+        tracer.buildSpan("after").start().finish();
+        assertEquals("after", reader.read(10).get(0).getOperationName());
+
+        ring.close();
+        reader.close();
+    }
+
+    @Test
+    public void readerRejectsOtherFiles() throws IOException {
+        Files.write(file, new byte[MappedSpanRing.HEADER_SIZE]);
+        try {
+            new MappedSpanRingReader(file).close();
+            fail("Expected the file to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Not a span ring"));
+        }
+    }
+
+}
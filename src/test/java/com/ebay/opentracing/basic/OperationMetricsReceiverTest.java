@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the RED metrics receiver and its histogram.
+ */
+public class OperationMetricsReceiverTest {
+
+    private OperationMetricsReceiver<TestTraceContext> receiver;
+    private Tracer tracer;
+
+    @Before
+    public void before() {
+        receiver = new OperationMetricsReceiver<>(Collections.singletonList("region"), 4);
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver)
+                .build();
+    }
+
+    @Test
+    public void histogramBucketsBoundRelativeError() {
+        for (long value = 0L; value < 1000000L; value += 7L) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) - value <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        HistogramSnapshot snapshot = histogram.snapshotAndReset();
+
+        assertEquals(1000L, snapshot.getCount());
+        assertEquals(500500L, snapshot.getSum(TimeUnit.MICROSECONDS));
+        assertEquals(500L, snapshot.getValueAtPercentile(50.0d, TimeUnit.MICROSECONDS), 500 / 8);
+        assertEquals(990L, snapshot.getValueAtPercentile(99.0d, TimeUnit.MICROSECONDS), 990 / 8);
+        assertEquals(1000L, snapshot.getMax(TimeUnit.MICROSECONDS), 1000 / 8);
+        assertEquals(0L, histogram.snapshotAndReset().getCount());
+    }
+
+    @Test
+    public void aggregatesByOperationAndDimension() {
+        finishSpan("get", "us", false, 1000L);
+        finishSpan("get", "us", true, 2000L);
+        finishSpan("get", "eu", false, 3000L);
+
+        List<OperationMetricsSnapshot> snapshots = receiver.collect();
+        assertEquals(2, snapshots.size());
+        for (OperationMetricsSnapshot snapshot : snapshots) {
+            assertEquals("get", snapshot.getOperationName());
+            if ("us".equals(snapshot.getDimensions().get("region"))) {
+                assertEquals(2L, snapshot.getRequestCount());
+                assertEquals(1L, snapshot.getErrorCount());
+                assertEquals(3000L, snapshot.getLatency().getSum(TimeUnit.MICROSECONDS));
+            } else {
+                assertEquals("eu", snapshot.getDimensions().get("region"));
+                assertEquals(1L, snapshot.getRequestCount());
+                assertEquals(0L, snapshot.getErrorCount());
+            }
+        }
+
+        assertTrue(receiver.collect().isEmpty());
+    }
+
+    @Test
+    public void excessSeriesAreAggregatedIntoOverflow() {
+        for (int i = 0; i < 10; i++) {
+            finishSpan("operation" + i, null, false, 100L);
+        }
+
+        List<OperationMetricsSnapshot> snapshots = receiver.collect();
+        assertEquals(4, snapshots.size());
+        long overflowCount = 0L;
+        for (OperationMetricsSnapshot snapshot : snapshots) {
+            if (OperationMetricsReceiver.OVERFLOW_OPERATION.equals(snapshot.getOperationName())) {
+                overflowCount = snapshot.getRequestCount();
+            }
+        }
+        assertEquals(7L, overflowCount);
+    }
+
+    private void finishSpan(String operationName, String region, boolean error, long durationMicros) {
+        Tracer.SpanBuilder builder = tracer.buildSpan(operationName)
+                .withStartTimestamp(1000000L);
+        if (region != null) {
+            builder.withTag("region", region);
+        }
+        if (error) {
+            builder.withTag(Tags.ERROR.getKey(), true);
+        }
+        builder.start().finish(1000000L + durationMicros);
+    }
+
+}
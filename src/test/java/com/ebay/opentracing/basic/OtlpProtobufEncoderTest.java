@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import io.opentracing.References;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the OTLP protobuf encoder, verified by decoding its output with the protobuf runtime.
+ */
+public class OtlpProtobufEncoderTest {
+
+    @Test
+    public void encodesBatchAsExportTraceServiceRequest() throws IOException {
+        final List<SpanData<TestTraceContext>> spans = new ArrayList<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                spans.add(spanData);
+            }
+        }).build();
+
+        Span parent = tracer.buildSpan("parent").withStartTimestamp(1000L).start();
+        Span child = tracer.buildSpan("child é€")
+                .asChildOf(parent)
+                .addReference(References.FOLLOWS_FROM, parent.context())
+                .withStartTimestamp(1100L)
+                .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
+                .withTag(Tags.ERROR.getKey(), true)
+                .start();
+        child.log(1150L, "sent");
+        child.log(1160L, Collections.singletonMap("size", 42));
+        child.finish(1200L);
+        parent.finish(1300L);
+
+        TestSpanIdAccessor accessor = new TestSpanIdAccessor();
+        OtlpProtobufEncoder<TestTraceContext> encoder = new OtlpProtobufEncoder<>(accessor, "service");
+        ByteBuffer encoded = encoder.encode(spans);
+
+        Message request = Message.parse(encoded);
+        Message resourceSpans = request.message(1);
+        Message serviceName = resourceSpans.message(1).message(1);
+        assertEquals("service.name", serviceName.string(1));
+        assertEquals("service", serviceName.message(2).string(1));
+
+        Message scopeSpans = resourceSpans.message(2);
+        assertEquals("com.ebay.opentracing.basic", scopeSpans.message(1).string(1));
+        List<Message> encodedSpans = scopeSpans.messages(2);
+        assertEquals(2, encodedSpans.size());
+
+        TestTraceContext parentContext = spans.get(1).getSpanContext().getTraceContext();
+        Message childSpan = encodedSpans.get(0);
+        assertEquals(accessor.getTraceId(parentContext), hex(childSpan.bytes(1)));
+        assertEquals(accessor.getSpanId(spans.get(0).getSpanContext().getTraceContext()), hex(childSpan.bytes(2)));
+        assertEquals(accessor.getSpanId(parentContext), hex(childSpan.bytes(4)));
+        assertEquals("child é€", childSpan.string(5));
+        assertEquals(2L, childSpan.number(6));
+        assertEquals(1100000L, childSpan.number(7));
+        assertEquals(1200000L, childSpan.number(8));
+
+        List<Message> attributes = childSpan.messages(9);
+        assertEquals(1, attributes.size());
+        assertEquals("error", attributes.get(0).string(1));
+        assertEquals("true", attributes.get(0).message(2).string(1));
+
+        List<Message> events = childSpan.messages(11);
+        assertEquals(2, events.size());
+        assertEquals(1150000L, events.get(0).number(1));
+        assertEquals("sent", events.get(0).string(2));
+        assertEquals("log", events.get(1).string(2));
+        assertEquals("size", events.get(1).message(3).string(1));
+        assertEquals(42L, events.get(1).message(3).message(2).number(3));
+
+        List<Message> links = childSpan.messages(13);
+        assertEquals(1, links.size());
+        assertEquals(accessor.getSpanId(parentContext), hex(links.get(0).bytes(2)));
+        assertEquals("follows_from", links.get(0).message(4).message(2).string(1));
+        assertEquals(2L, childSpan.message(15).number(3));
+
+        Message parentSpan = encodedSpans.get(1);
+        assertEquals("parent", parentSpan.string(5));
+        assertNull(parentSpan.fields.get(4));
+        assertNull(parentSpan.fields.get(15));
+    }
+
+    @Test
+    public void spansChangingWhileEncodedAreEncodedConsistently() throws IOException {
+        final List<SpanData<TestTraceContext>> spans = new ArrayList<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                spans.add(spanData);
+            }
+        }).build();
+        tracer.buildSpan("operation").withStartTimestamp(1000L).withTag("initial", "value").start().finish(1100L);
+
+        // Stands in for another thread setting a tag every time the tags are read
+        final MutableSpanData<TestTraceContext> live = (MutableSpanData<TestTraceContext>) spans.get(0);
+        SpanData<TestTraceContext> changing = new SpanData<TestTraceContext>() {
+            private int reads;
+
+            @Override
+            public InternalSpanContext<TestTraceContext> getSpanContext() {
+                return live.getSpanContext();
+            }
+
+            @Override
+            public long getStartTime(TimeUnit timeUnit) {
+                return live.getStartTime(timeUnit);
+            }
+
+            @Override
+            public long getFinishTime(TimeUnit timeUnit) {
+                return live.getFinishTime(timeUnit);
+            }
+
+            @Override
+            public String getOperationName() {
+                return live.getOperationName();
+            }
+
+            @Override
+            public Map<String, String> getTags() {
+                Map<String, String> tags = live.getTags();
+                live.putTag("tag-" + reads++, "value");
+                return tags;
+            }
+
+            @Override
+            public List<? extends InternalSpanContext<TestTraceContext>> getReferences(String referenceType) {
+                return live.getReferences(referenceType);
+            }
+
+            @Override
+            public List<LogEvent> getLogEvents() {
+                return live.getLogEvents();
+            }
+        };
+
+        OtlpProtobufEncoder<TestTraceContext> encoder = new OtlpProtobufEncoder<>(new TestSpanIdAccessor(), "service");
+        Message request = Message.parse(encoder.encode(Collections.singletonList(changing)));
+        List<Message> encodedSpans = request.message(1).message(2).messages(2);
+        assertEquals(1, encodedSpans.size());
+        assertEquals(2, encodedSpans.get(0).messages(9).size());
+        // Nothing may follow the request, as it would were a length prefix too short
+        assertEquals(Collections.singleton(1), request.fields.keySet());
+    }
+
+    private static String hex(ByteString bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes.toByteArray()) {
+            builder.append(String.format("%02x", b & 0xFF));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Schema-less view of a decoded message, holding the raw values of each field by field number.
+     */
+    private static final class Message {
+        private final Map<Integer, List<Object>> fields = new HashMap<>();
+
+        static Message parse(ByteBuffer buffer) throws IOException {
+            return parse(CodedInputStream.newInstance(buffer));
+        }
+
+        static Message parse(CodedInputStream input) throws IOException {
+            Message message = new Message();
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                Object value;
+                switch (WireFormat.getTagWireType(tag)) {
+                    case WireFormat.WIRETYPE_VARINT:
+                        value = input.readInt64();
+                        break;
+                    case WireFormat.WIRETYPE_FIXED64:
+                        value = input.readFixed64();
+                        break;
+                    case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                        value = input.readBytes();
+                        break;
+                    default:
+                        throw new IOException("Unexpected wire type in tag " + tag);
+                }
+                int fieldNumber = WireFormat.getTagFieldNumber(tag);
+                List<Object> values = message.fields.get(fieldNumber);
+                if (values == null) {
+                    values = new ArrayList<>();
+                    message.fields.put(fieldNumber, values);
+                }
+                values.add(value);
+            }
+            return message;
+        }
+
+        ByteString bytes(int fieldNumber) {
+            List<Object> values = fields.get(fieldNumber);
+            assertNotNull("Missing field " + fieldNumber, values);
+            assertEquals(1, values.size());
+            return (ByteString) values.get(0);
+        }
+
+        String string(int fieldNumber) {
+            return bytes(fieldNumber).toString(StandardCharsets.UTF_8);
+        }
+
+        long number(int fieldNumber) {
+            List<Object> values = fields.get(fieldNumber);
+            assertNotNull("Missing field " + fieldNumber, values);
+            return (Long) values.get(0);
+        }
+
+        Message message(int fieldNumber) throws IOException {
+            return parse(bytes(fieldNumber).newCodedInput());
+        }
+
+        List<Message> messages(int fieldNumber) throws IOException {
+            List<Message> messages = new ArrayList<>();
+            List<Object> values = fields.get(fieldNumber);
+            if (values != null) {
+                for (Object value : values) {
+                    messages.add(parse(((ByteString) value).newCodedInput()));
+                }
+            }
+            return messages;
+        }
+    }
+
+}
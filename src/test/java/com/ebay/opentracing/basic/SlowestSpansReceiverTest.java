@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the slowest span exemplar receiver.
+ */
+public class SlowestSpansReceiverTest {
+
+    private SlowestSpansReceiver<TestTraceContext> receiver;
+    private Tracer tracer;
+
+    @Before
+    public void before() {
+        receiver = new SlowestSpansReceiver<>(3, 3);
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), receiver).build();
+    }
+
+    @Test
+    public void slowestSpansAreCapturedPerOperationAndInterval() {
+        long[] durations = {50L, 10L, 70L, 20L, 90L, 30L, 60L, 80L, 40L};
+        for (long duration : durations) {
+            finishSpan("get", duration);
+        }
+        finishSpan("put", 5L);
+
+        Map<String, List<SpanData<TestTraceContext>>> collected = receiver.collect();
+        assertEquals(2, collected.size());
+        List<SpanData<TestTraceContext>> slowest = collected.get("get");
+        assertEquals(3, slowest.size());
+        assertEquals(90L, duration(slowest.get(0)));
+        assertEquals(80L, duration(slowest.get(1)));
+        assertEquals(70L, duration(slowest.get(2)));
+        assertEquals(1, collected.get("put").size());
+
+        // The next interval starts afresh, with a reset threshold
+        finishSpan("get", 1L);
+        collected = receiver.collect();
+        assertEquals(1, collected.size());
+        assertEquals(1L, duration(collected.get("get").get(0)));
+        assertTrue(receiver.collect().isEmpty());
+    }
+
+    @Test
+    public void excessOperationsAreCapturedAsOverflow() {
+        for (int i = 0; i < 10; i++) {
+            finishSpan("operation" + i, i);
+        }
+
+        Map<String, List<SpanData<TestTraceContext>>> collected = receiver.collect();
+        assertEquals(3, collected.size());
+        List<SpanData<TestTraceContext>> overflow = collected.get(SlowestSpansReceiver.OVERFLOW_OPERATION);
+        assertEquals(3, overflow.size());
+        assertEquals("operation9", overflow.get(0).getOperationName());
+    }
+
+    private void finishSpan(String operationName, long durationMicros) {
+        tracer.buildSpan(operationName).withStartTimestamp(1000L).start().finish(1000L + durationMicros);
+    }
+
+    private static long duration(SpanData<TestTraceContext> spanData) {
+        return spanData.getFinishTime(TimeUnit.MICROSECONDS) - spanData.getStartTime(TimeUnit.MICROSECONDS);
+    }
+
+}
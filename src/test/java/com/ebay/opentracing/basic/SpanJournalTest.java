@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the memory-mapped span journal and its reader.
+ */
+public class SpanJournalTest {
+
+    private Path directory;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("span-journal");
+    }
+
+    @After
+    public void after() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.toFile().delete());
+    }
+
+    @Test
+    public void spansSurviveRestartAndReaderResumes() throws IOException {
+        SpanJournal<TestTraceContext> journal = new SpanJournalBuilder<>(directory, new TestSpanIdAccessor())
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), journal).build();
+        Span parent = tracer.buildSpan("parent").withStartTimestamp(1000L).start();
+        Span child = tracer.buildSpan("child").asChildOf(parent).withStartTimestamp(1100L)
+                .withTag("key", "value").start();
+        child.log(1150L, "event");
+        child.finish(1200L);
+        parent.finish(1300L);
+        journal.close();
+
+        SpanJournalReader reader = new SpanJournalReader(directory);
+        List<SpanRecord> records = reader.read(10);
+        assertEquals(2, records.size());
+        SpanRecord childRecord = records.get(0);
+        SpanRecord parentRecord = records.get(1);
+        assertEquals("child", childRecord.getOperationName());
+        assertEquals(parentRecord.getTraceId(), childRecord.getTraceId());
+        assertEquals(parentRecord.getSpanId(), childRecord.getParentSpanId());
+        assertNull(parentRecord.getParentSpanId());
+        assertEquals(1100L, childRecord.getStartTime(TimeUnit.MICROSECONDS));
+        assertEquals(1200L, childRecord.getFinishTime(TimeUnit.MICROSECONDS));
+        assertEquals("value", childRecord.getTags().get("key"));
+        assertEquals(1150L, childRecord.getLogEvents().get(0).getTimeStamp(TimeUnit.MICROSECONDS));
+        assertEquals("event", childRecord.getLogEvents().get(0).getPayload());
+        reader.commit();
+        reader.close();
+
+        // Restart both the writer and the reader
+        journal = new SpanJournalBuilder<>(directory, new TestSpanIdAccessor()).build();
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), journal).build();
+        tracer.buildSpan("after-restart").start().finish();
+
+        reader = new SpanJournalReader(directory);
+        records = reader.read(10);
+        assertEquals(1, records.size());
+        assertEquals("after-restart", records.get(0).getOperationName());
+        assertTrue(reader.read(10).isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void segmentsRotateAndAreDeletedWhenOverSize() throws Exception {
+        int segmentSize = 1024;
+        SpanJournal<TestTraceContext> journal = new SpanJournalBuilder<>(directory, new TestSpanIdAccessor())
+                .segmentSize(segmentSize)
+                .maxRecordSize(256)
+                .maxTotalSize(3 * segmentSize)
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), journal).build();
+
+        for (int i = 0; i < 200; i++) {
+            awaitPreparedSegment(journal);
+            tracer.buildSpan("span-" + i).start().finish();
+        }
+        StringBuilder oversized = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            oversized.append('x');
+        }
+        tracer.buildSpan(oversized.toString()).start().finish();
+        awaitPreparedSegment(journal);
+
+        assertEquals(1L, journal.getDroppedCount());
+        assertTrue(SpanJournal.segmentIds(directory).size() <= 3);
+
+        SpanJournalReader reader = new SpanJournalReader(directory);
+        List<SpanRecord> records = reader.read(1000);
+        assertFalse(records.isEmpty());
+        assertTrue(records.size() < 200);
+        assertEquals("span-199", records.get(records.size() - 1).getOperationName());
+        reader.close();
+        journal.close();
+    }
+
+    private static void awaitPreparedSegment(SpanJournal<?> journal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!journal.isSegmentPrepared()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1L);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of per-span limits.
+ */
+public class SpanLimitsTest {
+
+    private final AtomicReference<SpanData<TestTraceContext>> finished = new AtomicReference<>();
+
+    @Test
+    public void tagsBeyondLimitAreDropped() {
+        Tracer tracer = newTracer(new SpanLimitsBuilder().maxTags(2).build());
+        Span span = tracer.buildSpan("operation").withTag("a", "1").start();
+        span.setTag("b", "2");
+        span.setTag("c", "3");
+        span.setTag("a", "4");
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals(2, spanData.getTags().size());
+        assertEquals("4", spanData.getTags().get("a"));
+        assertEquals("2", spanData.getTags().get("b"));
+        assertEquals(1, ((SpanLimitCounts) spanData).getDroppedTagCount());
+    }
+
+    @Test
+    public void logEventsBeyondLimitAreDropped() {
+        Tracer tracer = newTracer(new SpanLimitsBuilder().maxLogEvents(1).build());
+        Span span = tracer.buildSpan("operation").start();
+        span.log("first");
+        span.log("second");
+        span.log("third");
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals(1, spanData.getLogEvents().size());
+        assertEquals("first", spanData.getLogEvents().get(0).getPayload());
+        assertEquals(2, ((SpanLimitCounts) spanData).getDroppedLogEventCount());
+    }
+
+    @Test
+    public void longValuesAreTruncated() {
+        Tracer tracer = newTracer(new SpanLimitsBuilder().maxValueLength(4).build());
+        Span span = tracer.buildSpan("operation").withTag("short", "abc").start();
+        span.setTag("long", "abcdefgh");
+        span.log("123456");
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals("abc", spanData.getTags().get("short"));
+        assertEquals("abcd", spanData.getTags().get("long"));
+        assertEquals("1234", spanData.getLogEvents().get(0).getPayload());
+        assertEquals(2, ((SpanLimitCounts) spanData).getTruncatedValueCount());
+        assertEquals(0, ((SpanLimitCounts) spanData).getDroppedTagCount());
+    }
+
+    @Test
+    public void payloadBeyondLimitIsDropped() {
+        Tracer tracer = newTracer(new SpanLimitsBuilder().maxPayloadLength(10).build());
+        Span span = tracer.buildSpan("operation").start();
+        span.setTag("key", "value");
+        span.setTag("other", "value");
+        span.setTag("key", "v");
+        span.setTag("k2", "v2");
+        span.log("x");
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals(2, spanData.getTags().size());
+        assertEquals("v", spanData.getTags().get("key"));
+        assertEquals("v2", spanData.getTags().get("k2"));
+        assertEquals(1, ((SpanLimitCounts) spanData).getDroppedTagCount());
+        assertEquals(1, ((SpanLimitCounts) spanData).getDroppedLogEventCount());
+        assertEquals(1, SpanDataSnapshot.of(spanData).getDroppedTagCount());
+    }
+
+    @Test
+    public void limitsHoldUnderConcurrentUpdates() throws Exception {
+        Tracer tracer = newTracer(new SpanLimitsBuilder().maxTags(50).maxLogEvents(50).build());
+        final Span span = tracer.buildSpan("operation").start();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final String prefix = "t" + t + "-";
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 1000; i++) {
+                        span.setTag(prefix + i, "value");
+                        span.log("event");
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        span.finish();
+
+        SpanData<TestTraceContext> spanData = finished.get();
+        assertEquals(50, spanData.getTags().size());
+        assertEquals(50, spanData.getLogEvents().size());
+        assertEquals(3950, ((SpanLimitCounts) spanData).getDroppedTagCount());
+        assertEquals(3950, ((SpanLimitCounts) spanData).getDroppedLogEventCount());
+    }
+
+    private Tracer newTracer(SpanLimits spanLimits) {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.set(spanData);
+            }
+        })
+                .spanLimits(spanLimits)
+                .build();
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the span started listener.
+ */
+public class SpanStartedListenerTest {
+
+    @Test
+    public void listenerSeesRunningSpan() {
+        final List<MutableSpanData<TestTraceContext>> started = new ArrayList<>();
+        Tracer tracer = newTracerBuilder()
+                .spanStartedListener(new SpanStartedListener<TestTraceContext>() {
+                    @Override
+                    public void spanStarted(MutableSpanData<TestTraceContext> spanData) {
+                        started.add(spanData);
+                    }
+                })
+                .build();
+
+        Span span = tracer.buildSpan("operation").withTag("component", "test").start();
+        assertEquals(1, started.size());
+        MutableSpanData<TestTraceContext> spanData = started.get(0);
+        assertEquals("operation", spanData.getOperationName());
+        assertEquals("test", spanData.getTags().get("component"));
+        assertSame(span.context(), spanData.getSpanContext());
+        span.finish();
+    }
+
+    private static BasicTracerBuilder<TestTraceContext> newTracerBuilder() {
+        return new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+            }
+        });
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the in-memory span store and its queries.
+ */
+public class SpanStoreTest {
+
+    private SpanStore<TestTraceContext> store;
+    private Tracer tracer;
+    private long nowMicros;
+
+    @Before
+    public void before() {
+        store = new SpanStoreBuilder<>(new TestSpanIdAccessor())
+                .chunkSize(10, 4096)
+                .maxMemorySize(SpanStoreChunk.memorySize(10, 4096) * 4)
+                .build();
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), store).build();
+        nowMicros = System.currentTimeMillis() * 1000L;
+    }
+
+    @Test
+    public void slowestSpansWithinWindow() {
+        // One span a second over the last 25 seconds, each taking longer than the last
+        for (int i = 0; i < 25; i++) {
+            long finish = nowMicros - TimeUnit.SECONDS.toMicros(25 - i);
+            finishSpan("get", finish - 1000L * (i + 1), finish);
+            finishSpan("put", finish - 100000L, finish);
+        }
+
+        List<SpanRecord> slowest = store.findSlowest("get", 1L, TimeUnit.MINUTES, 3);
+        assertEquals(3, slowest.size());
+        assertEquals(25000L, duration(slowest.get(0)));
+        assertEquals(24000L, duration(slowest.get(1)));
+        assertEquals(23000L, duration(slowest.get(2)));
+
+        // Only the spans finishing within the last 10 seconds
+        List<SpanRecord> recent = store.findSlowest("get", nowMicros - TimeUnit.SECONDS.toMicros(10L), 100);
+        assertEquals(10, recent.size());
+        assertEquals(16000L, duration(recent.get(9)));
+        assertEquals("put", store.findSlowest("put", 1L, TimeUnit.MINUTES, 1).get(0).getOperationName());
+        assertTrue(store.findSlowest("unknown", 1L, TimeUnit.MINUTES, 1).isEmpty());
+    }
+
+    @Test
+    public void traceIsFoundAcrossChunks() {
+        Span parent = tracer.buildSpan("parent").withStartTimestamp(nowMicros - 5000L).start();
+        tracer.buildSpan("first").asChildOf(parent).withStartTimestamp(nowMicros - 4000L).start()
+                .finish(nowMicros - 3000L);
+        for (int i = 0; i < 15; i++) {
+            finishSpan("other", nowMicros - 3000L, nowMicros - 2000L);
+        }
+        tracer.buildSpan("second").asChildOf(parent).withStartTimestamp(nowMicros - 2000L).start()
+                .finish(nowMicros - 1000L);
+        parent.finish(nowMicros);
+
+        List<SpanRecord> trace = store.findTrace(store.findSlowest("parent", 1L, TimeUnit.MINUTES, 1)
+                .get(0).getTraceId());
+        assertEquals(3, trace.size());
+        assertEquals("first", trace.get(0).getOperationName());
+        assertEquals("second", trace.get(1).getOperationName());
+        assertEquals("parent", trace.get(2).getOperationName());
+        assertTrue(store.findTrace("0").isEmpty());
+    }
+
+    @Test
+    public void oldestChunksAreEvictedWhenOverBudget() {
+        Span first = tracer.buildSpan("first").withStartTimestamp(nowMicros - 1000L).start();
+        first.finish(nowMicros);
+        String traceId = store.findSlowest("first", 1L, TimeUnit.MINUTES, 1).get(0).getTraceId();
+        for (int i = 0; i < 100; i++) {
+            finishSpan("span", nowMicros - 1000L, nowMicros);
+        }
+
+        assertTrue(store.findTrace(traceId).isEmpty());
+        assertTrue(store.getMemorySize() <= SpanStoreChunk.memorySize(10, 4096) * 4);
+        assertEquals(31L, store.getSpanCount());
+        assertEquals(0L, store.getDroppedCount());
+    }
+
+    @Test
+    public void operationsAreReleasedWithEvictedChunks() {
+        store = new SpanStoreBuilder<>(new TestSpanIdAccessor())
+                .chunkSize(10, 4096)
+                .maxMemorySize(SpanStoreChunk.memorySize(10, 4096) * 4)
+                .maxOperations(1)
+                .build();
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), store).build();
+        for (int i = 0; i < 10; i++) {
+            finishSpan("first", nowMicros - 1000L, nowMicros);
+        }
+        for (int i = 0; i < 100; i++) {
+            finishSpan("second", nowMicros - 1000L, nowMicros);
+        }
+
+        assertTrue(store.findSlowest("first", 1L, TimeUnit.MINUTES, 10).isEmpty());
+        assertFalse(store.findSlowest("second", 1L, TimeUnit.MINUTES, 10).isEmpty());
+    }
+
+    @Test
+    public void expiredChunksAreEvictedWhenQueried() throws InterruptedException {
+        store = new SpanStoreBuilder<>(new TestSpanIdAccessor())
+                .chunkSize(10, 4096)
+                .retention(1L, TimeUnit.MINUTES)
+                .build();
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), store).build();
+        long expiringMicros = nowMicros - TimeUnit.MINUTES.toMicros(1L) + TimeUnit.MILLISECONDS.toMicros(500L);
+        for (int i = 0; i < 10; i++) {
+            finishSpan("old", expiringMicros - 1000L, expiringMicros);
+        }
+        finishSpan("new", nowMicros - 1000L, nowMicros);
+        assertEquals(11L, store.getSpanCount());
+
+        Thread.sleep(1000L);
+        assertTrue(store.findSlowest("old", 1L, TimeUnit.HOURS, 10).isEmpty());
+        assertEquals(1L, store.getSpanCount());
+    }
+
+    private void finishSpan(String operationName, long startMicros, long finishMicros) {
+        tracer.buildSpan(operationName).withStartTimestamp(startMicros).start().finish(finishMicros);
+    }
+
+    private static long duration(SpanRecord record) {
+        return record.getFinishTime(TimeUnit.MICROSECONDS) - record.getStartTime(TimeUnit.MICROSECONDS);
+    }
+
+}
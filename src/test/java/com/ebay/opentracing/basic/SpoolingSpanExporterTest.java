@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the spooling exporter against a stand-in sink which fails on demand.
+ */
+public class SpoolingSpanExporterTest {
+
+    private Path directory;
+    private StandInSink sink;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("span-spool");
+        sink = new StandInSink();
+    }
+
+    @After
+    public void after() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.toFile().delete());
+    }
+
+    @Test
+    public void batchesAreSpooledWhileSinkFailsAndReplayedOnRecovery() throws Exception {
+        SpoolingSpanExporter<TestTraceContext> exporter = newExporterBuilder().build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+
+        sink.failing = true;
+        for (int i = 0; i < 20; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+        }
+        long deadline = System.currentTimeMillis() + 5000L;
+        while ((exporter.getSpooledBatchCount() < 5 || exporter.getSendFailureCount() == 0L)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(exporter.getSendFailureCount() > 0L);
+        assertTrue(sink.getReceived().isEmpty());
+
+        sink.failing = false;
+        deadline = System.currentTimeMillis() + 5000L;
+        while (sink.getReceived().size() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        exporter.close();
+
+        List<String> received = sink.getReceived();
+        Collections.sort(received);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("span-" + i);
+        }
+        Collections.sort(expected);
+        assertEquals(expected, received);
+        assertEquals(0, exporter.getSpooledBatchCount());
+        assertEquals(0L, exporter.getDiscardedBatchCount());
+    }
+
+    @Test
+    public void spoolDiscardsOldestBatchesWhenFull() throws Exception {
+        sink.failing = true;
+        SpoolingSpanExporter<TestTraceContext> exporter = newExporterBuilder()
+                .maxSpoolSize(30L)
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+        for (int i = 0; i < 10; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+        }
+        exporter.close();
+
+        // Each two span batch encodes to 14 bytes so only the last two batches fit
+        assertEquals(2, exporter.getSpooledBatchCount());
+        assertEquals(3L, exporter.getDiscardedBatchCount());
+        assertTrue(exporter.getSpoolSize() <= 30L);
+
+        // A new exporter replays what was left behind
+        sink.failing = false;
+        exporter = newExporterBuilder().maxSpoolSize(30L).build();
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (sink.getReceived().size() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        exporter.close();
+        assertEquals(4, sink.getReceived().size());
+        assertEquals(0, exporter.getSpooledBatchCount());
+    }
+
+    @Test
+    public void queueIsDrainedToSpoolWhileBackingOff() throws Exception {
+        sink.failing = true;
+        SpoolingSpanExporter<TestTraceContext> exporter = newExporterBuilder()
+                .maxPendingBatches(1)
+                .flushInterval(10L, TimeUnit.SECONDS)
+                .backoff(10L, 10L, TimeUnit.SECONDS)
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+        for (int i = 0; i < 12; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+            Thread.sleep(20L);
+        }
+
+        assertEquals(1L, exporter.getSendFailureCount());
+        assertEquals(0L, exporter.getDroppedSpanCount());
+        exporter.close();
+        assertEquals(6, exporter.getSpooledBatchCount());
+    }
+
+    @Test
+    public void batchesAreSpooledWhileSinkIsSlow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        sink.release = release;
+        SpoolingSpanExporter<TestTraceContext> exporter = newExporterBuilder()
+                .maxPendingBatches(1)
+                .flushInterval(10L, TimeUnit.SECONDS)
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+        for (int i = 0; i < 10; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+            Thread.sleep(20L);
+        }
+
+        // One batch is stuck in the sink and one is queued for it, the others have been spooled
+        assertEquals(3, exporter.getSpooledBatchCount());
+        assertEquals(0L, exporter.getDroppedSpanCount());
+        release.countDown();
+        exporter.close();
+        assertEquals(10, sink.getReceived().size() + 2 * exporter.getSpooledBatchCount());
+        assertEquals(0L, exporter.getDroppedSpanCount());
+    }
+
+    @Test
+    public void batchesWhichFailToEncodeAreDropped() throws Exception {
+        SpoolingSpanExporter<TestTraceContext> exporter = newExporterBuilder().build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+        tracer.buildSpan(NameEncoder.UNENCODABLE).start().finish();
+        tracer.buildSpan("span-1").start().finish();
+        tracer.buildSpan("span-2").start().finish();
+        tracer.buildSpan("span-3").start().finish();
+        exporter.close();
+
+        assertEquals(2L, exporter.getDroppedSpanCount());
+        assertEquals(Arrays.asList("span-2", "span-3"), sink.getReceived());
+    }
+
+    private SpoolingSpanExporterBuilder<TestTraceContext> newExporterBuilder() {
+        return new SpoolingSpanExporterBuilder<>(new NameEncoder(), sink, directory)
+                .batchSize(2)
+                .maxPendingBatches(16)
+                .flushInterval(10L, TimeUnit.MILLISECONDS)
+                .backoff(5L, 20L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encodes a batch as newline separated operation names.
+     */
+    private static final class NameEncoder implements SpanBatchEncoder<TestTraceContext> {
+        private static final String UNENCODABLE = "unencodable";
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        @Override
+        public ByteBuffer encode(List<? extends SpanData<TestTraceContext>> spans) {
+            buffer.clear();
+            for (SpanData<TestTraceContext> span : spans) {
+                if (UNENCODABLE.equals(span.getOperationName())) {
+                    throw new IllegalArgumentException("Cannot encode span");
+                }
+                buffer.put(span.getOperationName().getBytes(StandardCharsets.UTF_8));
+                buffer.put((byte) '\n');
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static final class StandInSink implements SpanBatchSink {
+        private final List<String> received = new ArrayList<>();
+        private volatile boolean failing;
+        private volatile CountDownLatch release;
+
+        @Override
+        public void send(ByteBuffer batch) throws IOException {
+            CountDownLatch latch = release;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            receive(batch);
+        }
+
+        private synchronized void receive(ByteBuffer batch) throws IOException {
+            if (failing) {
+                throw new IOException("Collector unavailable");
+            }
+            byte[] bytes = new byte[batch.remaining()];
+            batch.get(bytes);
+            for (String name : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+                received.add(name);
+            }
+        }
+
+        synchronized List<String> getReceived() {
+            return new ArrayList<>(received);
+        }
+    }
+
+}
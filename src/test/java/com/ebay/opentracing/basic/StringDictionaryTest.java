@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the string dictionary.
+ */
+public class StringDictionaryTest {
+
+    @Test
+    public void assignsIdsUntilFull() {
+        StringDictionary dictionary = new StringDictionary(2, 8);
+        String first = new String("first");
+        assertSame(first, dictionary.intern(first));
+        assertSame(first, dictionary.intern(new String("first")));
+        assertEquals(0, dictionary.getId("first"));
+        assertEquals("second", dictionary.intern("second"));
+        assertEquals(1, dictionary.getId("second"));
+        assertEquals("second", dictionary.lookup(1));
+
+        // Full, and too long
+        assertEquals("third", dictionary.intern("third"));
+        assertEquals("very long string", dictionary.intern("very long string"));
+        assertEquals(StringDictionary.NO_ID, dictionary.getId("third"));
+        assertNull(dictionary.lookup(2));
+        assertSame(first, dictionary.intern(new String("first")));
+        assertEquals(2, dictionary.getSize());
+        assertEquals(2L, dictionary.getOverflowCount());
+    }
+
+    @Test
+    public void tracerInternsOperationNamesAndTagKeys() {
+        StringDictionary dictionary = new StringDictionary(16, 64);
+        final List<SpanData<TestTraceContext>> finished = new ArrayList<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.add(spanData);
+            }
+        })
+                .stringDictionary(dictionary)
+                .build();
+
+        for (int i = 0; i < 2; i++) {
+            Span span = tracer.buildSpan(new String("operation")).withTag(new String("builder.key"), "value").start();
+            span.setTag(new String("span.key"), i);
+            span.finish();
+        }
+
+        assertEquals(3, dictionary.getSize());
+        assertSame(finished.get(0).getOperationName(), finished.get(1).getOperationName());
+        for (String key : finished.get(1).getTags().keySet()) {
+            assertSame(key, dictionary.lookup(dictionary.getId(key)));
+        }
+    }
+
+}
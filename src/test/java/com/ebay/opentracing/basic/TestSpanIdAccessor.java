@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+class TestSpanIdAccessor implements SpanIdAccessor<TestTraceContext> {
+
+    @Override
+    public String getTraceId(TestTraceContext traceContext) {
+        return String.format("%032x", serial(traceContext.getTraceId()));
+    }
+
+    @Override
+    public String getSpanId(TestTraceContext traceContext) {
+        return String.format("%016x", serial(traceContext.getSpanId()));
+    }
+
+    private static long serial(String id) {
+        return Long.parseLong(id.substring(id.indexOf('-') + 1));
+    }
+
+}
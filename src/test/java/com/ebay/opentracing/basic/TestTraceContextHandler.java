@@ -71,7 +71,6 @@ class TestTraceContextHandler implements TraceContextHandler<TestTraceContext> {
             AtomicReference<String> traceIdRef,
             List<Baggage> baggageList,
             List<InternalSpanContext<TestTraceContext>> list) {
-        String traceId = traceIdRef.get();
         for (InternalSpanContext<TestTraceContext> internalSpanContext : list) {
             TestTraceContext traceContext = internalSpanContext.getTraceContext();
 
@@ -80,7 +79,7 @@ class TestTraceContextHandler implements TraceContextHandler<TestTraceContext> {
 
             String parentTraceId = traceContext.getTraceId();
 
-            String previousTraceId = traceIdRef.getAndSet(traceId);
+            String previousTraceId = traceIdRef.getAndSet(parentTraceId);
             if (previousTraceId != null && !previousTraceId.equals(parentTraceId)) {
                 throw new IllegalStateException("Cannot be a member of multiple trace IDs");
             }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal in-process stand-in for a node-local agent, accepting length-prefixed batches over a Unix domain
+ * socket.  Suitable for both tests and benchmarks.
+ */
+final class TestUnixSocketAgent implements Closeable {
+    private final Path socketPath;
+    private final ServerSocketChannel serverChannel;
+    private final List<SocketChannel> connections = new CopyOnWriteArrayList<>();
+    private final List<byte[]> frames = new ArrayList<>();
+    private final Thread acceptThread;
+    private volatile boolean paused;
+
+    TestUnixSocketAgent(Path socketPath) throws Exception {
+        this.socketPath = socketPath;
+        serverChannel = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        serverChannel.bind(UnixSocketSpanBatchSink.socketAddress(socketPath));
+        acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, "test-agent-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    Path getSocketPath() {
+        return socketPath;
+    }
+
+    /**
+     * Stop reading further frames, simulating an agent which cannot keep up.
+     */
+    void pause() {
+        paused = true;
+    }
+
+    /**
+     * Close all currently accepted connections, simulating an agent restart.
+     */
+    void dropConnections() throws IOException {
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+    }
+
+    synchronized List<byte[]> getFrames() {
+        return new ArrayList<>(frames);
+    }
+
+    boolean awaitFrames(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (getFrames().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        return getFrames().size() >= count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        dropConnections();
+        Files.deleteIfExists(socketPath);
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                final SocketChannel connection = serverChannel.accept();
+                connections.add(connection);
+                Thread readThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        readLoop(connection);
+                    }
+                }, "test-agent-read");
+                readThread.setDaemon(true);
+                readThread.start();
+            }
+        } catch (IOException e) {
+            // Server channel closed
+        }
+    }
+
+    private void readLoop(SocketChannel connection) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            while (!paused) {
+                header.clear();
+                readFully(connection, header);
+                ByteBuffer frame = ByteBuffer.allocate(header.getInt(0));
+                readFully(connection, frame);
+                synchronized (this) {
+                    frames.add(frame.array());
+                }
+            }
+        } catch (IOException e) {
+            // Connection closed, discarding any partial frame
+        }
+    }
+
+    private static void readFully(SocketChannel connection, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (connection.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+}
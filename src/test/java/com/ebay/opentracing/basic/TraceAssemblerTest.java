@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of trace assembly and the timing wheel which drives it.
+ */
+public class TraceAssemblerTest {
+
+    private final List<List<SpanData<TestTraceContext>>> traces = new ArrayList<>();
+    private final List<Boolean> rootFinished = new ArrayList<>();
+    private TraceAssembler<TestTraceContext> assembler;
+    private Tracer tracer;
+
+    @Before
+    public void before() {
+        assembler = new TraceAssemblerBuilder<>(new TestSpanIdAccessor(), new AssembledTraceReceiver<TestTraceContext>() {
+            @Override
+            public void traceAssembled(List<SpanData<TestTraceContext>> spans, boolean finished) {
+                synchronized (traces) {
+                    traces.add(spans);
+                    rootFinished.add(finished);
+                }
+            }
+        })
+                .tickDuration(10L, TimeUnit.MILLISECONDS)
+                .gracePeriod(50L, TimeUnit.MILLISECONDS)
+                .timeout(300L, TimeUnit.MILLISECONDS)
+                .build();
+        tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), assembler).build();
+    }
+
+    @After
+    public void after() {
+        assembler.close();
+    }
+
+    @Test
+    public void traceIsEmittedOnceLocalRootHasFinished() throws InterruptedException {
+        Span root = tracer.buildSpan("root").start();
+        Span child = tracer.buildSpan("child").asChildOf(root).start();
+        tracer.buildSpan("grandchild").asChildOf(child).start().finish();
+        tracer.buildSpan("sibling").asChildOf(root).start().finish();
+        child.finish();
+        root.finish();
+
+        awaitTraces(1);
+        synchronized (traces) {
+            assertEquals(4, traces.get(0).size());
+            assertEquals("root", traces.get(0).get(3).getOperationName());
+            assertTrue(rootFinished.get(0));
+        }
+        assertEquals(0, assembler.getPendingTraceCount());
+    }
+
+    @Test
+    public void gapsBetweenChildrenDoNotSplitTrace() throws InterruptedException {
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("first").asChildOf(root).start().finish();
+        Thread.sleep(120L);
+        tracer.buildSpan("second").asChildOf(root).start().finish();
+        Thread.sleep(120L);
+        synchronized (traces) {
+            assertTrue(traces.isEmpty());
+        }
+        root.finish();
+
+        awaitTraces(1);
+        synchronized (traces) {
+            assertEquals(3, traces.get(0).size());
+            assertTrue(rootFinished.get(0));
+        }
+    }
+
+    @Test
+    public void unfinishedTraceIsEmittedAfterTimeout() throws InterruptedException {
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("first").asChildOf(root).start().finish();
+        tracer.buildSpan("second").asChildOf(root).start().finish();
+        assertEquals(1, assembler.getPendingTraceCount());
+
+        // The local root has not finished, so only the timeout emits the trace
+        Thread.sleep(150L);
+        synchronized (traces) {
+            assertTrue(traces.isEmpty());
+        }
+        awaitTraces(1);
+        synchronized (traces) {
+            assertEquals(2, traces.get(0).size());
+            assertFalse(rootFinished.get(0));
+        }
+
+        // The late root forms a new group
+        root.finish();
+        awaitTraces(2);
+        synchronized (traces) {
+            assertEquals("root", traces.get(1).get(0).getOperationName());
+        }
+    }
+
+    @Test
+    public void closeEmitsTracesInFlight() {
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("first").asChildOf(root).start().finish();
+        tracer.buildSpan("second").asChildOf(root).start().finish();
+        assembler.close();
+
+        synchronized (traces) {
+            assertEquals(1, traces.size());
+            assertFalse(rootFinished.get(0));
+        }
+        root.finish();
+        assertEquals(1L, assembler.getDroppedCount());
+    }
+
+    @Test
+    public void timingWheelExpiresOnlyDueTimeouts() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8);
+        wheel.schedule("a", 3L);
+        HashedTimingWheel.Timeout<String> b = wheel.schedule("b", 11L); // Same bucket, next revolution
+        HashedTimingWheel.Timeout<String> c = wheel.schedule("c", 5L);
+        wheel.schedule("past", -1L);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(1L, expired);
+        assertEquals(Arrays.asList("past"), expired);
+        expired.clear();
+        wheel.reschedule(c, 2L);
+        wheel.advance(3L, expired);
+        assertEquals(Arrays.asList("c", "a"), expired);
+        expired.clear();
+        wheel.advance(10L, expired);
+        assertTrue(expired.isEmpty());
+        wheel.cancel(b);
+        wheel.schedule("d", 12L);
+        wheel.advance(100L, expired);
+        assertEquals(Arrays.asList("d"), expired);
+        assertEquals(100L, wheel.getCurrentTick());
+    }
+
+    private void awaitTraces(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (traces) {
+                if (traces.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(5L);
+        }
+        fail("Timed out waiting for " + count + " traces");
+    }
+
+}
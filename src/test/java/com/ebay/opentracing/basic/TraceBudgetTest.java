@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.References;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of per-trace span budgets.
+ */
+public class TraceBudgetTest {
+
+    private final List<SpanData<TestTraceContext>> finished =
+            Collections.synchronizedList(new ArrayList<SpanData<TestTraceContext>>());
+
+    @Test
+    public void spansBeyondBudgetAreSuppressed() {
+        Tracer tracer = newTracer(3L, Long.MAX_VALUE);
+        Span root = tracer.buildSpan("root").start();
+        for (int i = 0; i < 5; i++) {
+            Span child = tracer.buildSpan("child").asChildOf(root).start();
+            Span grandchild = tracer.buildSpan("grandchild").asChildOf(child).start();
+            assertEquals(traceId(root), traceId(grandchild));
+            grandchild.finish();
+            child.finish();
+        }
+        root.finish();
+
+        // The root and first child and grandchild are recorded
+        assertEquals(3, finished.size());
+        SpanData<TestTraceContext> rootData = finished.get(2);
+        assertEquals("root", rootData.getOperationName());
+        assertEquals("8", rootData.getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+
+        // Budgets are per trace
+        finished.clear();
+        Span other = tracer.buildSpan("other").start();
+        tracer.buildSpan("child").asChildOf(other).start().finish();
+        other.finish();
+        assertEquals(2, finished.size());
+        assertNull(finished.get(1).getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+    }
+
+    @Test
+    public void byteBudgetSuppressesLargeSpans() {
+        Tracer tracer = newTracer(Long.MAX_VALUE, 1024L);
+        Span root = tracer.buildSpan("root").start();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            large.append('x');
+        }
+        Span child = tracer.buildSpan("child").asChildOf(root).withTag("payload", large.toString()).start();
+        child.setTag("ignored", true);
+        child.finish();
+        tracer.buildSpan("small").asChildOf(root).start().finish();
+        root.finish();
+
+        assertEquals(1, finished.size());
+        assertEquals("2", finished.get(0).getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+    }
+
+    @Test
+    public void rootBeyondByteBudgetIsNotCountedAsSuppressed() {
+        Tracer tracer = newTracer(Long.MAX_VALUE, 100L);
+        Span root = tracer.buildSpan("root").start();
+        tracer.buildSpan("child").asChildOf(root).start().finish();
+        tracer.buildSpan("child").asChildOf(root).start().finish();
+        root.finish();
+
+        assertEquals(1, finished.size());
+        assertEquals("2", finished.get(0).getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+    }
+
+    @Test
+    public void suppressedSpansPassThroughSpanInitiator() {
+        final List<String> initiated = new ArrayList<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.add(spanData);
+            }
+        })
+                .spanInitiator(new SpanInitiator<TestTraceContext>() {
+                    @Override
+                    public Span initiateSpan(
+                            SpanInitiatorContext<TestTraceContext> initiatorContext,
+                            MutableSpanData<TestTraceContext> spanData) {
+                        initiated.add(spanData.getOperationName());
+                        return initiatorContext.createSpan(spanData);
+                    }
+                })
+                .traceBudget(1L, Long.MAX_VALUE)
+                .build();
+        Span root = tracer.buildSpan("root").start();
+        BasicSpan child = (BasicSpan) tracer.buildSpan("child").asChildOf(root).start();
+        assertFalse(child.isRecording());
+        child.finish();
+        root.finish();
+
+        assertEquals(Arrays.asList("root", "child"), initiated);
+        assertEquals(1, finished.size());
+    }
+
+    @Test
+    public void linksToOtherTracesAreNotCharged() {
+        // Spans join the trace of their child-of parent, being linked to any follows-from spans
+        Tracer tracer = newTracer(new TestTraceContextHandler() {
+            @Override
+            public InternalSpanContext<TestTraceContext> createForContext(
+                    Map<String, List<InternalSpanContext<TestTraceContext>>> references) {
+                List<InternalSpanContext<TestTraceContext>> childOf = references.get(References.CHILD_OF);
+                return super.createForContext((childOf == null) ? references
+                        : Collections.singletonMap(References.CHILD_OF, childOf));
+            }
+        }, 2L, Long.MAX_VALUE);
+        Span exhausted = tracer.buildSpan("exhausted").start();
+        tracer.buildSpan("child").asChildOf(exhausted).start().finish();
+
+        // A span continuing a remote trace is the local root of that trace, whatever it links to
+        InternalSpanContext<TestTraceContext> remote = new InternalSpanContext<>(
+                new TestTraceContext("Trace-remote", "Span-remote"), new BaggageBuilder().build());
+        tracer.buildSpan("linked")
+                .asChildOf(remote)
+                .addReference(References.FOLLOWS_FROM, exhausted.context())
+                .start()
+                .finish();
+        exhausted.finish();
+
+        assertEquals(3, finished.size());
+        assertEquals("linked", finished.get(1).getOperationName());
+        assertNull(finished.get(1).getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+        assertNull(finished.get(2).getTags().get(TraceBudget.SUPPRESSED_SPANS_TAG));
+    }
+
+    private static String traceId(Span span) {
+        @SuppressWarnings("unchecked")
+        InternalSpanContext<TestTraceContext> spanContext = (InternalSpanContext<TestTraceContext>) span.context();
+        return spanContext.getTraceContext().getTraceId();
+    }
+
+    private Tracer newTracer(long maxSpans, long maxBytes) {
+        return newTracer(new TestTraceContextHandler(), maxSpans, maxBytes);
+    }
+
+    private Tracer newTracer(TraceContextHandler<TestTraceContext> traceContextHandler, long maxSpans, long maxBytes) {
+        return new BasicTracerBuilder<>(traceContextHandler, new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                finished.add(spanData);
+            }
+        })
+                .traceBudget(maxSpans, maxBytes)
+                .build();
+    }
+
+}
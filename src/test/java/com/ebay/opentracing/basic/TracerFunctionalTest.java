@@ -22,6 +22,8 @@ import io.opentracing.ScopeManager;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.Verifications;
@@ -33,6 +35,7 @@ import org.junit.runner.RunWith;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -461,6 +464,83 @@ public class TracerFunctionalTest {
         }};
     }
 
+    @Test
+    public void spanProcessorsEnrichAndFilter() {
+        SpanProcessor<TestTraceContext> processor = new SpanProcessor<TestTraceContext>() {
+            @Override
+            public void onStart(MutableSpanData<TestTraceContext> spanData) {
+                spanData.putTag("host", "localhost");
+            }
+
+            @Override
+            public void onFinish(List<MutableSpanData<TestTraceContext>> spans) {
+                Iterator<MutableSpanData<TestTraceContext>> iterator = spans.iterator();
+                while (iterator.hasNext()) {
+                    MutableSpanData<TestTraceContext> spanData = iterator.next();
+                    if ("filtered".equals(spanData.getOperationName())) {
+                        iterator.remove();
+                    } else {
+                        spanData.putTag("secret", "redacted");
+                    }
+                }
+            }
+        };
+        uut = new BasicTracerBuilder<>(new TestTraceContextHandler(), finishedSpanReceiver)
+                .addSpanProcessor(processor)
+                .build();
+
+        final ArrayList<SpanData<TestTraceContext>> capturedSpanData = new ArrayList<>();
+        new Expectations() {{
+            finishedSpanReceiver.spanFinished(withCapture(capturedSpanData));
+            times = 1;
+        }};
+
+        uut.buildSpan("filtered").start().finish();
+        uut.buildSpan("kept").withTag("secret", "password").start().finish();
+
+        assertEquals(1, capturedSpanData.size());
+        Map<String, String> tags = capturedSpanData.get(0).getTags();
+        assertEquals("localhost", tags.get("host"));
+        assertEquals("redacted", tags.get("secret"));
+    }
+
+    @Test
+    public void tracerMetricsCountSpansAndPropagation() {
+        TracerMetrics metrics = new TracerMetrics();
+        uut = new BasicTracerBuilder<>(new TestTraceContextHandler(), finishedSpanReceiver)
+                .tracerMetrics(metrics)
+                .build();
+
+        Span finished = uut.buildSpan("finished").withTag("a", "1").withTag("b", "2").start();
+        finished.log("event");
+        finished.setBaggageItem("key", "value");
+        finished.finish();
+        uut.buildSpan("unfinished").start();
+        try {
+            uut.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(new HashMap<String, String>()));
+            fail("Expected unsupported format");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        TracerMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2L, snapshot.getSpansStarted());
+        assertEquals(1L, snapshot.getSpansFinished());
+        assertEquals(1L, snapshot.getSpansUnfinished());
+        assertEquals(2.0d, snapshot.getTagsPerSpan(), 0.0d);
+        assertEquals(1.0d, snapshot.getLogEventsPerSpan(), 0.0d);
+        assertEquals(Long.valueOf(1L), snapshot.getExtractFailureCounts().get(Format.Builtin.TEXT_MAP.toString()));
+        assertEquals(Long.valueOf(0L), snapshot.getExtractCounts().get(Format.Builtin.TEXT_MAP.toString()));
+        assertEquals(1.0d, snapshot.getBaggageItemsPerSpan(), 0.0d);
+        assertEquals(8.0d, snapshot.getBaggageSizePerSpan(), 0.0d);
+
+        // The MXBean attributes read the same counters directly
+        assertEquals(1L, metrics.getSpansUnfinished());
+        assertEquals(2.0d, metrics.getTagsPerSpan(), 0.0d);
+        assertEquals(8.0d, metrics.getBaggageSizePerSpan(), 0.0d);
+        assertEquals(snapshot.getExtractFailureCounts(), metrics.getExtractFailureCounts());
+    }
+
     @Nullable
     private String locateValue(Iterable<Map.Entry<String, String>> entries, String key) {
         for (Map.Entry<String, String> entry : entries) {
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Tracer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Testing of the Unix domain socket sink against the stand-in agent.
+ */
+public class UnixSocketSpanBatchSinkTest {
+
+    private Path directory;
+    private TestUnixSocketAgent agent;
+    private UnixSocketSpanBatchSink sink;
+
+    @Before
+    public void before() throws Exception {
+        assumeTrue(UnixSocketSpanBatchSink.isAvailable());
+        directory = Files.createTempDirectory("agent");
+        agent = new TestUnixSocketAgent(directory.resolve("agent.sock"));
+        sink = new UnixSocketSpanBatchSink(agent.getSocketPath(), 1L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void after() throws IOException {
+        if (agent != null) {
+            sink.close();
+            agent.close();
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void batchesAreFramedByLength() throws Exception {
+        sink.send(utf8("first"));
+        sink.send(utf8(""));
+        sink.send(utf8("third"));
+
+        assertTrue(agent.awaitFrames(3, 5000L));
+        List<byte[]> frames = agent.getFrames();
+        assertEquals("first", new String(frames.get(0), StandardCharsets.UTF_8));
+        assertEquals(0, frames.get(1).length);
+        assertEquals("third", new String(frames.get(2), StandardCharsets.UTF_8));
+        assertEquals(1L, sink.getConnectCount());
+    }
+
+    @Test
+    public void reconnectsAfterAgentDropsConnection() throws Exception {
+        sink.send(utf8("before"));
+        assertTrue(agent.awaitFrames(1, 5000L));
+        agent.dropConnections();
+
+        // Writes to the dropped connection fail, after which the sink reconnects
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (agent.getFrames().size() < 2 && System.currentTimeMillis() < deadline) {
+            try {
+                sink.send(utf8("after"));
+            } catch (IOException e) {
+                // Expected once the drop is noticed
+            }
+            Thread.sleep(10L);
+        }
+        assertEquals("after", new String(agent.getFrames().get(1), StandardCharsets.UTF_8));
+        assertEquals(2L, sink.getConnectCount());
+    }
+
+    @Test
+    public void sendTimesOutWhenAgentStalls() throws Exception {
+        sink.close();
+        sink = new UnixSocketSpanBatchSink(agent.getSocketPath(), 50L, TimeUnit.MILLISECONDS);
+        agent.pause();
+
+        ByteBuffer batch = ByteBuffer.allocate(1 << 20);
+        try {
+            for (int i = 0; i < 8; i++) {
+                batch.clear();
+                sink.send(batch);
+            }
+            fail("Expected the send to time out");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Timed out"));
+        }
+    }
+
+    @Test
+    public void exporterStreamsEncodedBatchesToAgent() throws Exception {
+        SpoolingSpanExporter<TestTraceContext> exporter = new SpoolingSpanExporterBuilder<>(
+                new ZipkinJsonEncoder<TestTraceContext>(new TestSpanIdAccessor(), "service"), sink, directory)
+                .batchSize(10)
+                .flushInterval(10L, TimeUnit.MILLISECONDS)
+                .build();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), exporter).build();
+        for (int i = 0; i < 25; i++) {
+            tracer.buildSpan("span-" + i).start().finish();
+        }
+        exporter.close();
+
+        assertTrue(agent.awaitFrames(3, 5000L));
+        int spans = 0;
+        for (byte[] frame : agent.getFrames()) {
+            String json = new String(frame, StandardCharsets.UTF_8);
+            assertTrue(json.startsWith("["));
+            spans += json.split("\"name\"").length - 1;
+        }
+        assertEquals(25, spans);
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
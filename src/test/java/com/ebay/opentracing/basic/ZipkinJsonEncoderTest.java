@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017-2018 eBay Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ebay.opentracing.basic;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.tag.Tags;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing of the streaming Zipkin JSON encoder.
+ */
+public class ZipkinJsonEncoderTest {
+
+    @Test
+    public void encodesBatchAsZipkinV2Json() {
+        final List<SpanData<TestTraceContext>> spans = new ArrayList<>();
+        Tracer tracer = new BasicTracerBuilder<>(new TestTraceContextHandler(), new FinishedSpanReceiver<TestTraceContext>() {
+            @Override
+            public void spanFinished(SpanData<TestTraceContext> spanData) {
+                spans.add(spanData);
+            }
+        }).build();
+
+        Span parent = tracer.buildSpan("parent").withStartTimestamp(1000L).start();
+        Span child = tracer.buildSpan("child").asChildOf(parent).withStartTimestamp(1100L)
+                .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+                .withTag("http.url", "/a\"b")
+                .start();
+        child.log(1150L, "sent");
+        child.finish(1100L);
+        parent.finish(1300L);
+
+        TestSpanIdAccessor accessor = new TestSpanIdAccessor();
+        TestTraceContext parentContext = spans.get(1).getSpanContext().getTraceContext();
+        TestTraceContext childContext = spans.get(0).getSpanContext().getTraceContext();
+        String traceId = accessor.getTraceId(parentContext);
+
+        ZipkinJsonEncoder<TestTraceContext> encoder = new ZipkinJsonEncoder<>(accessor, "service");
+        String expected = "[{\"traceId\":\"" + traceId + "\",\"id\":\"" + accessor.getSpanId(childContext)
+                + "\",\"parentId\":\"" + accessor.getSpanId(parentContext)
+                + "\",\"kind\":\"CLIENT\",\"name\":\"child\",\"timestamp\":1100,\"duration\":1"
+                + ",\"localEndpoint\":{\"serviceName\":\"service\"}"
+                + ",\"annotations\":[{\"timestamp\":1150,\"value\":\"sent\"}]"
+                + ",\"tags\":{\"http.url\":\"/a\\\"b\"}}"
+                + ",{\"traceId\":\"" + traceId + "\",\"id\":\"" + accessor.getSpanId(parentContext)
+                + "\",\"name\":\"parent\",\"timestamp\":1000,\"duration\":300"
+                + ",\"localEndpoint\":{\"serviceName\":\"service\"}}]";
+        assertEquals(expected, toString(encoder.encode(spans)));
+
+        // The buffer is reused for subsequent batches
+        assertEquals("[]", toString(encoder.encode(new ArrayList<SpanData<TestTraceContext>>())));
+    }
+
+    @Test
+    public void writerEscapesAndEncodesUtf8() {
+        JsonWriter writer = new JsonWriter(4);
+        writer.writeString("q\"\\\n\u0001é€😀\ud800").writeByte(',')
+                .writeLong(0L).writeByte(',')
+                .writeLong(-1234567890123L).writeByte(',')
+                .writeLong(Long.MIN_VALUE);
+        assertEquals("\"q\\\"\\\\\\n\\u0001é€😀?\",0,-1234567890123,-9223372036854775808",
+                toString(writer.toByteBuffer()));
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}